@@ -0,0 +1,151 @@
+package benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import red.CodificadorMensajes;
+import red.DecodificadorMensajes;
+import red.MensajeJuego;
+import red.MensajeJuego.TipoMensaje;
+
+/**
+ * Codificar y decodificar cada tipo de MensajeJuego como lo hace
+ * ConexionPeer: codificar y decodificar usan las tramas binarias de
+ * CodificadorMensajes y DecodificadorMensajes; serializar y deserializar
+ * son la serializacion de Java que se usaba antes, como referencia
+ *
+ * Los flujos de objetos viven todo el benchmark, asi se mide el costo
+ * estable por mensaje (la cabecera y la descripcion de las clases solo
+ * viajan una vez). Se llama a reset() cada 1024 mensajes (cada mensaje se
+ * escribe una vez entre dos reset) para que la tabla de referencias no
+ * crezca sin limite
+ *
+ * Con -prof gc se ven las asignaciones por mensaje; los bytes por mensaje
+ * de cada formato se imprimen al terminar cada prueba
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkCodecRed {
+    private static final int MENSAJES = 1024;
+    
+    @Param
+    private TipoMensaje tipo;
+    
+    private MensajeJuego[] mensajes;
+    private ContadorBytes contador;
+    private ObjectOutputStream salida;
+    private long escritos;
+    private byte[] flujo;
+    private ObjectInputStream entrada;
+    private int leidos;
+    
+    private ContadorBytes contadorTramas;
+    private CodificadorMensajes codificador;
+    private long tramasEscritas;
+    private byte[] tramas;
+    private ByteArrayInputStream entradaTramas;
+    private DecodificadorMensajes decodificador;
+    
+    @Setup
+    public void preparar() throws IOException {
+        // Instancias distintas: repetir la misma solo escribiria una referencia
+        mensajes = new MensajeJuego[MENSAJES];
+        for (int i = 0; i < MENSAJES; i++) {
+            mensajes[i] = MensajesEjemplo.crear(tipo);
+        }
+        contador = new ContadorBytes();
+        salida = new ObjectOutputStream(contador);
+        salida.flush();
+        
+        // Un flujo con MENSAJES mensajes distintos, como llegan por el socket
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream escritor = new ObjectOutputStream(bytes)) {
+            for (int i = 0; i < MENSAJES; i++) {
+                escritor.writeObject(MensajesEjemplo.crear(tipo));
+            }
+        }
+        flujo = bytes.toByteArray();
+        entrada = new ObjectInputStream(new ByteArrayInputStream(flujo));
+        
+        contadorTramas = new ContadorBytes();
+        codificador = new CodificadorMensajes();
+        ByteArrayOutputStream bytesTramas = new ByteArrayOutputStream();
+        CodificadorMensajes escritor = new CodificadorMensajes();
+        for (int i = 0; i < MENSAJES; i++) {
+            escritor.escribir(MensajesEjemplo.crear(tipo), bytesTramas);
+        }
+        tramas = bytesTramas.toByteArray();
+        entradaTramas = new ByteArrayInputStream(tramas);
+        decodificador = new DecodificadorMensajes();
+    }
+    
+    @TearDown
+    public void terminar() {
+        if (escritos > 0) {
+            System.out.println(String.format("%n[BENCHMARK] %s serializado: %.1f bytes por mensaje",
+                tipo, (double) contador.total / escritos));
+        }
+        if (tramasEscritas > 0) {
+            System.out.println(String.format("%n[BENCHMARK] %s en trama: %.1f bytes por mensaje",
+                tipo, (double) contadorTramas.total / tramasEscritas));
+        }
+    }
+    
+    @Benchmark
+    public void codificar() throws IOException {
+        codificador.escribir(mensajes[(int) (tramasEscritas++ % MENSAJES)], contadorTramas);
+    }
+    
+    @Benchmark
+    public MensajeJuego decodificar() throws IOException {
+        if (entradaTramas.available() == 0) {
+            entradaTramas.reset();
+        }
+        return decodificador.leer(entradaTramas);
+    }
+    
+    @Benchmark
+    public void serializar() throws IOException {
+        salida.writeObject(mensajes[(int) (escritos % MENSAJES)]);
+        salida.flush();
+        if (++escritos % MENSAJES == 0) {
+            salida.reset();
+        }
+    }
+    
+    @Benchmark
+    public MensajeJuego deserializar() throws IOException, ClassNotFoundException {
+        if (leidos == MENSAJES) {
+            entrada = new ObjectInputStream(new ByteArrayInputStream(flujo));
+            leidos = 0;
+        }
+        leidos++;
+        return (MensajeJuego) entrada.readObject();
+    }
+    
+    /**
+     * Descarta lo escrito y solo cuenta los bytes, como un socket muy rapido
+     */
+    private static final class ContadorBytes extends OutputStream {
+        long total;
+        
+        @Override
+        public void write(int b) {
+            total++;
+        }
+        
+        @Override
+        public void write(byte[] b, int desde, int cantidad) {
+            total += cantidad;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package benchmarks;
+
+import dispatcher.Dispatcher;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import red.CodificadorMensajes;
+import red.DecodificadorMensajes;
+import red.MensajeJuego;
+import red.MensajeJuego.TipoMensaje;
+
+/**
+ * El resto del camino de un movimiento por la red: la busqueda del
+ * manejador en Dispatcher.despachar y la ruta completa de un MOVIMIENTO,
+ * de los enteros del emisor a los enteros en el manejador del receptor,
+ * pasando por la trama binaria de ConexionPeer
+ *
+ * despachar imprime una linea por mensaje: System.out se descarta para
+ * medir el formateo y la busqueda, no la consola
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkDespacho {
+    private static final int MENSAJES = 1024;
+    
+    private Dispatcher dispatcher;
+    private MensajeJuego[] mensajes;
+    private int[] recibido;
+    private CodificadorMensajes codificador;
+    private DecodificadorMensajes decodificador;
+    private TuberiaBytes tuberia;
+    private PrintStream salidaOriginal;
+    private int indice;
+    
+    @Setup
+    public void preparar() throws IOException {
+        salidaOriginal = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        
+        // Un manejador por tipo; el de MOVIMIENTO lee los campos como ControladorRed
+        dispatcher = new Dispatcher();
+        recibido = new int[3];
+        for (TipoMensaje tipo : TipoMensaje.values()) {
+            dispatcher.registrar(tipo, (mensaje, desde) -> recibido[0] = mensaje.getTipo().getCodigo());
+        }
+        dispatcher.registrar(TipoMensaje.MOVIMIENTO, (mensaje, desde) -> {
+            recibido[0] = mensaje.getJugadorId();
+            recibido[1] = mensaje.getFichaId();
+            recibido[2] = mensaje.getValorDado();
+        });
+        
+        mensajes = new MensajeJuego[MENSAJES];
+        TipoMensaje[] tipos = TipoMensaje.values();
+        for (int i = 0; i < MENSAJES; i++) {
+            mensajes[i] = MensajesEjemplo.crear(tipos[i % tipos.length]);
+        }
+        
+        // Emisor y receptor unidos en memoria, cada uno con su codec como ConexionPeer
+        tuberia = new TuberiaBytes();
+        codificador = new CodificadorMensajes();
+        decodificador = new DecodificadorMensajes();
+    }
+    
+    @TearDown
+    public void terminar() {
+        System.setOut(salidaOriginal);
+    }
+    
+    @Benchmark
+    public void despachar(Blackhole bh) {
+        dispatcher.despachar(mensajes[indice++ & (MENSAJES - 1)], null);
+        bh.consume(recibido);
+    }
+    
+    @Benchmark
+    public boolean buscarManejador() {
+        return dispatcher.tieneManejador(mensajes[indice++ & (MENSAJES - 1)].getTipo());
+    }
+    
+    @Benchmark
+    public int[] rutaMovimiento() throws IOException {
+        MensajeJuego mensaje = MensajeJuego.movimiento(MensajesEjemplo.EMISOR, indice++ & 3, 7, 5);
+        codificador.escribir(mensaje, tuberia.salida);
+        dispatcher.despachar(decodificador.leer(tuberia.entrada), null);
+        return recibido;
+    }
+    
+    /**
+     * Lo que escribe el emisor queda disponible para el receptor en el
+     * mismo hilo; el buffer se reutiliza cuando el lector lo alcanza
+     */
+    private static final class TuberiaBytes {
+        private byte[] datos = new byte[1 << 16];
+        private int escritos;
+        private int leidos;
+        
+        final OutputStream salida = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+            
+            @Override
+            public void write(byte[] b, int desde, int cantidad) {
+                if (leidos == escritos) {
+                    leidos = 0;
+                    escritos = 0;
+                }
+                if (escritos + cantidad > datos.length) {
+                    datos = java.util.Arrays.copyOf(datos, Math.max(datos.length * 2, escritos + cantidad));
+                }
+                System.arraycopy(b, desde, datos, escritos, cantidad);
+                escritos += cantidad;
+            }
+        };
+        
+        final InputStream entrada = new InputStream() {
+            @Override
+            public int read() {
+                return leidos < escritos ? datos[leidos++] & 0xFF : -1;
+            }
+            
+            @Override
+            public int read(byte[] b, int desde, int cantidad) {
+                if (leidos == escritos) {
+                    return -1;
+                }
+                int n = Math.min(cantidad, escritos - leidos);
+                System.arraycopy(datos, leidos, b, desde, n);
+                leidos += n;
+                return n;
+            }
+            
+            @Override
+            public int available() {
+                return escritos - leidos;
+            }
+        };
+    }
+}
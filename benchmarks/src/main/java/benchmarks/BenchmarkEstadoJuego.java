@@ -0,0 +1,117 @@
+package benchmarks;
+
+import controlador.SincronizadorEstado;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import modelo.EstadoCompacto;
+import modelo.Jugador;
+import modelo.Partida;
+import modelo.TablasTablero;
+import org.openjdk.jmh.annotations.*;
+import red.CodificadorMensajes;
+import red.DecodificadorMensajes;
+import red.MensajeJuego;
+
+/**
+ * Sincronizacion del estado con ESTADO_JUEGO, en microsegundos:
+ * capturar una partida de dos jugadores y codificar su estado completo,
+ * decodificar un estado completo y cargarlo en la partida (lo que hace un
+ * peer que se pone al dia), y publicar un delta entre dos posiciones
+ *
+ * Las posiciones son de media partida; los deltas entre posiciones al azar
+ * cambian mas fichas que los de un turno real, asi que son un techo
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkEstadoJuego {
+    private static final int POSICIONES = 256;
+    
+    private Partida[] partidas;
+    private Partida receptora;
+    private SincronizadorEstado emisor;
+    private SincronizadorEstado receptor;
+    private CodificadorMensajes codificador;
+    private DecodificadorMensajes decodificador;
+    private byte[][] tramas;
+    private long bytesCompletos;
+    private long bytesDeltas;
+    private long deltas;
+    private PrintStream salidaOriginal;
+    private int indice;
+    
+    @Setup
+    public void preparar() throws IOException {
+        // Crear las partidas imprime en consola: se descarta
+        salidaOriginal = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        
+        PosicionesMedioJuego medioJuego = new PosicionesMedioJuego(POSICIONES, 11, 0, 2);
+        partidas = new Partida[POSICIONES];
+        tramas = new byte[POSICIONES][];
+        codificador = new CodificadorMensajes();
+        decodificador = new DecodificadorMensajes();
+        for (int i = 0; i < POSICIONES; i++) {
+            partidas[i] = nuevaPartida(i + 1);
+            partidas[i].restaurarEstado(medioJuego.posiciones[i]);
+            EstadoCompacto estado = partidas[i].capturarSincronizacion();
+            int longitud = codificador.codificar(MensajeJuego.estadoCompleto(MensajesEjemplo.EMISOR, i + 1,
+                estado.getFichasBajas(), estado.getFichasAltas(), estado.getControl()));
+            // Sin la longitud (un byte: el cuerpo es menor de 128), como lo recibe ConexionPeerNio
+            int cuerpo = codificador.getInicio() + 1;
+            tramas[i] = Arrays.copyOfRange(codificador.getBuffer(), cuerpo, codificador.getInicio() + longitud);
+            bytesCompletos += longitud;
+        }
+        receptora = nuevaPartida(0);
+        emisor = new SincronizadorEstado();
+        receptor = new SincronizadorEstado();
+    }
+    
+    @TearDown
+    public void terminar() {
+        System.setOut(salidaOriginal);
+        System.out.println(String.format("%n[BENCHMARK] Estado completo: %.1f bytes por trama",
+            (double) bytesCompletos / POSICIONES));
+        if (deltas > 0) {
+            System.out.println(String.format("[BENCHMARK] Delta: %.1f bytes por trama",
+                (double) bytesDeltas / deltas));
+        }
+    }
+    
+    private static Partida nuevaPartida(int id) {
+        Partida partida = new Partida(id);
+        partida.desuscribir(partida.getRegistroJSON());
+        partida.agregarJugador(new Jugador(1, "J1", TablasTablero.COLORES[0]));
+        partida.agregarJugador(new Jugador(2, "J2", TablasTablero.COLORES[2]));
+        partida.iniciarPartida();
+        return partida;
+    }
+    
+    @Benchmark
+    public int codificarCompleto() throws IOException {
+        EstadoCompacto estado = partidas[indice++ & (POSICIONES - 1)].capturarSincronizacion();
+        return codificador.codificar(MensajeJuego.estadoCompleto(MensajesEjemplo.EMISOR, indice,
+            estado.getFichasBajas(), estado.getFichasAltas(), estado.getControl()));
+    }
+    
+    @Benchmark
+    public boolean decodificarYRestaurar() throws IOException {
+        byte[] trama = tramas[indice++ & (POSICIONES - 1)];
+        return receptor.aplicar(decodificador.decodificar(trama, 0, trama.length), receptora);
+    }
+    
+    @Benchmark
+    public int publicarDelta() throws IOException {
+        int longitud = codificador.codificar(
+            emisor.publicar(partidas[indice++ & (POSICIONES - 1)], MensajesEjemplo.EMISOR));
+        bytesDeltas += longitud;
+        deltas++;
+        return longitud;
+    }
+}
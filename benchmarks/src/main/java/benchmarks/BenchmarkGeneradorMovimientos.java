@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import modelo.EstadoCompacto;
+import modelo.GeneradorMovimientos;
+import modelo.Tablero;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Generacion de movimientos legales sobre posiciones de media partida
+ * Con -prof gc, gc.alloc.rate.norm debe quedar en 0 B/op
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkGeneradorMovimientos {
+    private static final int POSICIONES = 1024;
+    
+    private GeneradorMovimientos generador;
+    private EstadoCompacto[] posiciones;
+    private int[] dados;
+    private int[] movimientos;
+    private int indice;
+    
+    @Setup
+    public void preparar() {
+        generador = new GeneradorMovimientos(new Tablero());
+        movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        PosicionesMedioJuego medioJuego = new PosicionesMedioJuego(POSICIONES, 7, 0, 1);
+        posiciones = medioJuego.posiciones;
+        dados = medioJuego.dados;
+    }
+    
+    @Benchmark
+    public void generar(Blackhole bh) {
+        int i = indice++ & (POSICIONES - 1);
+        int cantidad = generador.generar(posiciones[i], dados[i], movimientos);
+        bh.consume(cantidad);
+        bh.consume(movimientos);
+    }
+    
+    @Benchmark
+    public void generarPremio(Blackhole bh) {
+        int i = indice++ & (POSICIONES - 1);
+        bh.consume(generador.generarPremio(posiciones[i], 20, movimientos));
+    }
+}
@@ -0,0 +1,129 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import modelo.EstadoCompacto;
+import modelo.GeneradorMovimientos;
+import modelo.Jugador;
+import modelo.NucleoReglas;
+import modelo.Partida;
+import modelo.TablasTablero;
+import modelo.Tablero;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Caminos calientes de la partida de objetos: fichas disponibles, cambio
+ * de turno y aplicar un movimiento, comparados con el nucleo de reglas
+ * sobre EstadoCompacto
+ *
+ * aplicarMovimiento restaura antes la posicion para no salirse de la
+ * partida: su costo incluye un restaurarEstado, que se mide aparte
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkPartida {
+    private static final int POSICIONES = 256;
+    
+    private Partida partida;
+    private EstadoCompacto[] posiciones;
+    private int[] fichas;
+    private int[] dados;
+    private Jugador[] jugadores;
+    private EstadoCompacto trabajo;
+    private PrintStream salidaOriginal;
+    private int indice;
+    
+    @Setup
+    public void preparar() {
+        partida = nuevaPartida(0);
+        // El registro JSON crece con cada movimiento: fuera del benchmark
+        partida.desuscribir(partida.getRegistroJSON());
+        trabajo = new EstadoCompacto();
+        
+        // Solo posiciones con un movimiento legal; se guarda el primero
+        PosicionesMedioJuego medioJuego = new PosicionesMedioJuego(4 * POSICIONES, 11, 0, 1, 2, 3);
+        GeneradorMovimientos generador = new GeneradorMovimientos(new Tablero());
+        int[] movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        posiciones = new EstadoCompacto[POSICIONES];
+        fichas = new int[POSICIONES];
+        dados = new int[POSICIONES];
+        int cantidad = 0;
+        for (int i = 0; i < medioJuego.posiciones.length && cantidad < POSICIONES; i++) {
+            EstadoCompacto estado = medioJuego.posiciones[i];
+            if (estado.getGanador() < 0 && generador.generar(estado, medioJuego.dados[i], movimientos) > 0) {
+                posiciones[cantidad] = estado;
+                fichas[cantidad] = GeneradorMovimientos.ficha(movimientos[0]);
+                dados[cantidad] = medioJuego.dados[i];
+                cantidad++;
+            }
+        }
+        if (cantidad < POSICIONES) {
+            throw new IllegalStateException("Posiciones con movimiento insuficientes: " + cantidad);
+        }
+        
+        // Jugadores de muchas partidas distintas para getFichasDisponibles
+        jugadores = new Jugador[POSICIONES];
+        for (int p = 0; p < POSICIONES / 4; p++) {
+            Partida otra = nuevaPartida(p + 1);
+            otra.restaurarEstado(posiciones[p]);
+            for (int j = 0; j < 4; j++) {
+                jugadores[p * 4 + j] = otra.getJugadores().get(j);
+            }
+        }
+        
+        // cambiarTurno imprime una linea: se descarta para no medir la consola
+        salidaOriginal = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+    
+    @TearDown
+    public void terminar() {
+        System.setOut(salidaOriginal);
+    }
+    
+    private static Partida nuevaPartida(int id) {
+        Partida partida = new Partida(id);
+        for (int j = 0; j < 4; j++) {
+            partida.agregarJugador(new Jugador(j + 1, "J" + (j + 1), TablasTablero.COLORES[j]));
+        }
+        partida.iniciarPartida();
+        return partida;
+    }
+    
+    @Benchmark
+    public void getFichasDisponibles(Blackhole bh) {
+        int i = indice++ & (POSICIONES - 1);
+        bh.consume(jugadores[i].getFichasDisponibles(dados[i]));
+    }
+    
+    @Benchmark
+    public void cambiarTurno(Blackhole bh) {
+        partida.cambiarTurno();
+        bh.consume(partida.getTurnoActual());
+    }
+    
+    @Benchmark
+    public void restaurarEstado() {
+        partida.restaurarEstado(posiciones[indice++ & (POSICIONES - 1)]);
+    }
+    
+    @Benchmark
+    public long aplicarMovimiento() {
+        int i = indice++ & (POSICIONES - 1);
+        partida.restaurarEstado(posiciones[i]);
+        return partida.aplicarMovimiento(partida.fichaEnIndice(fichas[i]), dados[i]);
+    }
+    
+    @Benchmark
+    public long nucleoMover() {
+        int i = indice++ & (POSICIONES - 1);
+        trabajo.copiarDe(posiciones[i]);
+        return NucleoReglas.mover(trabajo, fichas[i], dados[i]);
+    }
+}
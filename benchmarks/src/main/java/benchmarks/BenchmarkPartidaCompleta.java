@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import modelo.EstadoCompacto;
+import modelo.FuenteDadosBloque;
+import org.openjdk.jmh.annotations.*;
+import simulacion.ElectorAleatorio;
+import simulacion.ElectorMovimiento;
+import simulacion.MotorSimulacion;
+
+/**
+ * Partidas completas por segundo en un hilo con MotorSimulacion
+ * Es la cifra que limita al simulador Monte Carlo y a los playouts de MCTS
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkPartidaCompleta {
+    @Param({"2", "4"})
+    private int jugadores;
+    
+    private MotorSimulacion motor;
+    private FuenteDadosBloque dados;
+    private EstadoCompacto inicial;
+    private EstadoCompacto estado;
+    
+    @Setup
+    public void preparar() {
+        SplittableRandom random = new SplittableRandom(42);
+        ElectorMovimiento[] electores = new ElectorMovimiento[jugadores];
+        int[] colores = new int[jugadores];
+        for (int i = 0; i < jugadores; i++) {
+            electores[i] = new ElectorAleatorio(random.split());
+            colores[i] = i;
+        }
+        motor = new MotorSimulacion(electores);
+        dados = new FuenteDadosBloque(42);
+        inicial = EstadoCompacto.inicial(colores);
+        estado = new EstadoCompacto();
+    }
+    
+    @Benchmark
+    public int jugarPartida() {
+        estado.copiarDe(inicial);
+        return motor.jugarPartida(estado, dados, null);
+    }
+}
@@ -0,0 +1,89 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import modelo.Casilla;
+import modelo.Ficha;
+import modelo.Jugador;
+import modelo.Partida;
+import modelo.TablasTablero;
+import modelo.Tablero;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Operaciones del tablero de objetos: mover una ficha (con el indice de
+ * ocupacion y las barreras) y consultar si una casilla es barrera
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BenchmarkTablero {
+    private static final int POSICIONES = 16;
+    private static final int CASILLAS = 1024;
+    private static final int PASOS = 1024;
+    
+    private Tablero tablero;
+    private Ficha[] fichas;
+    private int[] salidas;
+    private int[] pasos;
+    private Casilla[] casillas;
+    private int indice;
+    
+    @Setup
+    public void preparar() {
+        // Cuatro fichas de cada color repartidas desde su salida
+        tablero = new Tablero();
+        fichas = new Ficha[16];
+        salidas = new int[16];
+        for (int i = 0; i < fichas.length; i++) {
+            int color = i & 3;
+            fichas[i] = new Ficha(TablasTablero.COLORES[color]);
+            salidas[i] = TablasTablero.salida(color);
+            tablero.sacarFicha(fichas[i], salidas[i]);
+            tablero.moverFicha(fichas[i], (i >> 2) * 9);
+        }
+        
+        java.util.SplittableRandom random = new java.util.SplittableRandom(7);
+        pasos = new int[PASOS];
+        for (int i = 0; i < PASOS; i++) {
+            pasos[i] = random.nextInt(1, 7);
+        }
+        
+        // Casillas de tableros reales de media partida a cuatro jugadores
+        PosicionesMedioJuego medioJuego = new PosicionesMedioJuego(POSICIONES, 7, 0, 1, 2, 3);
+        List<Casilla> todas = new ArrayList<>();
+        for (int p = 0; p < POSICIONES; p++) {
+            Partida partida = new Partida(p);
+            for (int j = 0; j < 4; j++) {
+                partida.agregarJugador(new Jugador(j + 1, "J" + (j + 1), TablasTablero.COLORES[j]));
+            }
+            partida.restaurarEstado(medioJuego.posiciones[p]);
+            todas.addAll(partida.getTablero().getCasillas());
+        }
+        casillas = todas.subList(0, CASILLAS).toArray(new Casilla[0]);
+    }
+    
+    @Benchmark
+    public void moverFicha(Blackhole bh) {
+        int i = indice++;
+        Ficha ficha = fichas[i & 15];
+        tablero.moverFicha(ficha, pasos[i & (PASOS - 1)]);
+        if (ficha.isEnMeta()) {
+            // Vuelve a su salida para que el tablero no se vacie
+            ficha.setEnMeta(false);
+            ficha.setPosicion(salidas[i & 15]);
+            tablero.colocarFicha(ficha);
+        }
+        bh.consume(ficha.getPosicion());
+    }
+    
+    @Benchmark
+    public boolean verificarBarrera() {
+        return casillas[indice++ & (CASILLAS - 1)].verificarBarrera();
+    }
+}
@@ -0,0 +1,109 @@
+package benchmarks;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compara dos resultados JMH en JSON (-rf json) y falla si algo empeora
+ *
+ * Uso: java -cp benchmarks/target/benchmarks.jar benchmarks.ComparadorResultados
+ *          base.json nuevo.json [tolerancia %]
+ *
+ * Con Mode.Throughput empeorar es bajar; con los demas modos, subir. Si los
+ * resultados traen -prof gc tambien se compara gc.alloc.rate.norm, con unos
+ * bytes de margen para que el ruido alrededor de 0 B/op no cuente
+ * Termina con codigo 1 si algun benchmark empeora mas que la tolerancia
+ */
+public class ComparadorResultados {
+    private static final double TOLERANCIA_POR_DEFECTO = 10.0;
+    private static final double MARGEN_BYTES = 8.0;
+    private static final String ASIGNACION = "gc.alloc.rate.norm";
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: ComparadorResultados base.json nuevo.json [tolerancia %]");
+            System.exit(2);
+        }
+        double tolerancia = (args.length > 2 ? Double.parseDouble(args[2]) : TOLERANCIA_POR_DEFECTO) / 100.0;
+        Map<String, JsonObject> base = leer(args[0]);
+        Map<String, JsonObject> nuevo = leer(args[1]);
+        
+        int regresiones = 0;
+        for (Map.Entry<String, JsonObject> entrada : nuevo.entrySet()) {
+            JsonObject anterior = base.get(entrada.getKey());
+            if (anterior == null) {
+                System.out.println("[BENCHMARK] " + entrada.getKey() + ": sin base");
+                continue;
+            }
+            JsonObject actual = entrada.getValue();
+            boolean mayorEsMejor = actual.get("mode").getAsString().equals("thrpt");
+            JsonObject metricaBase = anterior.getAsJsonObject("primaryMetric");
+            JsonObject metricaNueva = actual.getAsJsonObject("primaryMetric");
+            double puntajeBase = metricaBase.get("score").getAsDouble();
+            double puntajeNuevo = metricaNueva.get("score").getAsDouble();
+            double cambio = (puntajeNuevo - puntajeBase) / puntajeBase;
+            boolean empeora = mayorEsMejor ? cambio < -tolerancia : cambio > tolerancia;
+            
+            String linea = String.format("[BENCHMARK] %s: %.3f -> %.3f %s (%+.1f%%)",
+                entrada.getKey(), puntajeBase, puntajeNuevo,
+                metricaNueva.get("scoreUnit").getAsString(), cambio * 100);
+            
+            double asignacionBase = asignacion(anterior);
+            double asignacionNueva = asignacion(actual);
+            if (!Double.isNaN(asignacionBase) && !Double.isNaN(asignacionNueva)) {
+                linea += String.format("  asignacion %.0f -> %.0f B/op", asignacionBase, asignacionNueva);
+                if (asignacionNueva > asignacionBase * (1 + tolerancia) + MARGEN_BYTES) {
+                    empeora = true;
+                }
+            }
+            if (empeora) {
+                linea += "  REGRESION";
+                regresiones++;
+            }
+            System.out.println(linea);
+        }
+        
+        System.out.println("[BENCHMARK] " + regresiones + " regresiones de " + nuevo.size() + " benchmarks");
+        if (regresiones > 0) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Lee un resultado JMH, indexado por benchmark y parametros
+     */
+    private static Map<String, JsonObject> leer(String archivo) throws IOException {
+        Map<String, JsonObject> resultados = new LinkedHashMap<>();
+        try (Reader lector = Files.newBufferedReader(Paths.get(archivo))) {
+            for (JsonElement elemento : JsonParser.parseReader(lector).getAsJsonArray()) {
+                JsonObject resultado = elemento.getAsJsonObject();
+                String clave = resultado.get("benchmark").getAsString();
+                if (resultado.has("params")) {
+                    clave += resultado.get("params").toString();
+                }
+                resultados.put(clave, resultado);
+            }
+        }
+        return resultados;
+    }
+    
+    private static double asignacion(JsonObject resultado) {
+        JsonObject secundarias = resultado.getAsJsonObject("secondaryMetrics");
+        if (secundarias == null) {
+            return Double.NaN;
+        }
+        for (Map.Entry<String, JsonElement> metrica : secundarias.entrySet()) {
+            if (metrica.getKey().endsWith(ASIGNACION)) {
+                return metrica.getValue().getAsJsonObject().get("score").getAsDouble();
+            }
+        }
+        return Double.NaN;
+    }
+}
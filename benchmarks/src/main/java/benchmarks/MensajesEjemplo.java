@@ -0,0 +1,50 @@
+package benchmarks;
+
+import red.MensajeJuego;
+import red.MensajeJuego.TipoMensaje;
+
+/**
+ * Mensajes con el contenido que el juego envia para cada tipo
+ */
+final class MensajesEjemplo {
+    static final String EMISOR = "Jugador1";
+
+    private MensajesEjemplo() {
+    }
+
+    /**
+     * El emisor es la misma instancia en todos, como el nombre del jugador
+     * en P2PNetworkManager; el contenido de texto es una cadena nueva, como
+     * la que se arma para cada mensaje
+     */
+    static MensajeJuego crear(TipoMensaje tipo) {
+        switch (tipo) {
+            case MOVIMIENTO: return MensajeJuego.movimiento(EMISOR, 1, 3, 5);
+            case CAMBIO_TURNO: return MensajeJuego.cambioTurno(EMISOR, 2);
+            case TIRADA_DADO: return MensajeJuego.tiradaDado(EMISOR, 5);
+            case INICIO_JUEGO: return MensajeJuego.inicioJuego(EMISOR);
+            // Dos jugadores con tres fichas fuera de casa, turno del segundo
+            case ESTADO_JUEGO: return MensajeJuego.estadoCompleto(EMISOR, 42,
+                0x0000_0000_2A00_1706L, 0L, 0x0000_0000_0080_2001L);
+            // Marca de un latido a los dos minutos de partida
+            case PING: return MensajeJuego.ping(120_000_000L);
+            case PONG: return MensajeJuego.pong(120_000_000L);
+            default: return new MensajeJuego(tipo, EMISOR, new String(contenido(tipo)));
+        }
+    }
+
+    /**
+     * Contenido de los tipos que viajan como texto
+     */
+    static String contenido(TipoMensaje tipo) {
+        switch (tipo) {
+            case SALUDO: return "Conexion establecida";
+            case CAPTURA: return "jugador:1,ficha:6";
+            case CHAT: return "Buena jugada, te toca";
+            case JUGADOR_ENTRA: return "jugador:2";
+            case JUGADOR_SALE: return "jugador:2";
+            case FIN_JUEGO: return "ganador:1";
+            default: return "";
+        }
+    }
+}
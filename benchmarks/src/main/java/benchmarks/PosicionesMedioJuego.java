@@ -0,0 +1,45 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+import modelo.EstadoCompacto;
+import modelo.FuenteDadosSemilla;
+import simulacion.ElectorAleatorio;
+import simulacion.ElectorMovimiento;
+import simulacion.MotorSimulacion;
+
+/**
+ * Posiciones reales de media partida para los benchmarks
+ * Avanza partidas aleatorias un numero variable de tiradas, asi los
+ * benchmarks no miden solo el tablero inicial. Misma semilla, mismas posiciones
+ */
+final class PosicionesMedioJuego {
+    final EstadoCompacto[] posiciones;
+    final int[] dados;
+
+    /**
+     * @param cantidad Numero de posiciones (potencia de 2 para indexar con mascara)
+     * @param colores Color de cada asiento
+     * @param semilla Semilla de dados y electores
+     */
+    PosicionesMedioJuego(int cantidad, long semilla, int... colores) {
+        posiciones = new EstadoCompacto[cantidad];
+        dados = new int[cantidad];
+
+        SplittableRandom random = new SplittableRandom(semilla);
+        FuenteDadosSemilla fuente = new FuenteDadosSemilla(semilla);
+        ElectorMovimiento[] electores = new ElectorMovimiento[colores.length];
+        for (int i = 0; i < electores.length; i++) {
+            electores[i] = new ElectorAleatorio(random.split());
+        }
+        MotorSimulacion motor = new MotorSimulacion(electores);
+        for (int i = 0; i < cantidad; i++) {
+            EstadoCompacto estado = EstadoCompacto.inicial(colores);
+            int tiradas = random.nextInt(20, 120);
+            for (int t = 0; t < tiradas && estado.getGanador() < 0; t++) {
+                motor.jugarTirada(estado, fuente.lanzar(), null);
+            }
+            posiciones[i] = estado;
+            dados[i] = fuente.lanzar();
+        }
+    }
+}
@@ -4,7 +4,18 @@ import modelo.*;
 import vista.PantallaPartida;
 import controlador.ControladorPartida;
 import controlador.ControladorRed;
+import ia.BotExpectiminimax;
+import ia.BotMCTS;
+import ia.GeneradorTablaFinales;
+import ia.TablaFinales;
 import red.DescubrimientoRed;
+import red.ModoEjecucion;
+import simulacion.EstadisticasSimulacion;
+import simulacion.SimuladorMonteCarlo;
+import servidor.MedidorCarga;
+import servidor.ServidorPartidas;
+import utilidades.AnalizadorRegistros;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
 
@@ -15,11 +26,34 @@ import java.util.Scanner;
 public class Parchis {
     
     public static void main(String[] args) {
+        // --hilos-virtuales: lectores de peers y descubrimiento en hilos virtuales
+        if (tieneOpcion(args, "--hilos-virtuales")) {
+            ModoEjecucion.setPredeterminado(ModoEjecucion.VIRTUAL);
+        }
+        if (args.length > 0 && args[0].equals("--simular")) {
+            ejecutarSimulacion(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--servidor")) {
+            ejecutarServidor(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--carga-servidor")) {
+            medirCargaServidor(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--analizar")) {
+            analizarRegistros(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--generar-finales")) {
+            generarFinales(args);
+            return;
+        }
+        
         Scanner scanner = new Scanner(System.in);
         PantallaPartida vista = new PantallaPartida();
         
-        Ficha.resetearContador();
-        
         System.out.println("\n============================================================");
         System.out.println("|                                                          |");
         System.out.println("|                 PARCHIS STAR                             |");
@@ -29,6 +63,7 @@ public class Parchis {
         System.out.println("\n=== SELECCION DE MODO ===");
         System.out.println("1. Juego Local (sin red)");
         System.out.println("2. Juego Online (conexion automatica )");
+        System.out.println("3. Juego Local contra la computadora");
         System.out.print("Selecciona una opcion: ");
         
         int modoJuego = scanner.nextInt();
@@ -37,7 +72,12 @@ public class Parchis {
         ControladorRed controladorRed = null;
         int jugadorLocalId = 1;
         
-        Partida partida = new Partida(1);
+        // --semilla N repite las tiradas de una partida registrada
+        Long semilla = leerSemilla(args);
+        Partida partida = (semilla != null) 
+            ? new Partida(1, new FuenteDadosSemilla(semilla)) 
+            : new Partida(1);
+        System.out.println("[DADOS] Semilla de la partida: " + partida.getDado().getFuente().getSemilla());
         
         if (modoJuego == 2) {
             System.out.println("\n=== MODO ONLINE AUTOMATICO MULTI-SUBNET ===");
@@ -133,6 +173,10 @@ public class Parchis {
                 jugadorLocalId = 1;
                 controladorRed = new ControladorRed(nombreLocal, puertoBase, 
                                                    partida.getTablero(), jugadorLocalId);
+                // --nio atiende la conexion con un hilo de seleccion
+                if (tieneOpcion(args, "--nio")) {
+                    controladorRed.usarTransporteNio(1);
+                }
                 
                 try {
                     System.out.println("\n[ANFITRION] Iniciando servidor P2P en puerto " + puertoBase + "...");
@@ -211,6 +255,10 @@ public class Parchis {
                 jugadorLocalId = 2;
                 controladorRed = new ControladorRed(nombreLocal, puertoBase, 
                                                    partida.getTablero(), jugadorLocalId);
+                // --nio atiende la conexion con un hilo de seleccion
+                if (tieneOpcion(args, "--nio")) {
+                    controladorRed.usarTransporteNio(1);
+                }
                 
                 try {
                     System.out.println("\n[CLIENTE] Iniciando servidor local en puerto " + (puertoBase + 1) + "...");
@@ -290,7 +338,7 @@ public class Parchis {
             }
             
         } else {
-            // Modo local sin cambios
+            // Modo local: dos jugadores en la misma consola, o uno contra el bot
             System.out.println("\n=== CONFIGURACION DE JUGADORES ===\n");
             
             System.out.print("Ingresa el nombre del Jugador 1 (Amarillo): ");
@@ -298,8 +346,14 @@ public class Parchis {
             Jugador jugador1 = new Jugador(1, nombre1, "Amarillo");
             partida.agregarJugador(jugador1);
             
-            System.out.print("Ingresa el nombre del Jugador 2 (Azul): ");
-            String nombre2 = scanner.nextLine();
+            String nombre2;
+            if (modoJuego == 3) {
+                nombre2 = "Computadora";
+                System.out.println("Jugador 2 (Azul): " + nombre2);
+            } else {
+                System.out.print("Ingresa el nombre del Jugador 2 (Azul): ");
+                nombre2 = scanner.nextLine();
+            }
             Jugador jugador2 = new Jugador(2, nombre2, "Azul");
             partida.agregarJugador(jugador2);
         }
@@ -308,6 +362,29 @@ public class Parchis {
         
         ControladorPartida controlador = new ControladorPartida(partida, vista, scanner, jugadorLocalId);
         
+        // --finales archivo: juego exacto y probabilidad de victoria en los finales
+        TablaFinales finales = abrirFinales(args);
+        controlador.setTablaFinales(finales);
+        
+        // --mcts juega contra el bot MCTS; --pistas muestra su confianza en cada eleccion
+        BotMCTS botMCTS = null;
+        if (tieneOpcion(args, "--mcts") || tieneOpcion(args, "--pistas")) {
+            botMCTS = new BotMCTS();
+            botMCTS.setTablaFinales(finales);
+        }
+        if (modoJuego == 3) {
+            if (tieneOpcion(args, "--mcts")) {
+                controlador.asignarBot(2, botMCTS);
+            } else {
+                BotExpectiminimax bot = new BotExpectiminimax();
+                bot.setTablaFinales(finales);
+                controlador.asignarBot(2, bot);
+            }
+        }
+        if (tieneOpcion(args, "--pistas")) {
+            controlador.setAsistente(botMCTS);
+        }
+        
         if (controladorRed != null) {
             controlador.setControladorRed(controladorRed);
             System.out.println("\nRed P2P activada - Eres el Jugador " + jugadorLocalId);
@@ -325,7 +402,7 @@ public class Parchis {
         boolean mostrarTableroEspera = true;
         
         while (juegoActivo && turnosJugados < MAX_TURNOS) {
-            if (controladorRed != null && controladorRed.getPeersConectados().isEmpty()) {
+            if (controladorRed != null && !controladorRed.hayOponente()) {
                 System.out.println("\n================================================");
                 System.out.println("  OPONENTE DESCONECTADO");
                 System.out.println("  La partida terminara...");
@@ -372,9 +449,148 @@ public class Parchis {
             System.out.println("\nConexiones de red cerradas");
         }
         
+        if (botMCTS != null) {
+            botMCTS.cerrar();
+        }
+        
         scanner.close();
         System.out.println("\n================================================");
         System.out.println("   Gracias por jugar Parchis Star");
         System.out.println("================================================\n");
     }
+    
+    /**
+     * Busca la opcion --semilla en los argumentos
+     * @return Semilla indicada o null si no se paso
+     */
+    private static Long leerSemilla(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--semilla")) {
+                return Long.parseLong(args[i + 1]);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Mapea la tabla indicada con --finales
+     * @return Tabla abierta, o null si no se paso la opcion o no se pudo abrir
+     */
+    private static TablaFinales abrirFinales(String[] args) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--finales")) {
+                try {
+                    return TablaFinales.abrir(Paths.get(args[i + 1]));
+                } catch (java.io.IOException e) {
+                    System.err.println("[FINALES] No se pudo abrir la tabla: " + e.getMessage());
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+    
+    private static boolean tieneOpcion(String[] args, String opcion) {
+        for (String arg : args) {
+            if (arg.equals(opcion)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Modo sin consola: --simular [partidas] [semilla] [hilos]
+     * Juega partidas entre electores aleatorios en todos los nucleos
+     * y reporta partidas por segundo
+     */
+    private static void ejecutarSimulacion(String[] args) {
+        long partidas = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000L;
+        long semilla = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        int hilos = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        
+        SimuladorMonteCarlo simulador = new SimuladorMonteCarlo(hilos, 
+            SimuladorMonteCarlo.electoresAleatorios(2));
+        
+        System.out.println("[SIMULACION] " + partidas + " partidas, semilla " + semilla + 
+                         ", " + simulador.getParalelismo() + " hilos");
+        EstadisticasSimulacion estadisticas = simulador.simular(partidas, semilla);
+        simulador.cerrar();
+        System.out.println(estadisticas);
+    }
+    
+    /**
+     * Estadisticas de registros guardados: --analizar [directorio] [hilos]
+     * Lee todos los registro_partida_*.json del directorio en paralelo
+     */
+    private static void analizarRegistros(String[] args) {
+        String directorio = args.length > 1 ? args[1] : ".";
+        int hilos = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        
+        AnalizadorRegistros analizador = new AnalizadorRegistros(hilos);
+        System.out.println("[ANALISIS] " + directorio + ", " + analizador.getParalelismo() + " hilos");
+        try {
+            System.out.println(analizador.analizar(Paths.get(directorio)));
+        } catch (java.io.IOException e) {
+            System.err.println("[ANALISIS] No se pudo leer el directorio: " + e.getMessage());
+        } finally {
+            analizador.cerrar();
+        }
+    }
+    
+    /**
+     * Genera la tabla de finales: --generar-finales archivo [color0 color1]
+     * Los colores son los de los dos asientos de la partida (por defecto
+     * Amarillo y Azul, como en el juego local)
+     */
+    private static void generarFinales(String[] args) {
+        String archivo = args.length > 1 ? args[1] : "finales.bin";
+        int color0 = TablasTablero.indiceColor(args.length > 2 ? args[2] : "Amarillo");
+        int color1 = TablasTablero.indiceColor(args.length > 3 ? args[3] : "Azul");
+        try {
+            GeneradorTablaFinales.generar(Paths.get(archivo), color0, color1);
+        } catch (java.io.IOException e) {
+            System.err.println("[FINALES] No se pudo escribir la tabla: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Modo servidor sin consola: --servidor [puerto] [hilosNio]
+     * Aloja muchas mesas en un solo proceso y muestra su estado cada 30 segundos
+     * Con hilosNio > 0 usa el transporte NIO en lugar de un hilo virtual por conexion
+     */
+    private static void ejecutarServidor(String[] args) {
+        int puerto = args.length > 1 ? Integer.parseInt(args[1]) : 7000;
+        int hilosNio = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        ServidorPartidas servidor = new ServidorPartidas(puerto, hilosNio);
+        
+        try {
+            servidor.iniciar();
+            while (servidor.estaActivo()) {
+                Thread.sleep(30000);
+                System.out.println(servidor.resumen());
+            }
+        } catch (java.io.IOException e) {
+            System.err.println("[SERVIDOR] No se pudo iniciar: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            servidor.cerrar();
+        }
+    }
+    
+    /**
+     * Medicion de memoria e hilos por mesa: --carga-servidor [mesas] [hilosNio]
+     */
+    private static void medirCargaServidor(String[] args) {
+        int mesas = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int hilosNio = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+        try {
+            MedidorCarga.medir(mesas, hilosNio);
+        } catch (java.io.IOException e) {
+            System.err.println("[SERVIDOR] Error en la medicion: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
\ No newline at end of file
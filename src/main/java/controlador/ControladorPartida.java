@@ -8,7 +8,11 @@ package controlador;
 import modelo.*;
 import vista.PantallaPartida;
 import utilidades.RegistroPartidaJSON;
-import java.util.List;
+import ia.BotMCTS;
+import ia.JugadorAutomatico;
+import ia.TablaFinales;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -19,8 +23,16 @@ public class ControladorPartida {
     private Ficha ultimaFichaMovida;
     private ControladorRed controladorRed;
     private int jugadorLocalId;
-    private int casillasPremio;
     private AtomicBoolean procesandoPremio;
+    private Map<Integer, JugadorAutomatico> bots;
+    private BotMCTS asistente;
+    private TablaFinales finales;
+    // Opciones del turno: se generan sobre estos objetos sin crear listas
+    private final GeneradorMovimientos generador;
+    private final EstadoCompacto estadoTurno;
+    private final int[] movimientos;
+    // Aparte de las opciones: un movimiento remoto no pisa las del turno en curso
+    private final int[] movimientosRemotos;
     
     public ControladorPartida(Partida partida, PantallaPartida vista, Scanner scanner, int jugadorLocalId) {
         this.partida = partida;
@@ -29,13 +41,54 @@ public class ControladorPartida {
         this.ultimaFichaMovida = null;
         this.controladorRed = null;
         this.jugadorLocalId = jugadorLocalId;
-        this.casillasPremio = 0;
         this.procesandoPremio = new AtomicBoolean(false);
+        this.bots = new HashMap<>();
+        this.asistente = null;
+        this.finales = null;
+        this.generador = new GeneradorMovimientos(partida.getTablero());
+        this.estadoTurno = new EstadoCompacto();
+        this.movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        this.movimientosRemotos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        partida.suscribir(vista);
     }
     
     public void setControladorRed(ControladorRed controladorRed) {
         this.controladorRed = controladorRed;
         controladorRed.setControladorPartida(this);
+        partida.suscribir(controladorRed);
+    }
+    
+    /**
+     * Pone un bot en el asiento de un jugador
+     * El bot elige fichas y premios en lugar de leer del teclado
+     * @param jugadorId ID del jugador que controla el bot
+     * @param bot Bot que decide por ese jugador
+     */
+    public void asignarBot(int jugadorId, JugadorAutomatico bot) {
+        bots.put(jugadorId, bot);
+    }
+    
+    /**
+     * Activa las pistas para los jugadores humanos
+     * Antes de cada eleccion el asistente busca y la vista muestra
+     * la confianza de cada opcion
+     * @param asistente Bot MCTS que calcula la pista, o null para desactivarlas
+     */
+    public void setAsistente(BotMCTS asistente) {
+        this.asistente = asistente;
+    }
+    
+    /**
+     * Activa la probabilidad de victoria exacta en los finales
+     * Al inicio de cada turno cubierto por la tabla la vista la muestra
+     * @param finales Tabla de finales, o null para desactivarla
+     */
+    public void setTablaFinales(TablaFinales finales) {
+        this.finales = finales;
+    }
+    
+    private boolean esBot(Jugador jugador) {
+        return bots.containsKey(jugador.getIdJugador());
     }
     
     public boolean esTurnoLocal() {
@@ -55,14 +108,17 @@ public class ControladorPartida {
         }
         
         vista.mostrarTurnoActual(jugadorActual);
+        mostrarProbabilidadVictoria(jugadorActual);
         
         if (controladorRed != null) {
             System.out.println("\n*** ES TU TURNO ***");
         }
         
-        if (casillasPremio > 0) {
-            vista.mostrarMensaje("Tienes " + casillasPremio + " casillas de premio para usar!");
+        if (partida.getCasillasPremio() > 0) {
+            vista.mostrarMensaje("Tienes " + partida.getCasillasPremio() + " casillas de premio para usar!");
             aplicarPremio(jugadorActual);
+        } else if (esBot(jugadorActual)) {
+            lanzarDado();
         } else {
             vista.mostrarMensaje("Presiona ENTER para lanzar el dado");
             scanner.nextLine();
@@ -72,30 +128,38 @@ public class ControladorPartida {
     
     /**
      * Aplica el premio de casillas acumuladas 
+     * Las opciones salen de GeneradorMovimientos, que respeta las barreras
      */
     private void aplicarPremio(Jugador jugador) {
         procesandoPremio.set(true);
-        List<Ficha> fichasDisponibles = jugador.getFichasEnJuego();
+        estadoTurno.cargar(partida);
+        int opciones = generador.generarPremio(estadoTurno, partida.getCasillasPremio(), movimientos);
         
-        if (fichasDisponibles.isEmpty()) {
-            vista.mostrarMensaje("No tienes fichas en juego para usar el premio. Se pierde.");
-            casillasPremio = 0;
+        if (opciones == 0) {
+            vista.mostrarMensaje("No tienes fichas que puedan usar el premio. Se pierde.");
+            partida.setCasillasPremio(0);
             procesandoPremio.set(false);
             return;
         }
         
-        vista.mostrarMensaje("Selecciona una ficha para avanzar " + casillasPremio + " casillas:");
-        for (int i = 0; i < fichasDisponibles.size(); i++) {
-            Ficha f = fichasDisponibles.get(i);
+        vista.mostrarMensaje("Selecciona una ficha para avanzar " + partida.getCasillasPremio() + " casillas:");
+        for (int i = 0; i < opciones; i++) {
+            Ficha f = fichaDeOpcion(i);
             System.out.println((i + 1) + ". Ficha " + f.getIdFicha() + 
                              " - Posicion actual: " + f.getPosicion());
         }
         
-        int seleccion = solicitarSeleccionFicha(fichasDisponibles.size());
-        Ficha fichaSeleccionada = fichasDisponibles.get(seleccion - 1);
+        int seleccion;
+        if (esBot(jugador)) {
+            seleccion = elegirConBot(jugador, opciones, 0, partida.getCasillasPremio());
+        } else {
+            mostrarPista(opciones, 0, partida.getCasillasPremio());
+            seleccion = solicitarSeleccionFicha(opciones);
+        }
+        Ficha fichaSeleccionada = fichaDeOpcion(seleccion - 1);
         
-        moverFicha(fichaSeleccionada, casillasPremio, true);
-        casillasPremio = 0;
+        moverFicha(fichaSeleccionada, partida.getCasillasPremio());
+        partida.setCasillasPremio(0);
         procesandoPremio.set(false);
     }
     
@@ -113,29 +177,121 @@ public class ControladorPartida {
             controladorRed.enviarTiradaDado(valorDado);
         }
         
-        List<Ficha> fichasDisponibles = jugadorActual.getFichasDisponibles(valorDado);
+        estadoTurno.cargar(partida);
+        int opciones = generador.generar(estadoTurno, valorDado, movimientos);
         
-        if (fichasDisponibles.isEmpty()) {
+        if (opciones == 0) {
             vista.mostrarMensaje("No tienes fichas disponibles para mover. Pierdes el turno.");
             aplicarReglasDelTurno(valorDado);
             return;
         }
         
         vista.mostrarMensaje("Fichas disponibles para mover:");
-        for (int i = 0; i < fichasDisponibles.size(); i++) {
-            Ficha f = fichasDisponibles.get(i);
+        for (int i = 0; i < opciones; i++) {
+            Ficha f = fichaDeOpcion(i);
             String estado = f.isEnCasa() ? "En casa (saldra a casilla de salida)" : 
                            "Posicion actual: " + f.getPosicion();
             System.out.println((i + 1) + ". Ficha " + f.getIdFicha() + " - " + estado);
         }
         
-        int seleccion = solicitarSeleccionFicha(fichasDisponibles.size());
-        Ficha fichaSeleccionada = fichasDisponibles.get(seleccion - 1);
+        int seleccion;
+        if (esBot(jugadorActual)) {
+            seleccion = elegirConBot(jugadorActual, opciones, valorDado, 0);
+        } else {
+            mostrarPista(opciones, valorDado, 0);
+            seleccion = solicitarSeleccionFicha(opciones);
+        }
+        Ficha fichaSeleccionada = fichaDeOpcion(seleccion - 1);
         
-        moverFicha(fichaSeleccionada, valorDado, true);
+        moverFicha(fichaSeleccionada, valorDado);
         aplicarReglasDelTurno(valorDado);
     }
     
+    /**
+     * Pide al bot del jugador la ficha a mover
+     * El bot busca sobre una instantanea de la partida; si su movimiento
+     * no esta entre las opciones del turno se usa la primera
+     * @param opciones Movimientos generados en el buffer del turno
+     * @param premio Casillas de premio a usar, o 0 para una tirada normal
+     * @return Seleccion en base 1, igual que solicitarSeleccionFicha
+     */
+    private int elegirConBot(Jugador jugador, int opciones, int valorDado, int premio) {
+        JugadorAutomatico bot = bots.get(jugador.getIdJugador());
+        int movimiento = bot.elegirMovimiento(instantaneaParaElegir(premio), valorDado);
+        int opcion = opcionDeMovimiento(opciones, movimiento);
+        int seleccion = opcion >= 0 ? opcion + 1 : 1;
+        
+        System.out.println("[BOT] " + jugador.getNombre() + " elige la opcion " + seleccion + 
+                         " (" + bot.describirUltimaBusqueda() + ")");
+        return seleccion;
+    }
+    
+    /**
+     * Si hay tabla de finales y la posicion esta en ella, muestra la
+     * probabilidad de ganar del jugador en turno
+     */
+    private void mostrarProbabilidadVictoria(Jugador jugador) {
+        if (finales == null) {
+            return;
+        }
+        int asiento = partida.getJugadores().indexOf(jugador);
+        double probabilidad = finales.probabilidadVictoria(partida.capturarEstado(), asiento);
+        if (!Double.isNaN(probabilidad)) {
+            vista.mostrarProbabilidadVictoria(jugador, probabilidad);
+        }
+    }
+    
+    /**
+     * Si hay asistente, calcula y muestra la confianza de cada opcion
+     */
+    private void mostrarPista(int opciones, int valorDado, int premio) {
+        if (asistente == null || opciones < 2) {
+            return;
+        }
+        
+        asistente.elegirMovimiento(instantaneaParaElegir(premio), valorDado);
+        int[] sugeridos = asistente.getUltimosMovimientos();
+        double[] confianza = asistente.getUltimaConfianza();
+        double[] porOpcion = new double[opciones];
+        for (int i = 0; i < sugeridos.length; i++) {
+            int opcion = opcionDeMovimiento(opciones, sugeridos[i]);
+            if (opcion >= 0) {
+                porOpcion[opcion] += confianza[i];
+            }
+        }
+        vista.mostrarPista(porOpcion, asistente.describirUltimaBusqueda());
+    }
+    
+    private InstantaneaPartida instantaneaParaElegir(int premio) {
+        EstadoCompacto estado = partida.capturarEstado();
+        estado.setCasillasPremio(premio);
+        return InstantaneaPartida.desde(estado);
+    }
+    
+    /**
+     * Posicion entre las opciones del turno de la ficha de un movimiento
+     * @return Indice en base 0, o -1 si no esta entre las opciones
+     */
+    private int opcionDeMovimiento(int opciones, int movimiento) {
+        if (movimiento == InstantaneaPartida.SIN_MOVIMIENTO) {
+            return -1;
+        }
+        int ficha = GeneradorMovimientos.ficha(movimiento);
+        for (int i = 0; i < opciones; i++) {
+            if (GeneradorMovimientos.ficha(movimientos[i]) == ficha) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Ficha que mueve la opcion i del turno
+     */
+    private Ficha fichaDeOpcion(int opcion) {
+        return partida.fichaEnIndice(GeneradorMovimientos.ficha(movimientos[opcion]));
+    }
+    
     private int solicitarSeleccionFicha(int maxOpciones) {
         int seleccion = -1;
         while (seleccion < 1 || seleccion > maxOpciones) {
@@ -155,9 +311,10 @@ public class ControladorPartida {
     }
     
     /**
-     * Mueve una ficha en el tablero 
+     * Mueve una ficha con el nucleo de reglas de la partida
+     * La consola, el registro y la red se enteran como suscriptores
      */
-    public void moverFicha(Ficha ficha, int pasos, boolean enviarPorRed) {
+    public void moverFicha(Ficha ficha, int pasos) {
         if (ficha == null) {
             vista.mostrarMensaje("Error: Ficha no valida");
             return;
@@ -173,138 +330,55 @@ public class ControladorPartida {
             return;
         }
         
-        Jugador jugadorActual = partida.getTurnoActual();
-        Tablero tablero = partida.getTablero();
-        ReglasJuego reglas = partida.getReglas();
-        RegistroPartidaJSON registro = partida.getRegistroJSON();
-        
-        if (ficha.isEnCasa() && reglas.verificarSacarFichaConCinco(pasos)) {
-            ficha.setEnCasa(false);
-            int posicionSalida = obtenerPosicionSalida(jugadorActual.getColor());
-            ficha.setPosicion(posicionSalida);
-            
-            Casilla casillaSalida = tablero.getCasilla(posicionSalida);
-            casillaSalida.agregarFicha(ficha);
-            
-            vista.mostrarMensaje("Ficha sacada de casa a la posicion " + posicionSalida);
-            ultimaFichaMovida = ficha;
-            
-            registro.registrarSalidaCasa(jugadorActual.getNombre(), ficha.getIdFicha());
-            
-        } else if (!ficha.isEnCasa()) {
-            int posicionInicial = ficha.getPosicion();
-            
-            tablero.moverFicha(ficha, pasos);
-            vista.actualizarFicha(ficha);
-            ultimaFichaMovida = ficha;
-            
-            registro.registrarMovimiento(
-                jugadorActual.getNombre(),
-                ficha.getIdFicha(),
-                posicionInicial,
-                ficha.getPosicion()
-            );
-        }
-        
-        if (enviarPorRed && controladorRed != null) {
-            controladorRed.enviarMovimiento(jugadorActual, ficha, pasos);
-        }
-        
-        int premio = aplicarReglasDelJuego(ficha);
-        if (premio > 0) {
-            casillasPremio += premio;
+        long resultado = partida.aplicarMovimiento(ficha, pasos);
+        if (resultado == ResultadoMovimiento.NINGUNO) {
+            return;
         }
+        ultimaFichaMovida = ficha;
+        partida.setCasillasPremio(partida.getCasillasPremio() + ResultadoMovimiento.premio(resultado));
     }
     
     /**
      * Aplica movimiento recibido desde la red con validacion
      */
     public void aplicarMovimientoRemoto(int jugadorId, int fichaId, int pasos) {
-        Jugador jugador = null;
-        for (Jugador j : partida.getJugadores()) {
-            if (j.getIdJugador() == jugadorId) {
-                jugador = j;
-                break;
-            }
-        }
+        Jugador jugador = partida.buscarJugador(jugadorId);
         
         if (jugador == null) {
             System.err.println("[ERROR] Jugador no encontrado: " + jugadorId);
             return;
         }
         
-        Ficha ficha = null;
-        for (Ficha f : jugador.getFichas()) {
-            if (f.getIdFicha() == fichaId) {
-                ficha = f;
-                break;
-            }
-        }
+        Ficha ficha = partida.buscarFicha(fichaId);
         
-        if (ficha == null) {
+        if (ficha == null || ficha.getJugadorId() != jugadorId) {
             System.err.println("[ERROR] Ficha no encontrada: " + fichaId);
             return;
         }
         
         // Validar que el movimiento remoto sea legal
-        if (!validarMovimientoRemoto(ficha, pasos, jugador)) {
+        if (!validarMovimientoRemoto(ficha, pasos)) {
             System.err.println("[ERROR] Movimiento remoto invalido rechazado");
             return;
         }
         
-        moverFicha(ficha, pasos, false);
+        moverFicha(ficha, pasos);
     }
     
     /**
      * Valida que un movimiento recibido por red sea legal
+     * Misma definicion que las opciones locales: la ficha tiene que estar
+     * entre los movimientos que GeneradorMovimientos da a su jugador
+     * (barreras incluidas). Con 10 o 20 pasos es el uso de un premio
      */
-    private boolean validarMovimientoRemoto(Ficha ficha, int pasos, Jugador jugador) {
-        // Validar rango del dado
-        if (pasos < 1 || pasos > 6) {
+    private boolean validarMovimientoRemoto(Ficha ficha, int pasos) {
+        int indice = partida.indiceFicha(ficha);
+        if (indice < 0) {
             return false;
         }
-        
-        // No se puede mover una ficha en meta
-        if (ficha.isEnMeta()) {
-            return false;
-        }
-        
-        // Si esta en casa, solo puede salir con 5
-        if (ficha.isEnCasa() && pasos != 5) {
-            return false;
-        }
-        
-        // Validar que la nueva posicion sea valida
-        if (!ficha.isEnCasa()) {
-            int nuevaPosicion = ficha.getPosicion() + pasos;
-            if (nuevaPosicion < 0) {
-                return false;
-            }
-        }
-        
-        return true;
-    }
-    
-    private int obtenerPosicionSalida(String color) {
-        switch (color.toLowerCase()) {
-            case "amarillo": return 5;
-            case "azul": return 22;
-            case "rojo": return 39;
-            case "verde": return 56;
-            default: return 0;
-        }
-    }
-    
-    /**
-     * Aplica reglas y retorna casillas de premio
-     */
-    public int aplicarReglasDelJuego(Ficha ficha) {
-        ReglasJuego reglas = partida.getReglas();
-        Tablero tablero = partida.getTablero();
-        Jugador jugadorActual = partida.getTurnoActual();
-        RegistroPartidaJSON registro = partida.getRegistroJSON();
-        
-        return reglas.aplicar(jugadorActual, ficha, tablero, partida, registro);
+        estadoTurno.cargar(partida);
+        estadoTurno.setTurno(EstadoCompacto.jugadorDeFicha(indice));
+        return generador.esLegal(estadoTurno, indice, pasos, movimientosRemotos);
     }
     
     private void aplicarReglasDelTurno(int valorDado) {
@@ -325,15 +399,11 @@ public class ControladorPartida {
                         ultimaFichaMovida.getIdFicha()
                     );
                     
-                    ultimaFichaMovida.regresarACasa();
-                    Tablero tablero = partida.getTablero();
-                    Casilla casilla = tablero.getCasilla(ultimaFichaMovida.getPosicion());
-                    if (casilla != null) {
-                        casilla.removerFicha(ultimaFichaMovida);
-                    }
+                    // Quitar de la casilla antes de poner la posicion en -1
+                    partida.getTablero().enviarACasa(ultimaFichaMovida);
                 }
                 partida.reiniciarContadorSeis();
-                casillasPremio = 0;
+                partida.setCasillasPremio(0);
                 
                 Jugador jugadorAnterior = partida.getTurnoActual();
                 partida.cambiarTurno();
@@ -350,8 +420,10 @@ public class ControladorPartida {
                 vista.mostrarMensaje("Sacaste 6! Tienes un turno extra.");
                 
                 if (controladorRed == null || esTurnoLocal()) {
-                    vista.mostrarMensaje("Presiona ENTER para continuar");
-                    scanner.nextLine();
+                    if (!esBot(jugadorActual)) {
+                        vista.mostrarMensaje("Presiona ENTER para continuar");
+                        scanner.nextLine();
+                    }
                     iniciarTurno();
                 }
             }
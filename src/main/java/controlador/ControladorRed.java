@@ -9,13 +9,14 @@ import dispatcher.manejadores.*;
  * Controlador de red refactorizado con Dispatcher
 
  */
-public class ControladorRed implements EscuchaRed {
+public class ControladorRed implements EscuchaRed, EscuchaMovimientos {
     private P2PNetworkManager gestorRed;
     private Tablero tablero;
     private int jugadorLocalId;
     private boolean esAnfitrion;
     private ControladorPartida controladorPartida;
     private Dispatcher dispatcher;
+    private final SincronizadorEstado sincronizador = new SincronizadorEstado();
     
     private String nombreOponenteRecibido = null;
     private boolean inicioPartidaRecibido = false;
@@ -49,6 +50,7 @@ public class ControladorRed implements EscuchaRed {
         dispatcher.registrar(MensajeJuego.TipoMensaje.CHAT, new ManejadorChat(this));
         dispatcher.registrar(MensajeJuego.TipoMensaje.INICIO_JUEGO, new ManejadorInicioJuego(this));
         dispatcher.registrar(MensajeJuego.TipoMensaje.JUGADOR_SALE, new ManejadorJugadorSale());
+        dispatcher.registrar(MensajeJuego.TipoMensaje.ESTADO_JUEGO, new ManejadorEstadoJuego(this));
         
         System.out.println("[RED] Dispatcher inicializado con " + 
                          dispatcher.cantidadManejadores() + " manejadores");
@@ -137,6 +139,14 @@ public class ControladorRed implements EscuchaRed {
         }
     }
     
+    /**
+     * Usa el transporte NIO del gestor de red (antes de conectar)
+     * @param hilos Hilos de seleccion
+     */
+    public void usarTransporteNio(int hilos) {
+        gestorRed.usarTransporteNio(hilos);
+    }
+    
     /**
      * Inicia como anfitrion
      */
@@ -173,22 +183,43 @@ public class ControladorRed implements EscuchaRed {
     }
     
     /**
-     * Envia un movimiento de ficha
+     * Envia los movimientos del jugador local
+     * Suscrito a la partida desde ControladorPartida.setControladorRed
      */
-    public void enviarMovimiento(Jugador jugador, Ficha ficha, int valorDado) {
-        int jugadorId = jugador.getIdJugador();
-        int fichaId = ficha.getIdFicha();
-        gestorRed.enviarMovimiento(jugadorId, fichaId, valorDado);
+    @Override
+    public void movimientoAplicado(Partida partida, Jugador jugador, long resultado) {
+        // Los movimientos remotos tambien pasan por aqui y no se reenvian
+        if (jugador.getIdJugador() != jugadorLocalId) {
+            return;
+        }
+        Ficha ficha = partida.fichaEnIndice(ResultadoMovimiento.ficha(resultado));
+        gestorRed.enviarMovimiento(jugador.getIdJugador(), ficha.getIdFicha(),
+                                   ResultadoMovimiento.pasos(resultado));
     }
     
     /**
      * Notifica cambio de turno
+     * Antes publica el estado: el peer que recibe el turno lo compara con
+     * el suyo y, si le falta algo, lo pide antes de jugar
      */
     public void notificarCambioTurno(Jugador siguienteJugador) {
         int jugadorId = siguienteJugador.getIdJugador();
+        if (controladorPartida != null) {
+            gestorRed.difundir(sincronizador.publicar(controladorPartida.getPartida(),
+                                                      gestorRed.getNombreJugador()));
+        }
         gestorRed.enviarCambioTurno(jugadorId);
     }
     
+    /**
+     * Pide el estado a los peers con la ultima version recibida
+     * Un peer atrasado o que se reconecta se pone al dia con una respuesta
+     */
+    public void solicitarEstado() {
+        gestorRed.difundir(MensajeJuego.solicitudEstado(gestorRed.getNombreJugador(),
+                                                        sincronizador.getVersionRecibida()));
+    }
+    
     /**
      * Envia tirada de dado
      */
@@ -216,6 +247,14 @@ public class ControladorRed implements EscuchaRed {
         System.out.println("[RED] Peer desconectado: " + peer.getNombrePeer());
     }
     
+    @Override
+    public void alReanudarPeer(ConexionPeer peer, boolean sinPerdidas) {
+        System.out.println("[RED] " + peer.getNombrePeer() + " volvio a conectarse");
+        if (!sinPerdidas) {
+            solicitarEstado();
+        }
+    }
+    
     // METODOS PUBLICOS PARA QUE LOS MANEJADORES LOS USEN
     
     /**
@@ -245,10 +284,9 @@ public class ControladorRed implements EscuchaRed {
      */
     public void procesarMovimiento(MensajeJuego mensaje) {
         try {
-            String[] partes = mensaje.getContenido().split(",");
-            int jugadorId = Integer.parseInt(partes[0].split(":")[1]);
-            int fichaId = Integer.parseInt(partes[1].split(":")[1]);
-            int dado = Integer.parseInt(partes[2].split(":")[1]);
+            int jugadorId = mensaje.getJugadorId();
+            int fichaId = mensaje.getFichaId();
+            int dado = mensaje.getValorDado();
             
             if (jugadorId != jugadorLocalId) {
                 System.out.println("\n[RED] Procesando movimiento del oponente...");
@@ -268,7 +306,7 @@ public class ControladorRed implements EscuchaRed {
      */
     public void procesarCambioTurno(MensajeJuego mensaje) {
         try {
-            int jugadorId = Integer.parseInt(mensaje.getContenido());
+            int jugadorId = mensaje.getJugadorId();
             
             if (controladorPartida != null) {
                 controladorPartida.aplicarCambioTurnoRemoto(jugadorId);
@@ -286,16 +324,30 @@ public class ControladorRed implements EscuchaRed {
         }
     }
     
+    /**
+     * Procesa un estado completo, un delta o una solicitud de estado
+     */
+    public void procesarEstadoJuego(MensajeJuego mensaje, ConexionPeer desde) {
+        if (controladorPartida == null) {
+            return;
+        }
+        Partida partida = controladorPartida.getPartida();
+        if (mensaje.getFormaEstado() == MensajeJuego.ESTADO_SOLICITUD) {
+            gestorRed.enviarA(desde, sincronizador.responder(partida, mensaje.getVersion(),
+                                                             gestorRed.getNombreJugador()));
+        } else if (!sincronizador.aplicar(mensaje, partida)) {
+            System.out.println("[RED] Estado desincronizado (version " +
+                             sincronizador.getVersionRecibida() + "), se pide el estado");
+            gestorRed.enviarA(desde, MensajeJuego.solicitudEstado(gestorRed.getNombreJugador(),
+                                                                  sincronizador.getVersionRecibida()));
+        }
+    }
+    
     /**
      * Procesa tirada de dado
      */
     public void procesarTiradaDado(MensajeJuego mensaje) {
-        try {
-            int valor = Integer.parseInt(mensaje.getContenido());
-            System.out.println("[RED] " + mensaje.getEmisor() + " lanzo el dado: " + valor);
-        } catch (Exception e) {
-            System.err.println("[RED] Error procesando tirada de dado: " + e.getMessage());
-        }
+        System.out.println("[RED] " + mensaje.getEmisor() + " lanzo el dado: " + mensaje.getValorDado());
     }
     
     /**
@@ -331,4 +383,12 @@ public class ControladorRed implements EscuchaRed {
     public java.util.List<ConexionPeer> getPeersConectados() {
         return gestorRed.getPeersConectados();
     }
+    
+    /**
+     * Indica si el oponente sigue en la partida
+     * Un corte breve no cuenta: se espera que reanude su sesion
+     */
+    public boolean hayOponente() {
+        return gestorRed.haySesionesActivas();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package controlador;
+
+import modelo.EstadoCompacto;
+import modelo.Partida;
+import red.MensajeJuego;
+
+/**
+ * Estado de la partida entre peers con mensajes ESTADO_JUEGO
+ * Cada peer numera los estados que publica (1, 2, 3...) y recuerda los
+ * ultimos HISTORIAL: al pasar el turno publica un delta con las fichas que
+ * cambiaron desde su version anterior. Quien recibe aplica el delta si
+ * tiene la version base; si no (se perdio mensajes o se reconecto) pide el
+ * estado con la ultima version que conoce y recibe un solo mensaje: el
+ * delta desde esa version si sigue en el historial, o el estado completo
+ *
+ * El estado es el de Partida.capturarSincronizacion: las tres palabras de
+ * EstadoCompacto, con fichas, turno, contador de 6 y premio pendiente.
+ * Un estado completo de dos jugadores son unos 20 bytes
+ */
+public class SincronizadorEstado {
+    /** Versiones publicadas que se recuerdan para responder con un delta */
+    public static final int HISTORIAL = 64;
+
+    private final long[] fichasBajas = new long[HISTORIAL];
+    private final long[] fichasAltas = new long[HISTORIAL];
+    private final long[] controles = new long[HISTORIAL];
+    // Ultima version publicada por este peer; 0 si ninguna
+    private long ultimaVersion;
+    // Ultima version aplicada del otro peer; 0 si ninguna
+    private long versionRecibida;
+
+    /**
+     * Guarda el estado actual como una version nueva
+     * @return Delta desde la version anterior, o el estado completo si es la primera
+     */
+    public synchronized MensajeJuego publicar(Partida partida, String emisor) {
+        long base = ultimaVersion;
+        registrar(partida.capturarSincronizacion());
+        return base == 0 ? completo(emisor) : delta(base, emisor);
+    }
+
+    /**
+     * Responde a una solicitud con un solo mensaje
+     * Si el estado cambio desde la ultima publicacion se publica antes
+     * @param versionConocida Version que tiene quien pide, o 0
+     * @return Delta desde esa version si esta en el historial, si no el estado completo
+     */
+    public synchronized MensajeJuego responder(Partida partida, long versionConocida, String emisor) {
+        EstadoCompacto actual = partida.capturarSincronizacion();
+        if (ultimaVersion == 0 || !esUltima(actual)) {
+            registrar(actual);
+        }
+        boolean enHistorial = versionConocida > 0 && versionConocida <= ultimaVersion
+                && ultimaVersion - versionConocida < HISTORIAL;
+        return enHistorial ? delta(versionConocida, emisor) : completo(emisor);
+    }
+
+    /**
+     * Aplica un estado recibido del otro peer
+     * Los deltas viejos o repetidos se ignoran
+     * @return false si es un delta sobre una version que no se tiene: hay que pedir el estado
+     */
+    public synchronized boolean aplicar(MensajeJuego mensaje, Partida partida) {
+        if (mensaje.getFormaEstado() == MensajeJuego.ESTADO_COMPLETO) {
+            partida.restaurarSincronizacion(EstadoCompacto.desdePalabras(
+                mensaje.getFichasBajas(), mensaje.getFichasAltas(), mensaje.getControl()));
+        } else if (mensaje.getVersionBase() == versionRecibida) {
+            EstadoCompacto estado = partida.capturarSincronizacion();
+            int fichas = mensaje.getFichasCambiadas();
+            for (int ficha = 0; fichas != 0; ficha++, fichas >>>= 1) {
+                if ((fichas & 1) != 0) {
+                    long palabra = ficha < 8 ? mensaje.getFichasBajas() : mensaje.getFichasAltas();
+                    estado.setCodigo(ficha, codigo(palabra, ficha));
+                }
+            }
+            partida.restaurarSincronizacion(EstadoCompacto.desdePalabras(
+                estado.getFichasBajas(), estado.getFichasAltas(), mensaje.getControl()));
+        } else {
+            return mensaje.getVersion() <= versionRecibida;
+        }
+        versionRecibida = mensaje.getVersion();
+        return true;
+    }
+
+    private void registrar(EstadoCompacto estado) {
+        ultimaVersion++;
+        int i = (int) (ultimaVersion % HISTORIAL);
+        fichasBajas[i] = estado.getFichasBajas();
+        fichasAltas[i] = estado.getFichasAltas();
+        controles[i] = estado.getControl();
+    }
+
+    private boolean esUltima(EstadoCompacto estado) {
+        int i = (int) (ultimaVersion % HISTORIAL);
+        return fichasBajas[i] == estado.getFichasBajas()
+                && fichasAltas[i] == estado.getFichasAltas()
+                && controles[i] == estado.getControl();
+    }
+
+    private MensajeJuego completo(String emisor) {
+        int i = (int) (ultimaVersion % HISTORIAL);
+        return MensajeJuego.estadoCompleto(emisor, ultimaVersion, fichasBajas[i], fichasAltas[i], controles[i]);
+    }
+
+    /**
+     * Delta de la ultima version respecto a una del historial
+     */
+    private MensajeJuego delta(long base, String emisor) {
+        int i = (int) (ultimaVersion % HISTORIAL);
+        int b = (int) (base % HISTORIAL);
+        int fichas = 0;
+        for (int ficha = 0; ficha < EstadoCompacto.TOTAL_FICHAS; ficha++) {
+            long actual = ficha < 8 ? fichasBajas[i] : fichasAltas[i];
+            long anterior = ficha < 8 ? fichasBajas[b] : fichasAltas[b];
+            if (codigo(actual, ficha) != codigo(anterior, ficha)) {
+                fichas |= 1 << ficha;
+            }
+        }
+        return MensajeJuego.estadoDelta(emisor, base, ultimaVersion, fichas,
+                                        fichasBajas[i], fichasAltas[i], controles[i]);
+    }
+
+    private static int codigo(long palabra, int ficha) {
+        return (int) ((palabra >>> ((ficha & 7) << 3)) & 0xFFL);
+    }
+
+    public synchronized long getUltimaVersion() {
+        return ultimaVersion;
+    }
+
+    public synchronized long getVersionRecibida() {
+        return versionRecibida;
+    }
+}
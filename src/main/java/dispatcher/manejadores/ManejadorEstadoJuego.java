@@ -0,0 +1,24 @@
+package dispatcher.manejadores;
+
+import dispatcher.ManejadorMensaje;
+import red.MensajeJuego;
+import red.ConexionPeer;
+import controlador.ControladorRed;
+
+/**
+ * Manejador para mensajes de tipo ESTADO_JUEGO
+ * Aplica estados completos y deltas, y responde a las solicitudes de estado
+ */
+public class ManejadorEstadoJuego implements ManejadorMensaje {
+    
+    private ControladorRed controladorRed;
+    
+    public ManejadorEstadoJuego(ControladorRed controladorRed) {
+        this.controladorRed = controladorRed;
+    }
+    
+    @Override
+    public void manejar(MensajeJuego mensaje, ConexionPeer desde) {
+        controladorRed.procesarEstadoJuego(mensaje, desde);
+    }
+}
@@ -0,0 +1,279 @@
+package ia;
+
+import modelo.EstadoCompacto;
+import modelo.GeneradorMovimientos;
+import modelo.InstantaneaPartida;
+import modelo.TablasTablero;
+import simulacion.ElectorMovimiento;
+
+/**
+ * Jugador automatico por busqueda expectiminimax
+ * Nodos de decision: el bot maximiza y los rivales minimizan (paranoico);
+ * nodos de azar: promedio de las seis caras del dado. Un premio pendiente
+ * es otro nodo de decision del mismo jugador, sin tirada
+ *
+ * Profundiza de forma iterativa (1, 2, 3... decisiones) hasta agotar el
+ * presupuesto de tiempo y responde con el mejor movimiento de la ultima
+ * profundidad completa, de modo que la latencia queda acotada en un nucleo
+ *
+ * Los valores de los nodos de azar se guardan en una TablaTransposicion
+ * por hash Zobrist, asi las posiciones repetidas (por transposicion o
+ * entre una busqueda y la siguiente) no se vuelven a expandir
+ *
+ * Con una TablaFinales, las posiciones que cubre se juegan con el
+ * movimiento exacto de la tabla, sin buscar
+ *
+ * No es seguro entre hilos: cada asiento usa su propia instancia
+ * (las tablas si se pueden compartir)
+ */
+public class BotExpectiminimax implements ElectorMovimiento, JugadorAutomatico {
+    public static final long PRESUPUESTO_POR_DEFECTO_MS = 200;
+
+    private static final int MAX_PROFUNDIDAD = 32;
+    private static final double VICTORIA = 1_000_000.0;
+    private static final double BONO_META = 10.0;
+    private static final int NODOS_ENTRE_RELOJ = 256;
+    private static final int BITS_TABLA = 18;
+    // Los valores dependen del asiento que evalua: se mezcla en la clave
+    private static final long[] SAL_ASIENTO = {
+        0L, 0x6A09E667F3BCC909L, 0xBB67AE8584CAA73BL, 0x3C6EF372FE94F82BL
+    };
+
+    private final long presupuestoNanos;
+    private final int[][] movimientosPorNivel;
+    private final TablaTransposicion tabla;
+    private TablaFinales finales;
+
+    private int asiento;
+    private long limite;
+    private long nodos;
+    private boolean agotado;
+
+    private int ultimaProfundidad;
+    private long ultimosNodos;
+    private long ultimosNanos;
+    private boolean ultimaDesdeFinales;
+
+    public BotExpectiminimax() {
+        this(PRESUPUESTO_POR_DEFECTO_MS);
+    }
+
+    /**
+     * @param presupuestoMs Tiempo maximo de busqueda por movimiento
+     */
+    public BotExpectiminimax(long presupuestoMs) {
+        this(presupuestoMs, new TablaTransposicion(BITS_TABLA));
+    }
+
+    /**
+     * @param presupuestoMs Tiempo maximo de busqueda por movimiento
+     * @param tabla Tabla de transposicion, se puede compartir entre bots
+     */
+    public BotExpectiminimax(long presupuestoMs, TablaTransposicion tabla) {
+        this.presupuestoNanos = presupuestoMs * 1_000_000L;
+        this.movimientosPorNivel = new int[MAX_PROFUNDIDAD + 2][GeneradorMovimientos.MAX_MOVIMIENTOS];
+        this.tabla = tabla;
+    }
+
+    @Override
+    public int elegirMovimiento(InstantaneaPartida raiz, int valorDado) {
+        int[] movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        int cantidad = raiz.movimientos(valorDado, movimientos);
+        if (cantidad == 0) {
+            return InstantaneaPartida.SIN_MOVIMIENTO;
+        }
+        EstadoCompacto estado = raiz.aEstado();
+        if (finales != null && finales.cubre(estado)) {
+            return movimientos[elegirConFinales(estado, valorDado, movimientos, cantidad)];
+        }
+        return movimientos[buscar(raiz, valorDado, movimientos, cantidad)];
+    }
+
+    @Override
+    public int elegir(EstadoCompacto estado, int[] movimientos, int cantidad, int pasos) {
+        if (cantidad <= 1) {
+            return 0;
+        }
+        if (finales != null && finales.cubre(estado)) {
+            return elegirConFinales(estado, pasos, movimientos, cantidad);
+        }
+        return buscar(InstantaneaPartida.desde(estado), pasos, movimientos, cantidad);
+    }
+
+    private int elegirConFinales(EstadoCompacto estado, int valorDado, int[] movimientos, int cantidad) {
+        long inicio = System.nanoTime();
+        int indice = finales.mejorMovimiento(estado, valorDado, movimientos, cantidad);
+        ultimaDesdeFinales = true;
+        ultimaProfundidad = 0;
+        ultimosNodos = 0;
+        ultimosNanos = System.nanoTime() - inicio;
+        return indice;
+    }
+
+    /**
+     * Busqueda con profundizacion iterativa en la raiz
+     * @return Indice del mejor movimiento en el arreglo
+     */
+    private int buscar(InstantaneaPartida raiz, int valorDado, int[] movimientos, int cantidad) {
+        long inicio = System.nanoTime();
+        ultimaDesdeFinales = false;
+        asiento = raiz.getTurno();
+        limite = inicio + presupuestoNanos;
+        nodos = 0;
+        agotado = false;
+        ultimaProfundidad = 0;
+
+        int mejorIndice = 0;
+        if (cantidad > 1) {
+            InstantaneaPartida[] hijos = new InstantaneaPartida[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                hijos[i] = raiz.jugar(movimientos[i], valorDado);
+            }
+
+            for (int profundidad = 1; profundidad <= MAX_PROFUNDIDAD; profundidad++) {
+                // El mejor de la iteracion anterior primero
+                int mejorIteracion = mejorIndice;
+                double mejorValor = valorTrasMovimiento(hijos[mejorIndice], profundidad - 1, 1);
+
+                for (int i = 0; i < cantidad && !agotado; i++) {
+                    if (i == mejorIndice) continue;
+                    double valor = valorTrasMovimiento(hijos[i], profundidad - 1, 1);
+                    if (valor > mejorValor) {
+                        mejorValor = valor;
+                        mejorIteracion = i;
+                    }
+                }
+
+                if (agotado) break;
+                mejorIndice = mejorIteracion;
+                ultimaProfundidad = profundidad;
+                if (Math.abs(mejorValor) >= VICTORIA) break;
+            }
+        }
+
+        ultimosNodos = nodos;
+        ultimosNanos = System.nanoTime() - inicio;
+        return mejorIndice;
+    }
+
+    /**
+     * Valor de una posicion justo despues de un movimiento
+     * Con premio pendiente sigue un nodo de decision; si no, un nodo de azar
+     */
+    private double valorTrasMovimiento(InstantaneaPartida posicion, int profundidad, int nivel) {
+        int ganador = posicion.getGanador();
+        if (ganador >= 0) {
+            return ganador == asiento ? VICTORIA : -VICTORIA;
+        }
+        if (profundidad == 0 || agotado) {
+            return evaluar(posicion);
+        }
+
+        long clave = posicion.getHashZobrist() ^ SAL_ASIENTO[asiento];
+        long guardado = tabla.buscar(clave);
+        if (guardado != TablaTransposicion.SIN_ENTRADA
+                && TablaTransposicion.profundidad(guardado) >= profundidad) {
+            return TablaTransposicion.valor(guardado);
+        }
+
+        double valor;
+        if (posicion.tienePremioPendiente()) {
+            valor = decision(posicion, 0, profundidad, nivel);
+        } else {
+            double suma = 0.0;
+            for (int dado = 1; dado <= 6 && !agotado; dado++) {
+                suma += decision(posicion, dado, profundidad, nivel);
+            }
+            valor = suma / 6.0;
+        }
+
+        // Un valor cortado por tiempo no es exacto y no se guarda
+        if (!agotado) {
+            tabla.guardar(clave, profundidad, valor, -1);
+        }
+        return valor;
+    }
+
+    /**
+     * Nodo de decision: el bot maximiza, los rivales minimizan
+     */
+    private double decision(InstantaneaPartida posicion, int valorDado, int profundidad, int nivel) {
+        if ((++nodos % NODOS_ENTRE_RELOJ) == 0 && System.nanoTime() > limite) {
+            agotado = true;
+        }
+        if (agotado) {
+            return 0.0;
+        }
+
+        int[] movimientos = movimientosPorNivel[nivel];
+        int cantidad = posicion.movimientos(valorDado, movimientos);
+        if (cantidad == 0) {
+            return valorTrasMovimiento(posicion.jugar(InstantaneaPartida.SIN_MOVIMIENTO, valorDado),
+                                       profundidad - 1, nivel + 1);
+        }
+
+        boolean maximiza = posicion.getTurno() == asiento;
+        double mejor = maximiza ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int i = 0; i < cantidad; i++) {
+            double valor = valorTrasMovimiento(posicion.jugar(movimientos[i], valorDado),
+                                               profundidad - 1, nivel + 1);
+            mejor = maximiza ? Math.max(mejor, valor) : Math.min(mejor, valor);
+        }
+        return mejor;
+    }
+
+    /**
+     * Evaluacion estatica: avance propio menos el del mejor rival
+     * El avance son las casillas recorridas por cada ficha, con un bono
+     * por ficha en meta; el premio pendiente cuenta para quien lo tiene
+     */
+    private double evaluar(InstantaneaPartida posicion) {
+        EstadoCompacto estado = posicion.aEstado();
+        double propio = 0.0;
+        double mejorRival = Double.NEGATIVE_INFINITY;
+
+        for (int j = 0; j < estado.getNumJugadores(); j++) {
+            double avance = avance(estado, j);
+            if (j == estado.getTurno()) {
+                avance += estado.getCasillasPremio();
+            }
+            if (j == asiento) {
+                propio = avance;
+            } else {
+                mejorRival = Math.max(mejorRival, avance);
+            }
+        }
+        return propio - mejorRival;
+    }
+
+    private static double avance(EstadoCompacto estado, int jugador) {
+        int color = estado.getColor(jugador);
+        int recorrido = TablasTablero.distanciaMeta(color, EstadoCompacto.CODIGO_CASA);
+        double total = 0.0;
+        for (int k = 0; k < EstadoCompacto.FICHAS_POR_JUGADOR; k++) {
+            int codigo = estado.getCodigo(jugador * EstadoCompacto.FICHAS_POR_JUGADOR + k);
+            total += recorrido - TablasTablero.distanciaMeta(color, codigo);
+            if (codigo == EstadoCompacto.CODIGO_META) {
+                total += BONO_META;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public String describirUltimaBusqueda() {
+        return "profundidad " + ultimaProfundidad + ", " + ultimosNodos + " nodos, "
+             + ultimosNanos / 1_000_000 + " ms";
+    }
+
+    /** Profundidad completa de la ultima busqueda (0 si no hizo falta buscar) */
+    public int getUltimaProfundidad() { return ultimaProfundidad; }
+    public long getUltimosNodos() { return ultimosNodos; }
+    public long getUltimosNanos() { return ultimosNanos; }
+    public TablaTransposicion getTabla() { return tabla; }
+
+    /**
+     * @param finales Tabla de finales a consultar, o null para buscar siempre
+     */
+    public void setTablaFinales(TablaFinales finales) { this.finales = finales; }
+}
@@ -0,0 +1,402 @@
+package ia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import modelo.EstadoCompacto;
+import modelo.FuenteDadosBloque;
+import modelo.GeneradorMovimientos;
+import modelo.InstantaneaPartida;
+import simulacion.ElectorAleatorio;
+import simulacion.ElectorMovimiento;
+import simulacion.MotorSimulacion;
+
+/**
+ * Jugador automatico por busqueda de arbol Monte Carlo (MCTS) en paralelo
+ * Todos los hilos recorren y hacen crecer el mismo arbol (paralelismo de
+ * arbol): seleccion UCT, expansion de un nodo por iteracion, partida
+ * aleatoria hasta el final con MotorSimulacion y retropropagacion
+ *
+ * El arbol alterna nodos de decision (posicion + dado conocido) y nodos
+ * de azar (posicion tras un movimiento, un hijo por cara del dado, o uno
+ * solo si queda un premio pendiente). Al bajar se cuenta la visita antes
+ * de conocer el resultado (perdida virtual), asi los demas hilos ven la
+ * rama como peor y se reparten por otras ramas mientras tanto
+ *
+ * Sin locks: las estadisticas son contadores atomicos y los hijos se
+ * publican con compareAndExchange; si dos hilos expanden el mismo nodo,
+ * el que pierde descarta su trabajo y usa los hijos del ganador
+ *
+ * Con una TablaFinales, las posiciones que cubre se juegan con el
+ * movimiento exacto de la tabla; la confianza queda toda en ese movimiento
+ *
+ * Una busqueda a la vez por instancia: los hilos son internos
+ */
+public class BotMCTS implements ElectorMovimiento, JugadorAutomatico {
+    public static final long PRESUPUESTO_POR_DEFECTO_MS = 200;
+
+    private static final double EXPLORACION = 1.0;
+    // Una victoria vale ESCALA; una partida cortada por MAX_TURNOS se reparte
+    // entre los jugadores (12 se divide entre 2, 3 y 4)
+    private static final int ESCALA = 12;
+    private static final int CARAS = 6;
+
+    private final long presupuestoNanos;
+    private final ForkJoinPool pool;
+    private final Trabajador[] trabajadores;
+    private TablaFinales finales;
+
+    private int[] ultimosMovimientos = new int[0];
+    private double[] ultimaConfianza = new double[0];
+    private long ultimosPlayouts;
+    private long ultimosNanos;
+    private boolean ultimaDesdeFinales;
+
+    public BotMCTS() {
+        this(PRESUPUESTO_POR_DEFECTO_MS);
+    }
+
+    /**
+     * @param presupuestoMs Tiempo maximo de busqueda por movimiento
+     */
+    public BotMCTS(long presupuestoMs) {
+        this(presupuestoMs, Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    /**
+     * @param presupuestoMs Tiempo maximo de busqueda por movimiento
+     * @param hilos Hilos que comparten el arbol
+     * @param semilla Semilla de los flujos aleatorios de los hilos
+     */
+    public BotMCTS(long presupuestoMs, int hilos, long semilla) {
+        this.presupuestoNanos = presupuestoMs * 1_000_000L;
+        this.pool = new ForkJoinPool(hilos);
+        SplittableRandom random = new SplittableRandom(semilla);
+        this.trabajadores = new Trabajador[hilos];
+        for (int i = 0; i < hilos; i++) {
+            trabajadores[i] = new Trabajador(random.split());
+        }
+    }
+
+    @Override
+    public int elegirMovimiento(InstantaneaPartida raiz, int valorDado) {
+        int[] movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        int cantidad = raiz.movimientos(valorDado, movimientos);
+        if (cantidad == 0) {
+            ultimosMovimientos = new int[0];
+            ultimaConfianza = new double[0];
+            ultimosPlayouts = 0;
+            ultimosNanos = 0;
+            return InstantaneaPartida.SIN_MOVIMIENTO;
+        }
+        return movimientos[buscar(raiz, valorDado, movimientos, cantidad)];
+    }
+
+    @Override
+    public int elegir(EstadoCompacto estado, int[] movimientos, int cantidad, int pasos) {
+        if (cantidad <= 1) {
+            return 0;
+        }
+        return buscar(InstantaneaPartida.desde(estado), pasos, movimientos, cantidad);
+    }
+
+    /**
+     * Reparte el presupuesto entre los hilos y elige el movimiento mas visitado
+     * @return Indice del movimiento elegido en el arreglo
+     */
+    private int buscar(InstantaneaPartida raiz, int valorDado, int[] movimientos, int cantidad) {
+        long inicio = System.nanoTime();
+        EstadoCompacto estado = raiz.aEstado();
+        ultimaDesdeFinales = finales != null && finales.cubre(estado);
+        if (ultimaDesdeFinales) {
+            int mejor = finales.mejorMovimiento(estado, valorDado, movimientos, cantidad);
+            ultimosMovimientos = Arrays.copyOf(movimientos, cantidad);
+            ultimaConfianza = new double[cantidad];
+            ultimaConfianza[mejor] = 1.0;
+            ultimosPlayouts = 0;
+            ultimosNanos = System.nanoTime() - inicio;
+            return mejor;
+        }
+
+        NodoDecision nodoRaiz = new NodoDecision(raiz, valorDado);
+        NodoAzar[] hijos = crearHijos(raiz, valorDado, movimientos, cantidad);
+        nodoRaiz.hijos.set(hijos);
+
+        long playouts = 0;
+        if (cantidad > 1) {
+            long limite = inicio + presupuestoNanos;
+            List<Callable<Long>> tareas = new ArrayList<>();
+            for (Trabajador trabajador : trabajadores) {
+                tareas.add(() -> trabajador.buscar(nodoRaiz, limite));
+            }
+            try {
+                for (Future<Long> resultado : pool.invokeAll(tareas)) {
+                    playouts += resultado.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Fallo en un hilo de busqueda", e.getCause());
+            }
+        }
+
+        double[] confianza = new double[cantidad];
+        int mejor = 0;
+        long total = 0;
+        for (int i = 0; i < cantidad; i++) {
+            total += hijos[i].visitas.get();
+            if (hijos[i].visitas.get() > hijos[mejor].visitas.get()) {
+                mejor = i;
+            }
+        }
+        for (int i = 0; i < cantidad; i++) {
+            confianza[i] = total > 0 ? (double) hijos[i].visitas.get() / total : 1.0 / cantidad;
+        }
+
+        ultimosMovimientos = Arrays.copyOf(movimientos, cantidad);
+        ultimaConfianza = confianza;
+        ultimosPlayouts = playouts;
+        ultimosNanos = System.nanoTime() - inicio;
+        return mejor;
+    }
+
+    /**
+     * Hijos de un nodo de decision: uno por movimiento, o uno que pasa
+     */
+    private static NodoAzar[] crearHijos(InstantaneaPartida posicion, int valorDado,
+                                         int[] movimientos, int cantidad) {
+        int asiento = posicion.getTurno();
+        if (cantidad == 0) {
+            int pasar = InstantaneaPartida.SIN_MOVIMIENTO;
+            return new NodoAzar[] { new NodoAzar(asiento, posicion.jugar(pasar, valorDado)) };
+        }
+        NodoAzar[] hijos = new NodoAzar[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            hijos[i] = new NodoAzar(asiento, posicion.jugar(movimientos[i], valorDado));
+        }
+        return hijos;
+    }
+
+    private static int recompensa(int ganador, int asiento, int jugadores) {
+        if (ganador < 0) {
+            return ESCALA / jugadores;
+        }
+        return ganador == asiento ? ESCALA : 0;
+    }
+
+    /**
+     * Detiene los hilos de busqueda
+     */
+    public void cerrar() {
+        pool.shutdown();
+    }
+
+    @Override
+    public String describirUltimaBusqueda() {
+        if (ultimaDesdeFinales) {
+            return "tabla de finales, " + ultimosNanos / 1_000 + " us";
+        }
+        return ultimosPlayouts + " partidas simuladas, "
+             + String.format("%.0f", getPlayoutsPorSegundo()) + "/s, "
+             + trabajadores.length + " hilos, " + ultimosNanos / 1_000_000 + " ms";
+    }
+
+    /** Partidas simuladas por segundo en la ultima busqueda */
+    public double getPlayoutsPorSegundo() {
+        return ultimosNanos > 0 ? ultimosPlayouts * 1e9 / ultimosNanos : 0.0;
+    }
+
+    /** Movimientos de la ultima raiz, en el mismo orden que getUltimaConfianza() */
+    public int[] getUltimosMovimientos() { return ultimosMovimientos.clone(); }
+
+    /** Fraccion de visitas de cada movimiento de la raiz (suma 1) */
+    public double[] getUltimaConfianza() { return ultimaConfianza.clone(); }
+
+    public long getUltimosPlayouts() { return ultimosPlayouts; }
+    public long getUltimosNanos() { return ultimosNanos; }
+    public int getHilos() { return trabajadores.length; }
+
+    /**
+     * @param finales Tabla de finales a consultar, o null para buscar siempre
+     */
+    public void setTablaFinales(TablaFinales finales) { this.finales = finales; }
+
+    // ==================== Arbol ====================
+
+    /**
+     * Posicion con el dado ya tirado (0 si se juega un premio)
+     */
+    private static final class NodoDecision {
+        final InstantaneaPartida posicion;
+        final int valorDado;
+        final AtomicInteger visitas = new AtomicInteger();
+        final AtomicReference<NodoAzar[]> hijos = new AtomicReference<>();
+
+        NodoDecision(InstantaneaPartida posicion, int valorDado) {
+            this.posicion = posicion;
+            this.valorDado = valorDado;
+        }
+
+        NodoAzar[] expandir(int[] movimientos) {
+            NodoAzar[] actuales = hijos.get();
+            if (actuales != null) {
+                return actuales;
+            }
+            int cantidad = posicion.movimientos(valorDado, movimientos);
+            NodoAzar[] nuevos = crearHijos(posicion, valorDado, movimientos, cantidad);
+            NodoAzar[] publicados = hijos.compareAndExchange(null, nuevos);
+            return publicados == null ? nuevos : publicados;
+        }
+    }
+
+    /**
+     * Posicion tras un movimiento; la recompensa es la del asiento que movio
+     */
+    private static final class NodoAzar {
+        final int asiento;
+        final InstantaneaPartida posicion;
+        final AtomicInteger visitas = new AtomicInteger();
+        final AtomicLong recompensa = new AtomicLong();
+        final AtomicReferenceArray<NodoDecision> hijos;
+
+        NodoAzar(int asiento, InstantaneaPartida posicion) {
+            this.asiento = asiento;
+            this.posicion = posicion;
+            int ramas = posicion.esFinal() ? 0 : posicion.tienePremioPendiente() ? 1 : CARAS;
+            this.hijos = new AtomicReferenceArray<>(ramas);
+        }
+
+        NodoDecision hijo(int rama) {
+            NodoDecision hijo = hijos.get(rama);
+            if (hijo == null) {
+                NodoDecision nuevo = new NodoDecision(posicion, hijos.length() == 1 ? 0 : rama + 1);
+                hijo = hijos.compareAndExchange(rama, null, nuevo);
+                if (hijo == null) {
+                    hijo = nuevo;
+                }
+            }
+            return hijo;
+        }
+    }
+
+    // ==================== Hilos ====================
+
+    /**
+     * Estado privado de un hilo: aleatoriedad, dados y motores de simulacion
+     */
+    private static final class Trabajador {
+        private final SplittableRandom random;
+        private final FuenteDadosBloque dados;
+        private final MotorSimulacion[] motores = new MotorSimulacion[EstadoCompacto.MAX_JUGADORES + 1];
+        private final int[] movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        private final List<NodoAzar> camino = new ArrayList<>();
+
+        Trabajador(SplittableRandom random) {
+            this.random = random;
+            this.dados = new FuenteDadosBloque(random.nextLong());
+        }
+
+        /**
+         * Itera hasta el limite de tiempo
+         * @return Partidas simuladas
+         */
+        long buscar(NodoDecision raiz, long limite) {
+            long iteraciones = 0;
+            do {
+                iterar(raiz);
+                iteraciones++;
+            } while (System.nanoTime() < limite);
+            return iteraciones;
+        }
+
+        private void iterar(NodoDecision raiz) {
+            camino.clear();
+            NodoDecision nodo = raiz;
+            int ganador;
+
+            while (true) {
+                NodoAzar[] hijos = nodo.expandir(movimientos);
+                nodo.visitas.incrementAndGet();
+                NodoAzar elegido = seleccionar(nodo, hijos);
+                // Perdida virtual: la visita cuenta ya, la recompensa llega al final
+                int visitasPrevias = elegido.visitas.getAndIncrement();
+                camino.add(elegido);
+
+                ganador = elegido.posicion.getGanador();
+                if (ganador >= 0) {
+                    break;
+                }
+                if (visitasPrevias == 0) {
+                    ganador = simular(elegido.posicion);
+                    break;
+                }
+                int rama = elegido.hijos.length() == 1 ? 0 : random.nextInt(CARAS);
+                nodo = elegido.hijo(rama);
+            }
+
+            int jugadores = raiz.posicion.getNumJugadores();
+            for (int i = 0; i < camino.size(); i++) {
+                NodoAzar paso = camino.get(i);
+                paso.recompensa.addAndGet(recompensa(ganador, paso.asiento, jugadores));
+            }
+        }
+
+        /**
+         * UCT: primero los hijos sin visitar, luego media + exploracion
+         */
+        private static NodoAzar seleccionar(NodoDecision nodo, NodoAzar[] hijos) {
+            double logTotal = Math.log(Math.max(1, nodo.visitas.get()));
+            NodoAzar mejor = hijos[0];
+            double mejorValor = Double.NEGATIVE_INFINITY;
+            for (NodoAzar hijo : hijos) {
+                int visitas = hijo.visitas.get();
+                if (visitas == 0) {
+                    return hijo;
+                }
+                double valor = hijo.recompensa.get() / ((double) visitas * ESCALA)
+                             + EXPLORACION * Math.sqrt(logTotal / visitas);
+                if (valor > mejorValor) {
+                    mejorValor = valor;
+                    mejor = hijo;
+                }
+            }
+            return mejor;
+        }
+
+        /**
+         * Partida aleatoria desde la posicion hasta el final
+         * Un premio pendiente se resuelve antes con un movimiento al azar
+         */
+        private int simular(InstantaneaPartida posicion) {
+            if (posicion.tienePremioPendiente()) {
+                int cantidad = posicion.movimientos(0, movimientos);
+                int movimiento = cantidad == 0
+                    ? InstantaneaPartida.SIN_MOVIMIENTO
+                    : movimientos[random.nextInt(cantidad)];
+                posicion = posicion.jugar(movimiento, 0);
+            }
+            EstadoCompacto estado = posicion.aEstado();
+            return motor(estado.getNumJugadores()).jugarPartida(estado, dados, null);
+        }
+
+        private MotorSimulacion motor(int jugadores) {
+            if (motores[jugadores] == null) {
+                ElectorMovimiento[] electores = new ElectorMovimiento[jugadores];
+                for (int i = 0; i < jugadores; i++) {
+                    electores[i] = new ElectorAleatorio(random.split());
+                }
+                motores[jugadores] = new MotorSimulacion(electores);
+            }
+            return motores[jugadores];
+        }
+    }
+}
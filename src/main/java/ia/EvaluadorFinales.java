@@ -0,0 +1,150 @@
+package ia;
+
+import java.util.function.IntToDoubleFunction;
+import modelo.EstadoCompacto;
+import modelo.GeneradorMovimientos;
+import modelo.NucleoReglas;
+import modelo.ResultadoMovimiento;
+import modelo.Tablero;
+
+/**
+ * Expectimax de una tirada sobre posiciones de finales
+ * Resuelve con NucleoReglas todo lo que pasa dentro de un turno (movimiento,
+ * premio, turno extra por 6, penalizacion por tres 6) y, al empezar el
+ * turno siguiente, pide el valor a la tabla: asi la tabla solo guarda
+ * posiciones al inicio de un turno
+ *
+ * Los valores son la probabilidad de que gane el asiento 0: el asiento 0
+ * maximiza y el asiento 1 minimiza
+ *
+ * Usa arreglos y estados de trabajo propios: una instancia por hilo
+ */
+final class EvaluadorFinales {
+    // Tres tiradas como maximo (la tercera con 6 pasa el turno), cada una con premio
+    private static final int NIVELES = 8;
+
+    private final IntToDoubleFunction valorBase;
+    private final GeneradorMovimientos generador = new GeneradorMovimientos(new Tablero());
+    private final int[][] movimientos = new int[NIVELES][GeneradorMovimientos.MAX_MOVIMIENTOS];
+    private final EstadoCompacto[] copias = new EstadoCompacto[NIVELES];
+
+    /**
+     * @param valorBase Valor de un indice de TablaFinales (inicio de turno)
+     */
+    EvaluadorFinales(IntToDoubleFunction valorBase) {
+        this.valorBase = valorBase;
+        for (int i = 0; i < NIVELES; i++) {
+            copias[i] = new EstadoCompacto();
+        }
+    }
+
+    /**
+     * Valor de una posicion antes de tirar el dado
+     * Al inicio de un turno se lee la tabla; con 6 acumulados se sigue
+     * calculando porque la penalizacion depende de la ultima ficha movida
+     */
+    double antesDeTirar(EstadoCompacto estado, int nivel) {
+        if (estado.getContadorSeis() == 0) {
+            return valorBase.applyAsDouble(TablaFinales.indice(estado));
+        }
+        return esperanza(estado, nivel);
+    }
+
+    /**
+     * Promedio de las seis caras del dado
+     */
+    double esperanza(EstadoCompacto estado, int nivel) {
+        double suma = 0.0;
+        for (int dado = 1; dado <= 6; dado++) {
+            suma += tirada(estado, dado, nivel);
+        }
+        return suma / 6.0;
+    }
+
+    /**
+     * Mejor movimiento del jugador en turno para un valor del dado
+     */
+    double tirada(EstadoCompacto estado, int valorDado, int nivel) {
+        int[] lista = movimientos[nivel];
+        int cantidad = generador.generar(estado, valorDado, lista);
+        EstadoCompacto hijo = copias[nivel];
+
+        if (cantidad == 0) {
+            hijo.copiarDe(estado);
+            NucleoReglas.cerrarTirada(hijo, valorDado);
+            return antesDeTirar(hijo, nivel + 1);
+        }
+
+        boolean maximiza = estado.getTurno() == 0;
+        double mejor = maximiza ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int i = 0; i < cantidad; i++) {
+            hijo.copiarDe(estado);
+            double valor = trasMovimiento(hijo, GeneradorMovimientos.ficha(lista[i]), valorDado, nivel + 1);
+            mejor = maximiza ? Math.max(mejor, valor) : Math.min(mejor, valor);
+        }
+        return mejor;
+    }
+
+    /**
+     * Aplica un movimiento de dado (el estado se modifica) y sigue hasta la
+     * siguiente tirada: premio si lo hay y cierre de la tirada
+     */
+    double trasMovimiento(EstadoCompacto estado, int ficha, int valorDado, int nivel) {
+        int jugador = estado.getTurno();
+        long resultado = NucleoReglas.mover(estado, ficha, valorDado);
+        if (estado.contarEnMeta(jugador) == EstadoCompacto.FICHAS_POR_JUGADOR) {
+            return victoria(jugador);
+        }
+
+        int premio = ResultadoMovimiento.premio(resultado);
+        if (premio > 0) {
+            return premio(estado, premio, valorDado, nivel);
+        }
+        NucleoReglas.cerrarTirada(estado, valorDado);
+        return antesDeTirar(estado, nivel);
+    }
+
+    /**
+     * El jugador en turno usa un premio (el estado se modifica si no hay
+     * movimientos); el premio que genere este movimiento se pierde
+     * @param valorDado Dado de la tirada que gano el premio, para cerrarla
+     */
+    double premio(EstadoCompacto estado, int premio, int valorDado, int nivel) {
+        int[] lista = movimientos[nivel];
+        estado.setCasillasPremio(premio);
+        int cantidad = generador.generarPremio(estado, premio, lista);
+        estado.setCasillasPremio(0);
+
+        if (cantidad == 0) {
+            NucleoReglas.cerrarTirada(estado, valorDado);
+            return antesDeTirar(estado, nivel + 1);
+        }
+
+        EstadoCompacto hijo = copias[nivel];
+        boolean maximiza = estado.getTurno() == 0;
+        double mejor = maximiza ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int i = 0; i < cantidad; i++) {
+            hijo.copiarDe(estado);
+            double valor = trasPremio(hijo, GeneradorMovimientos.ficha(lista[i]), premio, valorDado, nivel + 1);
+            mejor = maximiza ? Math.max(mejor, valor) : Math.min(mejor, valor);
+        }
+        return mejor;
+    }
+
+    /**
+     * Aplica un movimiento de premio (el estado se modifica) y cierra la tirada
+     */
+    double trasPremio(EstadoCompacto estado, int ficha, int premio, int valorDado, int nivel) {
+        int jugador = estado.getTurno();
+        NucleoReglas.mover(estado, ficha, premio);
+        if (estado.contarEnMeta(jugador) == EstadoCompacto.FICHAS_POR_JUGADOR) {
+            return victoria(jugador);
+        }
+        NucleoReglas.cerrarTirada(estado, valorDado);
+        return antesDeTirar(estado, nivel);
+    }
+
+    private static double victoria(int jugador) {
+        return jugador == 0 ? 1.0 : 0.0;
+    }
+}
@@ -0,0 +1,125 @@
+package ia;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+import modelo.EstadoCompacto;
+import modelo.TablasTablero;
+
+/**
+ * Genera el archivo de TablaFinales por iteracion de valores
+ * Las capturas y la penalizacion por tres 6 mandan fichas a casa, asi que
+ * el grafo de posiciones tiene ciclos y no basta un solo barrido hacia
+ * atras: se repiten barridos de Gauss-Seidel (cada posicion usa los valores
+ * ya actualizados) hasta que ningun valor cambia mas que la tolerancia
+ *
+ * Cada barrido recorre las posiciones de menor a mayor distancia total a
+ * meta, de modo que los valores de los finales mas cortos, que casi no
+ * dependen del resto, se propagan hacia atras en el mismo barrido
+ *
+ * El barrido se reparte en bloques entre todos los nucleos. Los hilos leen
+ * valores que otros estan actualizando (relajacion asincrona): como cada
+ * valor es un float, la lectura es atomica y la iteracion converge igual
+ */
+public final class GeneradorTablaFinales {
+    public static final double TOLERANCIA = 1e-6;
+    public static final int MAX_BARRIDOS = 500;
+    private static final int POSICIONES_POR_BLOQUE = 4096;
+
+    private GeneradorTablaFinales() {
+    }
+
+    /**
+     * Calcula la tabla y la escribe en el archivo
+     * @param archivo Ruta de salida (se reemplaza si existe)
+     * @param color0 Color del asiento 0
+     * @param color1 Color del asiento 1
+     * @return Numero de barridos realizados
+     */
+    public static int generar(Path archivo, int color0, int color1) throws IOException {
+        long inicio = System.nanoTime();
+        float[] valores = new float[TablaFinales.TOTAL];
+        Arrays.fill(valores, 0.5f);
+        int[] orden = ordenPorDistancia(color0, color1);
+
+        ThreadLocal<EvaluadorFinales> evaluadores =
+            ThreadLocal.withInitial(() -> new EvaluadorFinales(i -> valores[i]));
+        int bloques = (orden.length + POSICIONES_POR_BLOQUE - 1) / POSICIONES_POR_BLOQUE;
+        int barridos = 0;
+        double cambioMaximo;
+        do {
+            cambioMaximo = IntStream.range(0, bloques).parallel()
+                .mapToDouble(bloque -> barrerBloque(bloque, orden, valores, evaluadores.get(), color0, color1))
+                .max()
+                .orElse(0.0);
+            barridos++;
+            System.out.println(String.format("[FINALES] Barrido %d: cambio maximo %.2e", barridos, cambioMaximo));
+        } while (cambioMaximo > TOLERANCIA && barridos < MAX_BARRIDOS);
+
+        escribir(archivo, valores, color0, color1);
+        System.out.println(String.format("[FINALES] %d posiciones en %d barridos, %.1f s -> %s",
+            TablaFinales.TOTAL, barridos, (System.nanoTime() - inicio) / 1e9, archivo));
+        return barridos;
+    }
+
+    /**
+     * Actualiza las posiciones de un bloque del orden
+     * @return Mayor cambio de valor en el bloque
+     */
+    private static double barrerBloque(int bloque, int[] orden, float[] valores,
+                                       EvaluadorFinales evaluador, int color0, int color1) {
+        EstadoCompacto estado = new EstadoCompacto();
+        int desde = bloque * POSICIONES_POR_BLOQUE;
+        int hasta = Math.min(desde + POSICIONES_POR_BLOQUE, orden.length);
+        double cambioMaximo = 0.0;
+        for (int i = desde; i < hasta; i++) {
+            int indice = orden[i];
+            TablaFinales.cargar(indice, estado, color0, color1);
+            float valor = (float) evaluador.esperanza(estado, 0);
+            cambioMaximo = Math.max(cambioMaximo, Math.abs(valor - valores[indice]));
+            valores[indice] = valor;
+        }
+        return cambioMaximo;
+    }
+
+    private static int[] ordenPorDistancia(int color0, int color1) {
+        EstadoCompacto estado = new EstadoCompacto();
+        int[] distancias = new int[TablaFinales.TOTAL];
+        for (int indice = 0; indice < TablaFinales.TOTAL; indice++) {
+            TablaFinales.cargar(indice, estado, color0, color1);
+            int total = 0;
+            for (int ficha = 0; ficha < 2 * EstadoCompacto.FICHAS_POR_JUGADOR; ficha++) {
+                int color = ficha < EstadoCompacto.FICHAS_POR_JUGADOR ? color0 : color1;
+                total += TablasTablero.distanciaMeta(color, estado.getCodigo(ficha));
+            }
+            distancias[indice] = total;
+        }
+        return IntStream.range(0, TablaFinales.TOTAL).boxed()
+            .sorted(Comparator.comparingInt(i -> distancias[i]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    private static void escribir(Path archivo, float[] valores, int color0, int color1) throws IOException {
+        long tamano = TablaFinales.CABECERA + (long) valores.length * Float.BYTES;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer salida = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamano);
+            salida.order(ByteOrder.LITTLE_ENDIAN);
+            salida.putInt(TablaFinales.MAGICO);
+            salida.putInt(TablaFinales.VERSION);
+            salida.putInt(color0);
+            salida.putInt(color1);
+            for (float valor : valores) {
+                salida.putFloat(valor);
+            }
+            salida.force();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ia;
+
+import modelo.InstantaneaPartida;
+
+/**
+ * Jugador que decide solo a partir de una instantanea de la partida
+ * Es lo que necesita ControladorPartida para ocupar un asiento con un bot
+ */
+public interface JugadorAutomatico {
+
+    /**
+     * Elige el movimiento del jugador en turno
+     * @param raiz Posicion actual (con el premio pendiente si se elige un premio)
+     * @param valorDado Valor del dado, ignorado si hay premio pendiente
+     * @return Movimiento de GeneradorMovimientos o SIN_MOVIMIENTO
+     */
+    int elegirMovimiento(InstantaneaPartida raiz, int valorDado);
+
+    /**
+     * Resumen de la ultima busqueda para mostrar en consola
+     */
+    String describirUltimaBusqueda();
+}
@@ -0,0 +1,247 @@
+package ia;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import modelo.EstadoCompacto;
+import modelo.GeneradorMovimientos;
+import modelo.InstantaneaPartida;
+
+/**
+ * Tabla exacta de finales de dos jugadores, mapeada en memoria
+ * Cubre las posiciones en las que a un jugador le quedan 1 o 2 fichas
+ * fuera de meta y al otro 1 (o 2 contra 1): las fichas nunca salen de
+ * meta, asi que desde estas posiciones la partida no sale de la tabla
+ *
+ * Guarda, para cada posicion al inicio de un turno, la probabilidad de que
+ * gane el asiento 0 si ambos juegan de forma optima. El resto del turno
+ * (premios, turno extra por 6, penalizacion) lo resuelve EvaluadorFinales
+ * sobre la marcha. La genera GeneradorTablaFinales
+ *
+ * El archivo se abre con FileChannel.map: no hay tiempo de carga y cada
+ * consulta es una lectura absoluta del buffer, segura entre hilos
+ *
+ * Formato (little endian): int MAGICO, int VERSION, int color asiento 0,
+ * int color asiento 1 y TOTAL floats
+ */
+public class TablaFinales {
+    /** Resultado de probabilidadVictoria(...) cuando la posicion no esta en la tabla */
+    public static final double SIN_VALOR = Double.NaN;
+
+    static final int MAGICO = 0x5046494E;
+    static final int VERSION = 1;
+    static final int CABECERA = 16;
+
+    // Un lado es la ficha (codigo 0-67) o el par de fichas que le quedan a un jugador
+    static final int CODIGOS = EstadoCompacto.CODIGO_META;
+    static final int PARES = CODIGOS * (CODIGOS + 1) / 2;
+    static final int LADOS = CODIGOS + PARES;
+    // Dos fichas contra dos no entra: asiento 0 con una ficha y cualquier lado,
+    // o con dos fichas contra una; por dos turnos
+    static final int TOTAL = (CODIGOS * LADOS + PARES * CODIGOS) * 2;
+
+    private final MappedByteBuffer datos;
+    private final int color0;
+    private final int color1;
+    private final ThreadLocal<EvaluadorFinales> evaluadores;
+
+    private TablaFinales(MappedByteBuffer datos, int color0, int color1) {
+        this.datos = datos;
+        this.color0 = color0;
+        this.color1 = color1;
+        this.evaluadores = ThreadLocal.withInitial(() -> new EvaluadorFinales(this::valorBase));
+    }
+
+    /**
+     * Mapea un archivo generado por GeneradorTablaFinales
+     * @param archivo Ruta del archivo
+     * @return Tabla lista para consultar
+     * @throws IOException Si no se puede leer o no es una tabla valida
+     */
+    public static TablaFinales abrir(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = CABECERA + (long) TOTAL * Float.BYTES;
+            if (canal.size() != tamano) {
+                throw new IOException("Tamano de tabla de finales invalido: " + canal.size());
+            }
+            // El mapeo sigue valido despues de cerrar el canal
+            MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+            datos.order(ByteOrder.LITTLE_ENDIAN);
+            if (datos.getInt(0) != MAGICO || datos.getInt(4) != VERSION) {
+                throw new IOException("El archivo no es una tabla de finales: " + archivo);
+            }
+            return new TablaFinales(datos, datos.getInt(8), datos.getInt(12));
+        }
+    }
+
+    /**
+     * Indica si la posicion esta en la tabla
+     * Dos jugadores con los colores de la tabla, partida sin terminar
+     * y como mucho dos fichas fuera de meta por lado (no dos contra dos)
+     */
+    public boolean cubre(EstadoCompacto estado) {
+        if (estado.getNumJugadores() != 2 || estado.getColor(0) != color0
+                || estado.getColor(1) != color1) {
+            return false;
+        }
+        int restantes0 = restantes(estado, 0);
+        int restantes1 = restantes(estado, 1);
+        return restantes0 >= 1 && restantes1 >= 1 && restantes0 + restantes1 <= 3;
+    }
+
+    public boolean cubre(InstantaneaPartida posicion) {
+        return cubre(posicion.aEstado());
+    }
+
+    /**
+     * Probabilidad exacta de ganar con juego optimo de ambos
+     * Sirve en cualquier momento del turno: antes de tirar, con 6 acumulados
+     * o con un premio pendiente (se usa el dado pendiente para cerrar la tirada)
+     * @param estado Posicion a consultar
+     * @param asiento Asiento (0 o 1) cuya probabilidad se quiere
+     * @return Probabilidad entre 0 y 1, o SIN_VALOR si no esta en la tabla
+     */
+    public double probabilidadVictoria(EstadoCompacto estado, int asiento) {
+        if (!cubre(estado)) {
+            return SIN_VALOR;
+        }
+        EvaluadorFinales evaluador = evaluadores.get();
+        EstadoCompacto copia = estado.copiar();
+        int premio = copia.getCasillasPremio();
+        double valor;
+        if (premio > 0) {
+            int valorDado = copia.getDadoPendiente();
+            copia.setDadoPendiente(0);
+            valor = evaluador.premio(copia, premio, valorDado, 0);
+        } else if (copia.getContadorSeis() == 0) {
+            valor = valorBase(indice(copia));
+        } else {
+            valor = evaluador.esperanza(copia, 0);
+        }
+        return asiento == 0 ? valor : 1.0 - valor;
+    }
+
+    /**
+     * Mejor movimiento exacto para una tirada o un premio pendiente
+     * @param estado Posicion cubierta por la tabla
+     * @param valorDado Valor del dado (ignorado con premio pendiente)
+     * @param movimientos Movimientos legales de GeneradorMovimientos
+     * @param cantidad Numero de movimientos
+     * @return Indice del mejor movimiento para el jugador en turno
+     */
+    public int mejorMovimiento(EstadoCompacto estado, int valorDado, int[] movimientos, int cantidad) {
+        EvaluadorFinales evaluador = evaluadores.get();
+        EstadoCompacto hijo = new EstadoCompacto();
+        int premio = estado.getCasillasPremio();
+        int dadoCierre = premio > 0 ? estado.getDadoPendiente() : valorDado;
+        boolean maximiza = estado.getTurno() == 0;
+
+        int mejor = 0;
+        double mejorValor = maximiza ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        for (int i = 0; i < cantidad; i++) {
+            hijo.copiarDe(estado);
+            int ficha = GeneradorMovimientos.ficha(movimientos[i]);
+            double valor;
+            if (premio > 0) {
+                hijo.setCasillasPremio(0);
+                hijo.setDadoPendiente(0);
+                valor = evaluador.trasPremio(hijo, ficha, premio, dadoCierre, 0);
+            } else {
+                valor = evaluador.trasMovimiento(hijo, ficha, valorDado, 0);
+            }
+            if (maximiza ? valor > mejorValor : valor < mejorValor) {
+                mejorValor = valor;
+                mejor = i;
+            }
+        }
+        return mejor;
+    }
+
+    double valorBase(int indice) {
+        return datos.getFloat(CABECERA + indice * Float.BYTES);
+    }
+
+    public int getColor0() { return color0; }
+    public int getColor1() { return color1; }
+
+    // ==================== Indice ====================
+
+    /**
+     * Indice de una posicion al inicio de un turno
+     * Solo dependen del indice las fichas fuera de meta de cada lado
+     * (sin importar cual es cual) y el jugador en turno
+     */
+    static int indice(EstadoCompacto estado) {
+        int lado0 = lado(estado, 0);
+        int lado1 = lado(estado, 1);
+        int par = lado0 < CODIGOS
+            ? lado0 * LADOS + lado1
+            : CODIGOS * LADOS + (lado0 - CODIGOS) * CODIGOS + lado1;
+        return par * 2 + estado.getTurno();
+    }
+
+    /**
+     * Carga en el estado la posicion de un indice (el inverso de indice)
+     * Las fichas que no quedan en juego van a meta
+     */
+    static void cargar(int indice, EstadoCompacto estado, int color0, int color1) {
+        estado.copiarDe(EstadoCompacto.inicial(color0, color1));
+        for (int ficha = 0; ficha < 2 * EstadoCompacto.FICHAS_POR_JUGADOR; ficha++) {
+            estado.setCodigo(ficha, EstadoCompacto.CODIGO_META);
+        }
+
+        int par = indice / 2;
+        int lado0;
+        int lado1;
+        if (par < CODIGOS * LADOS) {
+            lado0 = par / LADOS;
+            lado1 = par % LADOS;
+        } else {
+            int resto = par - CODIGOS * LADOS;
+            lado0 = CODIGOS + resto / CODIGOS;
+            lado1 = resto % CODIGOS;
+        }
+        colocarLado(estado, 0, lado0);
+        colocarLado(estado, 1, lado1);
+        estado.setTurno(indice % 2);
+    }
+
+    private static int lado(EstadoCompacto estado, int jugador) {
+        int menor = -1;
+        int mayor = -1;
+        for (int k = 0; k < EstadoCompacto.FICHAS_POR_JUGADOR; k++) {
+            int codigo = estado.getCodigo(jugador * EstadoCompacto.FICHAS_POR_JUGADOR + k);
+            if (codigo == EstadoCompacto.CODIGO_META) {
+                continue;
+            }
+            if (menor < 0) {
+                menor = codigo;
+            } else {
+                mayor = Math.max(menor, codigo);
+                menor = Math.min(menor, codigo);
+            }
+        }
+        return mayor < 0 ? menor : CODIGOS + mayor * (mayor + 1) / 2 + menor;
+    }
+
+    private static void colocarLado(EstadoCompacto estado, int jugador, int lado) {
+        int base = jugador * EstadoCompacto.FICHAS_POR_JUGADOR;
+        if (lado < CODIGOS) {
+            estado.setCodigo(base, lado);
+            return;
+        }
+        int par = lado - CODIGOS;
+        int mayor = (int) ((Math.sqrt(8.0 * par + 1) - 1) / 2);
+        while (mayor * (mayor + 1) / 2 > par) mayor--;
+        while ((mayor + 1) * (mayor + 2) / 2 <= par) mayor++;
+        estado.setCodigo(base, par - mayor * (mayor + 1) / 2);
+        estado.setCodigo(base + 1, mayor);
+    }
+
+    private static int restantes(EstadoCompacto estado, int jugador) {
+        return EstadoCompacto.FICHAS_POR_JUGADOR - estado.contarEnMeta(jugador);
+    }
+}
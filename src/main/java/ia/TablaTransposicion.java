@@ -0,0 +1,106 @@
+package ia;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tabla de transposicion de tamano fijo y sin locks
+ * Cada entrada ocupa dos longs: (hash ^ datos) y datos. Al leer se
+ * comprueba que (primero ^ datos) sea el hash buscado; si otro hilo
+ * escribio la entrada a medias la comprobacion falla y se trata como
+ * fallo de tabla, sin necesidad de sincronizar (truco xor de Hyatt)
+ *
+ * Datos empaquetados: bits 0-31 valor (float), 32-39 profundidad,
+ * 40-55 movimiento + 1 (0 = sin movimiento)
+ */
+public class TablaTransposicion {
+    /** Resultado de buscar(...) cuando la posicion no esta en la tabla */
+    public static final long SIN_ENTRADA = 0L;
+    /** Mayor profundidad que se guarda; 255 + 1 no cabe en el byte */
+    public static final int MAX_PROFUNDIDAD = 254;
+
+    private final AtomicLongArray entradas;
+    private final int mascara;
+
+    /**
+     * @param bitsEntradas La tabla tiene 2^bitsEntradas entradas (16 bytes cada una)
+     */
+    public TablaTransposicion(int bitsEntradas) {
+        int tamano = 1 << bitsEntradas;
+        this.entradas = new AtomicLongArray(tamano * 2);
+        this.mascara = tamano - 1;
+    }
+
+    /**
+     * Busca una posicion
+     * @param hash Hash Zobrist (mas lo que el llamador quiera distinguir)
+     * @return Datos empaquetados, o SIN_ENTRADA
+     */
+    public long buscar(long hash) {
+        int indice = indice(hash);
+        long datos = entradas.getOpaque(indice + 1);
+        long clave = entradas.getOpaque(indice);
+        return (datos != SIN_ENTRADA && (clave ^ datos) == hash) ? datos : SIN_ENTRADA;
+    }
+
+    /**
+     * Guarda una posicion
+     * Reemplaza si la entrada es de otra posicion o si la nueva busqueda
+     * fue al menos igual de profunda
+     * @param hash Hash de la posicion
+     * @param profundidad Profundidad restante con la que se calculo el valor;
+     *        se limita a 0-MAX_PROFUNDIDAD
+     * @param valor Valor de la posicion
+     * @param movimiento Mejor movimiento, o -1
+     */
+    public void guardar(long hash, int profundidad, double valor, int movimiento) {
+        profundidad = Math.max(0, Math.min(profundidad, MAX_PROFUNDIDAD));
+        int indice = indice(hash);
+        long anterior = entradas.getOpaque(indice + 1);
+        if (anterior != SIN_ENTRADA
+                && (entradas.getOpaque(indice) ^ anterior) == hash
+                && profundidad(anterior) > profundidad) {
+            return;
+        }
+
+        long datos = empaquetar(profundidad, valor, movimiento);
+        entradas.setOpaque(indice, hash ^ datos);
+        entradas.setOpaque(indice + 1, datos);
+    }
+
+    /**
+     * Vacia la tabla
+     */
+    public void limpiar() {
+        for (int i = 0; i < entradas.length(); i++) {
+            entradas.setOpaque(i, 0L);
+        }
+    }
+
+    public int getCapacidad() {
+        return mascara + 1;
+    }
+
+    private int indice(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & mascara) << 1;
+    }
+
+    private static long empaquetar(int profundidad, double valor, int movimiento) {
+        long bitsValor = Float.floatToRawIntBits((float) valor) & 0xFFFFFFFFL;
+        // La profundidad (0-254) se guarda + 1 para que ningun dato valido sea SIN_ENTRADA
+        return bitsValor
+             | ((long) ((profundidad + 1) & 0xFF) << 32)
+             | ((long) ((movimiento + 1) & 0xFFFF) << 40);
+    }
+
+    public static double valor(long datos) {
+        return Float.intBitsToFloat((int) datos);
+    }
+
+    public static int profundidad(long datos) {
+        return (int) ((datos >>> 32) & 0xFF) - 1;
+    }
+
+    public static int movimiento(long datos) {
+        return (int) ((datos >>> 40) & 0xFFFF) - 1;
+    }
+}
@@ -12,6 +12,7 @@ public class Casilla {
     private String tipo;
     private boolean esSegura;
     private List<Ficha> fichas;
+    private int conteoColores;   // 4 bits por color: fichas de cada color en la casilla
     
     /**
      * Constructor de casilla
@@ -23,6 +24,7 @@ public class Casilla {
         this.tipo = tipo;
         this.esSegura = tipo.equals("segura");
         this.fichas = new ArrayList<>();
+        this.conteoColores = 0;
     }
     
     /**
@@ -31,6 +33,7 @@ public class Casilla {
      */
     public void agregarFicha(Ficha ficha) {
         fichas.add(ficha);
+        conteoColores += 1 << (ficha.getIndiceColor() << 2);
     }
     
     /**
@@ -38,19 +41,47 @@ public class Casilla {
      * @param ficha Ficha a remover
      */
     public void removerFicha(Ficha ficha) {
-        fichas.remove(ficha);
+        if (fichas.remove(ficha)) {
+            conteoColores -= 1 << (ficha.getIndiceColor() << 2);
+        }
+    }
+    
+    /**
+     * Quita todas las fichas de la casilla
+     */
+    public void vaciar() {
+        fichas.clear();
+        conteoColores = 0;
+    }
+    
+    /**
+     * Cuenta las fichas de un color en esta casilla
+     * @param indiceColor Indice de color
+     * @return Numero de fichas de ese color
+     */
+    public int contarColor(int indiceColor) {
+        return (conteoColores >>> (indiceColor << 2)) & 0xF;
+    }
+    
+    /**
+     * Cuenta las fichas de otros colores en esta casilla
+     * @param indiceColor Color propio
+     * @return Numero de fichas rivales
+     */
+    public int contarRivales(int indiceColor) {
+        return fichas.size() - contarColor(indiceColor);
     }
     
     /**
      * Verifica si hay una barrera en esta casilla
-     * Una barrera se forma con 2 fichas del mismo color
+     * Misma regla que las reglas del juego: NucleoReglas.esBarrera
      * @return true si hay barrera, false si no
      */
     public boolean verificarBarrera() {
-        if (fichas.size() == 2) {
-            String colorPrimera = fichas.get(0).getColor();
-            String colorSegunda = fichas.get(1).getColor();
-            return colorPrimera.equals(colorSegunda);
+        for (int color = 0; color < TablasTablero.TOTAL_COLORES; color++) {
+            if (NucleoReglas.esBarrera(contarColor(color))) {
+                return true;
+            }
         }
         return false;
     }
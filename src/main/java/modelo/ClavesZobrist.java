@@ -0,0 +1,62 @@
+/**
+ * Claves aleatorias para el hash Zobrist de EstadoCompacto
+ * Se generan una sola vez con una semilla fija, asi el hash de una
+ * posicion es el mismo en cualquier proceso y se puede guardar en disco
+ *
+ * Las fichas se codifican por (asiento, codigo, cantidad): la clave depende
+ * de cuantas fichas del jugador hay en esa casilla, casa o meta, y no de
+ * cual de ellas es. Dos posiciones que solo difieren en el orden de las
+ * fichas de un jugador tienen el mismo hash
+ */
+package modelo;
+
+public final class ClavesZobrist {
+    private static final long SEMILLA = 0x5EED_2A0B_1A57L;
+    private static final int CANTIDADES = EstadoCompacto.FICHAS_POR_JUGADOR + 1;
+
+    private static final long[] FICHAS =
+        new long[EstadoCompacto.MAX_JUGADORES * TablasTablero.TOTAL_CODIGOS * CANTIDADES];
+    private static final long[] TURNO = new long[4];
+    private static final long[] SEIS = new long[4];
+    private static final long[] PREMIO = new long[256];
+    private static final long[] DADO = new long[8];
+    private static final long[] ULTIMA = new long[32];
+
+    static {
+        FuenteDadosSemilla fuente = new FuenteDadosSemilla(SEMILLA);
+        for (int i = 0; i < FICHAS.length; i++) {
+            // Cantidad 0 vale 0: una casilla vacia no aporta al hash
+            FICHAS[i] = (i % CANTIDADES == 0) ? 0L : fuente.siguienteLong();
+        }
+        llenar(TURNO, fuente);
+        llenar(SEIS, fuente);
+        llenar(PREMIO, fuente);
+        llenar(DADO, fuente);
+        llenar(ULTIMA, fuente);
+    }
+
+    private ClavesZobrist() {
+    }
+
+    private static void llenar(long[] claves, FuenteDadosSemilla fuente) {
+        for (int i = 0; i < claves.length; i++) {
+            claves[i] = fuente.siguienteLong();
+        }
+    }
+
+    /**
+     * Clave de tener cierta cantidad de fichas de un jugador en un codigo
+     * @param jugador Asiento (0-3)
+     * @param codigo Codigo de posicion (0 casa, 68 meta)
+     * @param cantidad Fichas del jugador en ese codigo (0-4)
+     */
+    static long ficha(int jugador, int codigo, int cantidad) {
+        return FICHAS[(jugador * TablasTablero.TOTAL_CODIGOS + codigo) * CANTIDADES + cantidad];
+    }
+
+    static long turno(int jugador) { return TURNO[jugador]; }
+    static long seis(int contador) { return SEIS[contador]; }
+    static long premio(int casillas) { return PREMIO[casillas]; }
+    static long dado(int valor) { return DADO[valor]; }
+    static long ultima(int codigoUltima) { return ULTIMA[codigoUltima]; }
+}
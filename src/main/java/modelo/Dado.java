@@ -1,21 +1,27 @@
 /**
  * Representa el dado del juego
- * Genera valores aleatorios entre 1 y 6
+ * Genera valores entre 1 y 6 a partir de una FuenteDados
  */
 package modelo;
 
-import java.util.Random;
-
 public class Dado {
     private int valor;
-    private Random random;
+    private FuenteDados fuente;
     
     /**
      * Constructor del dado
-     * Inicializa el generador de numeros aleatorios
+     * Usa una fuente con semilla aleatoria para poder repetir la partida
      */
     public Dado() {
-        this.random = new Random();
+        this(new FuenteDadosSemilla());
+    }
+    
+    /**
+     * Constructor con fuente de dados explicita
+     * @param fuente Origen de las tiradas
+     */
+    public Dado(FuenteDados fuente) {
+        this.fuente = fuente;
         this.valor = 0;
     }
     
@@ -24,9 +30,10 @@ public class Dado {
      * @return Valor del dado (1-6)
      */
     public int lanzar() {
-        this.valor = random.nextInt(6) + 1;
+        this.valor = fuente.lanzar();
         return this.valor;
     }
     
     public int getValor() { return valor; }
-}
\ No newline at end of file
+    public FuenteDados getFuente() { return fuente; }
+}
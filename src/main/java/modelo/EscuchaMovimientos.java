@@ -0,0 +1,17 @@
+/**
+ * Suscriptor de los movimientos aplicados en una Partida
+ * La consola, el registro JSON y la red reaccionan al resultado del
+ * nucleo de reglas sin que las reglas sepan de ellos
+ */
+package modelo;
+
+public interface EscuchaMovimientos {
+
+    /**
+     * Se llama despues de aplicar un movimiento, con la partida ya actualizada
+     * @param partida Partida donde se movio
+     * @param jugador Jugador que movio
+     * @param resultado Resultado empaquetado (ver ResultadoMovimiento)
+     */
+    void movimientoAplicado(Partida partida, Jugador jugador, long resultado);
+}
@@ -0,0 +1,478 @@
+/**
+ * Representacion compacta del estado de una partida
+ * Toda la posicion cabe en tres palabras long: dos para las 16 fichas
+ * (un byte por ficha) y una de control con turno, seises y premio
+ * Copiar un estado es copiar tres longs, sin recorrer objetos
+ *
+ * Ademas lleva un hash Zobrist que se actualiza en O(1) con cada cambio
+ * de ficha (mover, sacar, comer, regresar a casa) y de control (turno,
+ * seises, premio, dado pendiente y ultima ficha)
+ */
+package modelo;
+
+import java.util.List;
+
+public final class EstadoCompacto {
+    public static final int MAX_JUGADORES = 4;
+    public static final int FICHAS_POR_JUGADOR = 4;
+    public static final int TOTAL_FICHAS = MAX_JUGADORES * FICHAS_POR_JUGADOR;
+
+    /** Codigo de una ficha en casa (posicion -1) */
+    public static final int CODIGO_CASA = 0;
+    /** Codigo de una ficha en meta (posicion 67) */
+    public static final int CODIGO_META = 68;
+
+    // Distribucion de bits de la palabra de control
+    private static final int BIT_TURNO = 0;
+    private static final int BIT_SEIS = 2;
+    private static final int BIT_PREMIO = 4;
+    private static final int BIT_JUGADORES = 12;
+    private static final int BIT_ULTIMA = 15;
+    private static final int BIT_COLORES = 20;
+    private static final int BIT_DADO = 28;
+
+    private static final long MASCARA_TURNO = 0x3L;
+    private static final long MASCARA_SEIS = 0x3L;
+    private static final long MASCARA_PREMIO = 0xFFL;
+    private static final long MASCARA_JUGADORES = 0x7L;
+    private static final long MASCARA_ULTIMA = 0x1FL;
+    private static final long MASCARA_DADO = 0x7L;
+
+    // Hash de las tres palabras en cero, para reiniciar sin recalcular
+    private static final long HASH_VACIO = new EstadoCompacto().hashZobrist;
+
+    private long fichasBajas;   // Fichas 0-7 (jugadores 0 y 1)
+    private long fichasAltas;   // Fichas 8-15 (jugadores 2 y 3)
+    private long control;
+    private long hashZobrist;
+
+    /**
+     * Constructor de estado vacio
+     * Sin jugadores y con todas las fichas en casa
+     */
+    public EstadoCompacto() {
+        this.fichasBajas = 0L;
+        this.fichasAltas = 0L;
+        this.control = 0L;
+        this.hashZobrist = calcularHash();
+    }
+
+    private EstadoCompacto(long fichasBajas, long fichasAltas, long control, long hashZobrist) {
+        this.fichasBajas = fichasBajas;
+        this.fichasAltas = fichasAltas;
+        this.control = control;
+        this.hashZobrist = hashZobrist;
+    }
+
+    /**
+     * Crea un estado a partir de sus tres palabras
+     * Util para guardar o transmitir estados ya empaquetados
+     * El hash Zobrist se recalcula desde cero
+     */
+    public static EstadoCompacto desdePalabras(long fichasBajas, long fichasAltas, long control) {
+        EstadoCompacto estado = new EstadoCompacto(fichasBajas, fichasAltas, control, 0L);
+        estado.hashZobrist = estado.calcularHash();
+        return estado;
+    }
+
+    /**
+     * Igual que desdePalabras pero con un hash ya conocido
+     * Para quien guarda el hash junto con las palabras (InstantaneaPartida)
+     */
+    static EstadoCompacto desdePalabras(long fichasBajas, long fichasAltas, long control, long hashZobrist) {
+        return new EstadoCompacto(fichasBajas, fichasAltas, control, hashZobrist);
+    }
+
+    /**
+     * Crea un estado inicial con todas las fichas en casa
+     * @param colores Indice de color de cada jugador, en orden de asiento
+     * @return Estado con el turno en el primer jugador
+     */
+    public static EstadoCompacto inicial(int... colores) {
+        EstadoCompacto estado = new EstadoCompacto();
+        estado.setNumJugadores(colores.length);
+        for (int i = 0; i < colores.length; i++) {
+            estado.setColor(i, colores[i]);
+        }
+        return estado;
+    }
+
+    /**
+     * Empaqueta el estado actual de una partida de objetos
+     * El asiento de cada jugador es su indice en la lista de jugadores
+     * @param partida Partida a convertir
+     * @return Estado compacto equivalente
+     */
+    public static EstadoCompacto desde(Partida partida) {
+        EstadoCompacto estado = new EstadoCompacto();
+        estado.cargar(partida);
+        return estado;
+    }
+
+    /**
+     * Sobrescribe este estado con el de una partida de objetos
+     * Igual que desde(Partida) pero reutilizando la instancia, para quien
+     * lo consulta en cada turno
+     * @param partida Partida a convertir
+     */
+    public void cargar(Partida partida) {
+        fichasBajas = 0L;
+        fichasAltas = 0L;
+        control = 0L;
+        hashZobrist = HASH_VACIO;
+        List<Jugador> jugadores = partida.getJugadores();
+        setNumJugadores(jugadores.size());
+
+        for (int j = 0; j < jugadores.size(); j++) {
+            Jugador jugador = jugadores.get(j);
+            setColor(j, jugador.getIndiceColor());
+
+            List<Ficha> fichas = jugador.getFichas();
+            for (int k = 0; k < FICHAS_POR_JUGADOR && k < fichas.size(); k++) {
+                Ficha ficha = fichas.get(k);
+                int posicion;
+                if (ficha.isEnMeta()) {
+                    posicion = Tablero.CASILLA_META;
+                } else if (ficha.isEnCasa()) {
+                    posicion = -1;
+                } else {
+                    posicion = ficha.getPosicion();
+                }
+                setPosicion(j * FICHAS_POR_JUGADOR + k, posicion);
+            }
+        }
+
+        int turno = jugadores.indexOf(partida.getTurnoActual());
+        setTurno(Math.max(turno, 0));
+        setContadorSeis(partida.getContadorSeis());
+    }
+
+    /**
+     * Copia este estado en uno nuevo
+     * @return Estado independiente con el mismo contenido
+     */
+    public EstadoCompacto copiar() {
+        return new EstadoCompacto(fichasBajas, fichasAltas, control, hashZobrist);
+    }
+
+    /**
+     * Sobrescribe este estado con el contenido de otro
+     * Permite reutilizar instancias sin crear basura
+     * @param otro Estado origen
+     */
+    public void copiarDe(EstadoCompacto otro) {
+        this.fichasBajas = otro.fichasBajas;
+        this.fichasAltas = otro.fichasAltas;
+        this.control = otro.control;
+        this.hashZobrist = otro.hashZobrist;
+    }
+
+    /**
+     * Sobrescribe este estado con palabras y hash ya conocidos
+     * Igual que desdePalabras con hash, reutilizando la instancia
+     */
+    void cargarPalabras(long fichasBajas, long fichasAltas, long control, long hashZobrist) {
+        this.fichasBajas = fichasBajas;
+        this.fichasAltas = fichasAltas;
+        this.control = control;
+        this.hashZobrist = hashZobrist;
+    }
+
+    // ==================== Fichas ====================
+
+    /**
+     * Obtiene el codigo empaquetado de una ficha
+     * @param ficha Indice global de ficha (jugador * 4 + indice)
+     * @return 0 en casa, 1-67 en el tablero, 68 en meta
+     */
+    public int getCodigo(int ficha) {
+        return codigo(fichasBajas, fichasAltas, ficha);
+    }
+
+    /**
+     * Establece el codigo empaquetado de una ficha
+     * @param ficha Indice global de ficha
+     * @param codigo Codigo de posicion (0-68)
+     */
+    public void setCodigo(int ficha, int codigo) {
+        int anterior = getCodigo(ficha);
+        if (anterior == codigo) {
+            return;
+        }
+
+        // Cambia la cantidad de fichas del jugador en el codigo anterior y en el nuevo
+        int jugador = ficha >> 2;
+        int enAnterior = contarEnCodigo(fichasBajas, fichasAltas, jugador, anterior);
+        int enNuevo = contarEnCodigo(fichasBajas, fichasAltas, jugador, codigo);
+        hashZobrist ^= ClavesZobrist.ficha(jugador, anterior, enAnterior)
+                     ^ ClavesZobrist.ficha(jugador, anterior, enAnterior - 1)
+                     ^ ClavesZobrist.ficha(jugador, codigo, enNuevo)
+                     ^ ClavesZobrist.ficha(jugador, codigo, enNuevo + 1);
+
+        int desplazamiento = (ficha & 7) << 3;
+        long mascara = ~(0xFFL << desplazamiento);
+        long valor = ((long) codigo & 0xFFL) << desplazamiento;
+        if (ficha < 8) {
+            fichasBajas = (fichasBajas & mascara) | valor;
+        } else {
+            fichasAltas = (fichasAltas & mascara) | valor;
+        }
+    }
+
+    /**
+     * Obtiene la posicion de una ficha con la misma convencion que Ficha
+     * @param ficha Indice global de ficha
+     * @return -1 en casa, 0-66 en el tablero, 67 en meta
+     */
+    public int getPosicion(int ficha) {
+        return getCodigo(ficha) - 1;
+    }
+
+    /**
+     * Establece la posicion de una ficha
+     * @param ficha Indice global de ficha
+     * @param posicion -1 para casa, 67 o mas para meta
+     */
+    public void setPosicion(int ficha, int posicion) {
+        if (posicion >= Tablero.CASILLA_META) {
+            setCodigo(ficha, CODIGO_META);
+        } else if (posicion < 0) {
+            setCodigo(ficha, CODIGO_CASA);
+        } else {
+            setCodigo(ficha, posicion + 1);
+        }
+    }
+
+    public boolean estaEnCasa(int ficha) {
+        return getCodigo(ficha) == CODIGO_CASA;
+    }
+
+    public boolean estaEnMeta(int ficha) {
+        return getCodigo(ficha) == CODIGO_META;
+    }
+
+    public boolean estaEnJuego(int ficha) {
+        int codigo = getCodigo(ficha);
+        return codigo != CODIGO_CASA && codigo != CODIGO_META;
+    }
+
+    /**
+     * Regresa una ficha a casa
+     * @param ficha Indice global de ficha
+     */
+    public void regresarACasa(int ficha) {
+        setCodigo(ficha, CODIGO_CASA);
+    }
+
+    /**
+     * Cuenta las fichas de un jugador con un codigo dado
+     * Compara los cuatro bytes del jugador a la vez (SWAR)
+     */
+    private static int contarEnCodigo(long fichasBajas, long fichasAltas, int jugador, int codigo) {
+        long palabra = jugador < 2 ? fichasBajas : fichasAltas;
+        int grupo = (int) (palabra >>> ((jugador & 1) << 5));
+        int x = grupo ^ (codigo * 0x01010101);
+        // 0x80 en cada byte que vale cero
+        int ceros = ~(((x & 0x7F7F7F7F) + 0x7F7F7F7F) | x | 0x7F7F7F7F);
+        return Integer.bitCount(ceros);
+    }
+
+    /**
+     * Obtiene el jugador (asiento) al que pertenece una ficha
+     */
+    public static int jugadorDeFicha(int ficha) {
+        return ficha >> 2;
+    }
+
+    /**
+     * Cuenta las fichas de un jugador que llegaron a meta
+     * @param jugador Asiento del jugador
+     * @return Numero de fichas en meta (0-4)
+     */
+    public int contarEnMeta(int jugador) {
+        return contarEnCodigo(fichasBajas, fichasAltas, jugador, CODIGO_META);
+    }
+
+    /**
+     * Obtiene el ganador de la partida
+     * @return Asiento del jugador con 4 fichas en meta, o -1 si no hay
+     */
+    public int getGanador() {
+        return ganador(fichasBajas, fichasAltas, control);
+    }
+
+    // ==================== Lectura de palabras ====================
+    // Para quien guarda las palabras sin un EstadoCompacto (InstantaneaPartida)
+
+    static int codigo(long fichasBajas, long fichasAltas, int ficha) {
+        long palabra = ficha < 8 ? fichasBajas : fichasAltas;
+        return (int) ((palabra >>> ((ficha & 7) << 3)) & 0xFFL);
+    }
+
+    static int turno(long control) {
+        return (int) ((control >>> BIT_TURNO) & MASCARA_TURNO);
+    }
+
+    static int casillasPremio(long control) {
+        return (int) ((control >>> BIT_PREMIO) & MASCARA_PREMIO);
+    }
+
+    static int numJugadores(long control) {
+        return (int) ((control >>> BIT_JUGADORES) & MASCARA_JUGADORES);
+    }
+
+    static int ganador(long fichasBajas, long fichasAltas, long control) {
+        int jugadores = numJugadores(control);
+        for (int j = 0; j < jugadores; j++) {
+            if (contarEnCodigo(fichasBajas, fichasAltas, j, CODIGO_META) == FICHAS_POR_JUGADOR) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    // ==================== Control ====================
+
+    private long leer(int bit, long mascara) {
+        return (control >>> bit) & mascara;
+    }
+
+    private void escribir(int bit, long mascara, long valor) {
+        control = (control & ~(mascara << bit)) | ((valor & mascara) << bit);
+    }
+
+    public int getTurno() { return turno(control); }
+    public void setTurno(int jugador) {
+        hashZobrist ^= ClavesZobrist.turno(getTurno()) ^ ClavesZobrist.turno(jugador & 0x3);
+        escribir(BIT_TURNO, MASCARA_TURNO, jugador);
+    }
+
+    public int getContadorSeis() { return (int) leer(BIT_SEIS, MASCARA_SEIS); }
+    public void setContadorSeis(int contador) {
+        int valor = Math.min(contador, 3);
+        hashZobrist ^= ClavesZobrist.seis(getContadorSeis()) ^ ClavesZobrist.seis(valor);
+        escribir(BIT_SEIS, MASCARA_SEIS, valor);
+    }
+
+    public int getCasillasPremio() { return casillasPremio(control); }
+    public void setCasillasPremio(int casillas) {
+        int valor = Math.min(casillas, 255);
+        hashZobrist ^= ClavesZobrist.premio(getCasillasPremio()) ^ ClavesZobrist.premio(valor);
+        escribir(BIT_PREMIO, MASCARA_PREMIO, valor);
+    }
+
+    public int getNumJugadores() { return numJugadores(control); }
+    public void setNumJugadores(int jugadores) { escribir(BIT_JUGADORES, MASCARA_JUGADORES, jugadores); }
+
+    /**
+     * @return Indice de la ultima ficha movida, o -1 si no hay
+     */
+    public int getUltimaFicha() { return (int) leer(BIT_ULTIMA, MASCARA_ULTIMA) - 1; }
+    public void setUltimaFicha(int ficha) {
+        hashZobrist ^= ClavesZobrist.ultima(getUltimaFicha() + 1) ^ ClavesZobrist.ultima((ficha + 1) & 0x1F);
+        escribir(BIT_ULTIMA, MASCARA_ULTIMA, ficha + 1);
+    }
+
+    /**
+     * @param jugador Asiento del jugador
+     * @return Indice de color (0-3) segun TablasTablero.COLORES
+     */
+    public int getColor(int jugador) { return (int) leer(BIT_COLORES + jugador * 2, 0x3L); }
+    public void setColor(int jugador, int color) { escribir(BIT_COLORES + jugador * 2, 0x3L, color); }
+
+    /**
+     * Valor del dado cuya tirada espera que se use un premio
+     * El turno extra con 6 se decide despues de mover el premio
+     * @return 1-6, o 0 si no hay premio pendiente
+     */
+    public int getDadoPendiente() { return (int) leer(BIT_DADO, MASCARA_DADO); }
+    public void setDadoPendiente(int valorDado) {
+        hashZobrist ^= ClavesZobrist.dado(getDadoPendiente()) ^ ClavesZobrist.dado(valorDado & 0x7);
+        escribir(BIT_DADO, MASCARA_DADO, valorDado);
+    }
+
+    /**
+     * Pasa el turno al siguiente jugador
+     * Igual que Partida.cambiarTurno: reinicia el contador de 6 seguidos
+     */
+    public void cambiarTurno() {
+        int jugadores = getNumJugadores();
+        if (jugadores > 0) {
+            setTurno((getTurno() + 1) % jugadores);
+        }
+        setContadorSeis(0);
+    }
+
+    // ==================== Hash Zobrist ====================
+
+    /**
+     * Hash Zobrist de la posicion, mantenido de forma incremental
+     * Incluye fichas (por cantidad en cada codigo), turno, seises,
+     * premio pendiente, dado pendiente y ultima ficha movida
+     */
+    public long getHashZobrist() {
+        return hashZobrist;
+    }
+
+    /**
+     * Calcula el hash desde cero
+     * Sirve para reconstruir estados y para verificar el incremental
+     */
+    public long calcularHash() {
+        long h = 0L;
+        for (int jugador = 0; jugador < MAX_JUGADORES; jugador++) {
+            int base = jugador * FICHAS_POR_JUGADOR;
+            for (int k = 0; k < FICHAS_POR_JUGADOR; k++) {
+                int codigo = getCodigo(base + k);
+                int previas = 0;
+                for (int i = 0; i < k; i++) {
+                    if (getCodigo(base + i) == codigo) previas++;
+                }
+                h ^= ClavesZobrist.ficha(jugador, codigo, previas)
+                   ^ ClavesZobrist.ficha(jugador, codigo, previas + 1);
+            }
+        }
+        return h ^ ClavesZobrist.turno(getTurno())
+                 ^ ClavesZobrist.seis(getContadorSeis())
+                 ^ ClavesZobrist.premio(getCasillasPremio())
+                 ^ ClavesZobrist.dado(getDadoPendiente())
+                 ^ ClavesZobrist.ultima(getUltimaFicha() + 1);
+    }
+
+    // Palabras empaquetadas
+    public long getFichasBajas() { return fichasBajas; }
+    public long getFichasAltas() { return fichasAltas; }
+    public long getControl() { return control; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EstadoCompacto)) return false;
+        EstadoCompacto otro = (EstadoCompacto) o;
+        return fichasBajas == otro.fichasBajas
+                && fichasAltas == otro.fichasAltas
+                && control == otro.control;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = fichasBajas * 0x9E3779B97F4A7C15L;
+        h = (h ^ fichasAltas) * 0x9E3779B97F4A7C15L;
+        h = (h ^ control) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("EstadoCompacto{turno=");
+        sb.append(getTurno()).append(", seis=").append(getContadorSeis())
+          .append(", premio=").append(getCasillasPremio()).append(", fichas=[");
+        int total = getNumJugadores() * FICHAS_POR_JUGADOR;
+        for (int i = 0; i < total; i++) {
+            if (i > 0) sb.append(i % FICHAS_POR_JUGADOR == 0 ? " | " : " ");
+            int codigo = getCodigo(i);
+            sb.append(codigo == CODIGO_CASA ? "C" : codigo == CODIGO_META ? "M" : String.valueOf(codigo - 1));
+        }
+        return sb.append("]}").toString();
+    }
+}
@@ -1,15 +1,18 @@
 /**
  * Representa una ficha del juego 
  * Cada jugador tiene 4 fichas con IDs sincronizados
+ * Los IDs los asigna cada Partida al agregar al jugador,
+ * asi varias partidas conviven en la misma JVM sin chocar
  */
 package modelo;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 public class Ficha {
-    private static AtomicInteger contadorId = new AtomicInteger(0);
+    /** ID de una ficha que aun no pertenece a ninguna partida */
+    public static final int SIN_ID = 0;
+    
     private int idFicha;
     private String color;
+    private int indiceColor;
     private int posicion;
     private boolean enCasa;
     private boolean enMeta;
@@ -21,8 +24,9 @@ public class Ficha {
      * @param color Color de la ficha segun el jugador
      */
     public Ficha(String color) {
-        this.idFicha = contadorId.incrementAndGet();
+        this.idFicha = SIN_ID;
         this.color = color;
+        this.indiceColor = TablasTablero.indiceColor(color);
         this.posicion = -1;
         this.enCasa = true;
         this.enMeta = false;
@@ -43,30 +47,11 @@ public class Ficha {
     public Ficha(String color, int jugadorId, int idFicha) {
         this.idFicha = idFicha;
         this.color = color;
+        this.indiceColor = TablasTablero.indiceColor(color);
         this.jugadorId = jugadorId;
         this.posicion = -1;
         this.enCasa = true;
         this.enMeta = false;
-        
-        if (idFicha > contadorId.get()) {
-            contadorId.set(idFicha);
-        }
-    }
-    
-    /**
-     * Resetea el contador de IDs
-     * IMPORTANTE: Llamar este metodo al inicio del programa
-     */
-    public static void resetearContador() {
-        contadorId.set(0);
-    }
-    
-    /**
-     * Obtiene el contador actual 
-     * Util para sincronizacion
-     */
-    public static int getContadorActual() {
-        return contadorId.get();
     }
     
     /**
@@ -100,7 +85,9 @@ public class Ficha {
     }
     
     public int getIdFicha() { return idFicha; }
+    void setIdFicha(int idFicha) { this.idFicha = idFicha; }
     public String getColor() { return color; }
+    public int getIndiceColor() { return indiceColor; }
     public int getPosicion() { return posicion; }
     public void setPosicion(int posicion) { this.posicion = posicion; }
     public boolean isEnCasa() { return enCasa; }
@@ -0,0 +1,32 @@
+/**
+ * Origen de los valores del dado
+ * Permite cambiar el generador segun el uso: juego normal,
+ * repeticion exacta de una partida o simulacion masiva
+ */
+package modelo;
+
+public interface FuenteDados {
+    
+    /**
+     * Genera la siguiente tirada
+     * @return Valor del dado (1-6)
+     */
+    int lanzar();
+    
+    /**
+     * Indica si la secuencia se puede repetir a partir de la semilla
+     * @return true si getSemilla() reproduce exactamente las tiradas
+     */
+    default boolean esReproducible() {
+        return false;
+    }
+    
+    /**
+     * Semilla con la que se inicio la secuencia
+     * Solo tiene sentido si esReproducible() es true
+     * @return Semilla de la fuente
+     */
+    default long getSemilla() {
+        return 0L;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Fuente de dados que genera las tiradas por bloques
+ * Llena un buffer de enteros de una sola vez: cada numero de 64 bits
+ * aporta hasta 21 tiradas (grupos de 3 bits, descartando 6 y 7)
+ * Es determinista: la misma semilla da las mismas tiradas
+ */
+package modelo;
+
+public class FuenteDadosBloque implements FuenteDados {
+    public static final int TAMANO_POR_DEFECTO = 1024;
+    
+    private final FuenteDadosSemilla generador;
+    private final int[] buffer;
+    private int siguiente;
+    
+    /**
+     * Constructor con tamano de bloque por defecto
+     * @param semilla Semilla de la secuencia
+     */
+    public FuenteDadosBloque(long semilla) {
+        this(semilla, TAMANO_POR_DEFECTO);
+    }
+    
+    /**
+     * Constructor con tamano de bloque explicito
+     * @param semilla Semilla de la secuencia
+     * @param tamanoBloque Numero de tiradas por bloque
+     */
+    public FuenteDadosBloque(long semilla, int tamanoBloque) {
+        this.generador = new FuenteDadosSemilla(semilla);
+        this.buffer = new int[tamanoBloque];
+        this.siguiente = tamanoBloque;
+    }
+    
+    @Override
+    public int lanzar() {
+        if (siguiente == buffer.length) {
+            llenarBloque();
+        }
+        return buffer[siguiente++];
+    }
+    
+    /**
+     * Genera un bloque completo de tiradas
+     */
+    private void llenarBloque() {
+        int i = 0;
+        while (i < buffer.length) {
+            long bits = generador.siguienteLong();
+            for (int grupo = 0; grupo < 21 && i < buffer.length; grupo++) {
+                int valor = (int) (bits & 7L);
+                bits >>>= 3;
+                if (valor < 6) {
+                    buffer[i++] = valor + 1;
+                }
+            }
+        }
+        siguiente = 0;
+    }
+    
+    @Override
+    public boolean esReproducible() {
+        return true;
+    }
+    
+    @Override
+    public long getSemilla() {
+        return generador.getSemilla();
+    }
+}
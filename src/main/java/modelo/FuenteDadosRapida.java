@@ -0,0 +1,16 @@
+/**
+ * Fuente de dados rapida y no criptografica
+ * Usa el ThreadLocalRandom del hilo actual, sin estado compartido
+ * No es reproducible
+ */
+package modelo;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class FuenteDadosRapida implements FuenteDados {
+    
+    @Override
+    public int lanzar() {
+        return ThreadLocalRandom.current().nextInt(6) + 1;
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Fuente de dados determinista a partir de una semilla
+ * Implementa SplitMix64 directamente para que la secuencia sea
+ * identica en cualquier version de la JVM
+ * La misma semilla produce siempre las mismas tiradas
+ */
+package modelo;
+
+public class FuenteDadosSemilla implements FuenteDados {
+    private final long semilla;
+    private long estado;
+    
+    /**
+     * Constructor con semilla aleatoria
+     * La semilla queda disponible para repetir la partida
+     */
+    public FuenteDadosSemilla() {
+        this(mezclar(System.nanoTime() ^ System.currentTimeMillis() * 0x9E3779B97F4A7C15L));
+    }
+    
+    /**
+     * Constructor con semilla explicita
+     * @param semilla Semilla de la secuencia
+     */
+    public FuenteDadosSemilla(long semilla) {
+        this.semilla = semilla;
+        this.estado = semilla;
+    }
+    
+    @Override
+    public int lanzar() {
+        return (int) (((siguienteLong() >>> 32) * 6) >>> 32) + 1;
+    }
+    
+    /**
+     * Siguiente valor de 64 bits de la secuencia SplitMix64
+     */
+    long siguienteLong() {
+        estado += 0x9E3779B97F4A7C15L;
+        return mezclar(estado);
+    }
+    
+    static long mezclar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    @Override
+    public boolean esReproducible() {
+        return true;
+    }
+    
+    @Override
+    public long getSemilla() {
+        return semilla;
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Genera los movimientos legales de un estado compacto
+ * Escribe los movimientos en un arreglo de enteros reutilizable,
+ * sin crear objetos en cada llamada
+ *
+ * Cada movimiento es un int: bits 0-7 ficha, bits 8-15 codigo de destino
+ * Reglas consideradas: salida de casa con 5, premios de 10 y 20 casillas
+ * y barreras (NucleoReglas.esBarrera) que no se pueden saltar ni ocupar
+ */
+package modelo;
+
+public class GeneradorMovimientos {
+    /** Tamano minimo del arreglo de salida */
+    public static final int MAX_MOVIMIENTOS = EstadoCompacto.FICHAS_POR_JUGADOR;
+
+    private final Tablero tablero;
+
+    /**
+     * Constructor del generador
+     * @param tablero Tablero para consultar casillas de salida
+     */
+    public GeneradorMovimientos(Tablero tablero) {
+        this.tablero = tablero;
+    }
+
+    /**
+     * Genera los movimientos del jugador en turno para una tirada
+     * Con 5 puede sacar la primera ficha en casa; las fichas en juego avanzan
+     * @param estado Estado actual
+     * @param valorDado Valor del dado (1-6)
+     * @param salida Arreglo donde escribir los movimientos (minimo MAX_MOVIMIENTOS)
+     * @return Numero de movimientos escritos
+     */
+    public int generar(EstadoCompacto estado, int valorDado, int[] salida) {
+        return generar(estado, valorDado, false, salida);
+    }
+
+    /**
+     * Genera los movimientos para usar casillas de premio
+     * Solo las fichas en juego pueden usar el premio
+     * @param estado Estado actual
+     * @param casillas Casillas de premio (10 o 20)
+     * @param salida Arreglo donde escribir los movimientos
+     * @return Numero de movimientos escritos
+     */
+    public int generarPremio(EstadoCompacto estado, int casillas, int[] salida) {
+        return generar(estado, casillas, true, salida);
+    }
+
+    /**
+     * Indica si mover una ficha del jugador en turno es legal: si esta
+     * entre los movimientos que genera este generador
+     * Con 10 o 20 pasos es el uso de un premio; con 1-6, una tirada
+     * @param estado Estado actual
+     * @param ficha Indice global de la ficha
+     * @param pasos Valor del dado o casillas de premio
+     * @param trabajo Arreglo de al menos MAX_MOVIMIENTOS donde generar
+     */
+    public boolean esLegal(EstadoCompacto estado, int ficha, int pasos, int[] trabajo) {
+        int cantidad;
+        if (pasos == NucleoReglas.PREMIO_CAPTURA || pasos == NucleoReglas.PREMIO_META) {
+            cantidad = generarPremio(estado, pasos, trabajo);
+        } else if (pasos >= 1 && pasos <= 6) {
+            cantidad = generar(estado, pasos, trabajo);
+        } else {
+            return false;
+        }
+        for (int i = 0; i < cantidad; i++) {
+            if (ficha(trabajo[i]) == ficha) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int generar(EstadoCompacto estado, int pasos, boolean esPremio, int[] salida) {
+        int jugador = estado.getTurno();
+        int base = jugador * EstadoCompacto.FICHAS_POR_JUGADOR;
+
+        // Mapa de barreras (NucleoReglas.esBarrera): casillas 0-63 en un long y 64-67 en otro
+        long barrerasBajas = NucleoReglas.barreras(estado, false);
+        long barrerasAltas = NucleoReglas.barreras(estado, true);
+
+        int cantidad = 0;
+
+        if (!esPremio && pasos == 5) {
+            for (int k = 0; k < EstadoCompacto.FICHAS_POR_JUGADOR; k++) {
+                if (estado.estaEnCasa(base + k)) {
+                    int salidaCasa = tablero.getCasillaSalida(estado.getColor(jugador));
+                    if (!hayBarrera(barrerasBajas, barrerasAltas, salidaCasa, salidaCasa)) {
+                        salida[cantidad++] = codificar(base + k, salidaCasa);
+                    }
+                    break; // Solo una ficha puede salir por turno
+                }
+            }
+        }
+
+        for (int k = 0; k < EstadoCompacto.FICHAS_POR_JUGADOR; k++) {
+            int ficha = base + k;
+            if (!estado.estaEnJuego(ficha)) continue;
+
+            int origen = estado.getPosicion(ficha);
+            int destino = Math.min(origen + pasos, Tablero.CASILLA_META);
+            int ultimaRecorrida = Math.min(destino, Tablero.CASILLA_META - 1);
+            if (!hayBarrera(barrerasBajas, barrerasAltas, origen + 1, ultimaRecorrida)) {
+                salida[cantidad++] = codificar(ficha, destino);
+            }
+        }
+
+        return cantidad;
+    }
+
+    /**
+     * Verifica si alguna casilla del rango [desde, hasta] tiene barrera
+     */
+    private static boolean hayBarrera(long barrerasBajas, long barrerasAltas, int desde, int hasta) {
+        if (desde > hasta) return false;
+        if (desde < 64) {
+            long mascara = TablasTablero.mascaraRango(desde, Math.min(hasta, 63));
+            if ((barrerasBajas & mascara) != 0) return true;
+        }
+        if (hasta >= 64) {
+            long mascara = TablasTablero.mascaraRango(Math.max(desde, 64) - 64, hasta - 64);
+            if ((barrerasAltas & mascara) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Empaqueta un movimiento
+     * @param ficha Indice global de ficha
+     * @param destino Posicion de destino (67 = meta)
+     */
+    public static int codificar(int ficha, int destino) {
+        return ficha | ((destino + 1) << 8);
+    }
+
+    /**
+     * @return Indice global de la ficha que se mueve
+     */
+    public static int ficha(int movimiento) {
+        return movimiento & 0xFF;
+    }
+
+    /**
+     * @return Posicion de destino (67 = meta)
+     */
+    public static int destino(int movimiento) {
+        return (movimiento >>> 8) - 1;
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * Instantanea inmutable de una partida
+ * Cada movimiento devuelve una instantanea nueva y deja intacta la original,
+ * asi los bots y las herramientas de analisis pueden ramificar la partida
+ * sin copias profundas de Partida, Jugador, Ficha y Casilla
+ *
+ * Toda la posicion son las tres palabras de EstadoCompacto, de modo que
+ * crear un sucesor cuesta 24 bytes y comparar o usar como clave de un mapa
+ * es comparar tres longs. No hay partes mutables que compartir ni proteger
+ * Tambien guarda el hash Zobrist, que el sucesor hereda y actualiza
+ * de forma incremental
+ *
+ * Un premio (10 o 20 casillas) se juega como un paso propio: el sucesor
+ * queda con el premio pendiente y el mismo jugador en turno, y el turno
+ * extra por 6 se decide al usar o perder ese premio
+ */
+package modelo;
+
+public final class InstantaneaPartida {
+    /** Movimiento para pasar cuando no hay movimientos legales */
+    public static final int SIN_MOVIMIENTO = -1;
+
+    // Solo lectura: se comparten entre hilos
+    private static final GeneradorMovimientos GENERADOR = new GeneradorMovimientos(new Tablero());
+    // Estado y movimientos de trabajo de cada hilo, para no crearlos en cada sucesor
+    private static final ThreadLocal<Trabajo> TRABAJO = ThreadLocal.withInitial(Trabajo::new);
+
+    private final long fichasBajas;
+    private final long fichasAltas;
+    private final long control;
+    private final long hashZobrist;
+
+    private InstantaneaPartida(long fichasBajas, long fichasAltas, long control, long hashZobrist) {
+        this.fichasBajas = fichasBajas;
+        this.fichasAltas = fichasAltas;
+        this.control = control;
+        this.hashZobrist = hashZobrist;
+    }
+
+    /**
+     * Instantanea inicial con todas las fichas en casa
+     * @param colores Indice de color de cada asiento
+     */
+    public static InstantaneaPartida inicial(int... colores) {
+        return desde(EstadoCompacto.inicial(colores));
+    }
+
+    /**
+     * Instantanea de un estado compacto (se copia, no se enlaza)
+     */
+    public static InstantaneaPartida desde(EstadoCompacto estado) {
+        return new InstantaneaPartida(estado.getFichasBajas(), estado.getFichasAltas(),
+                                      estado.getControl(), estado.getHashZobrist());
+    }
+
+    /**
+     * Instantanea de una partida de objetos
+     */
+    public static InstantaneaPartida desde(Partida partida) {
+        return desde(partida.capturarEstado());
+    }
+
+    /**
+     * Estado compacto mutable con el mismo contenido
+     * Para restaurar una Partida o seguir jugando en el lugar
+     */
+    public EstadoCompacto aEstado() {
+        return EstadoCompacto.desdePalabras(fichasBajas, fichasAltas, control, hashZobrist);
+    }
+
+    /**
+     * Escribe los movimientos legales del jugador en turno
+     * Con un premio pendiente se generan los movimientos del premio
+     * y el valor del dado se ignora
+     * @param valorDado Valor del dado (1-6)
+     * @param salida Arreglo de al menos GeneradorMovimientos.MAX_MOVIMIENTOS
+     * @return Numero de movimientos escritos
+     */
+    public int movimientos(int valorDado, int[] salida) {
+        EstadoCompacto estado = cargarEn(TRABAJO.get().estado);
+        int premio = estado.getCasillasPremio();
+        return premio > 0
+            ? GENERADOR.generarPremio(estado, premio, salida)
+            : GENERADOR.generar(estado, valorDado, salida);
+    }
+
+    /**
+     * Juega un movimiento y devuelve la instantanea resultante
+     * Mismo NucleoReglas que MotorSimulacion: salida con 5, capturas, meta,
+     * turno extra con 6 y penalizacion por tres 6 seguidos
+     * @param movimiento Movimiento de movimientos(...) o SIN_MOVIMIENTO
+     * @param valorDado Valor del dado de la tirada (ignorado al usar un premio)
+     * @return Nueva instantanea; esta no cambia
+     */
+    public InstantaneaPartida jugar(int movimiento, int valorDado) {
+        Trabajo trabajo = TRABAJO.get();
+        EstadoCompacto estado = cargarEn(trabajo.estado);
+        int jugador = estado.getTurno();
+        int premio = estado.getCasillasPremio();
+
+        if (premio > 0) {
+            // El premio que genere el movimiento de premio se pierde
+            if (movimiento != SIN_MOVIMIENTO) {
+                NucleoReglas.mover(estado, GeneradorMovimientos.ficha(movimiento), premio);
+            }
+            valorDado = estado.getDadoPendiente();
+            estado.setCasillasPremio(0);
+            estado.setDadoPendiente(0);
+        } else if (movimiento != SIN_MOVIMIENTO) {
+            long resultado = NucleoReglas.mover(estado, GeneradorMovimientos.ficha(movimiento), valorDado);
+            int nuevoPremio = ResultadoMovimiento.premio(resultado);
+            if (nuevoPremio > 0 && estado.contarEnMeta(jugador) < EstadoCompacto.FICHAS_POR_JUGADOR) {
+                estado.setCasillasPremio(nuevoPremio);
+                if (GENERADOR.generarPremio(estado, nuevoPremio, trabajo.movimientos) > 0) {
+                    estado.setDadoPendiente(valorDado);
+                    return desde(estado);
+                }
+                estado.setCasillasPremio(0);
+            }
+        }
+
+        if (estado.contarEnMeta(jugador) == EstadoCompacto.FICHAS_POR_JUGADOR) {
+            return desde(estado);
+        }
+
+        NucleoReglas.cerrarTirada(estado, valorDado);
+        return desde(estado);
+    }
+
+    private EstadoCompacto cargarEn(EstadoCompacto estado) {
+        estado.cargarPalabras(fichasBajas, fichasAltas, control, hashZobrist);
+        return estado;
+    }
+
+    private static final class Trabajo {
+        final EstadoCompacto estado = new EstadoCompacto();
+        final int[] movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+    }
+
+    // ==================== Consultas ====================
+    // Se leen de las palabras, sin pasar por un EstadoCompacto
+
+    public int getTurno() { return EstadoCompacto.turno(control); }
+    public int getCasillasPremio() { return EstadoCompacto.casillasPremio(control); }
+    public boolean tienePremioPendiente() { return getCasillasPremio() > 0; }
+    public int getNumJugadores() { return EstadoCompacto.numJugadores(control); }
+    public int getCodigo(int ficha) { return EstadoCompacto.codigo(fichasBajas, fichasAltas, ficha); }
+    public int getGanador() { return EstadoCompacto.ganador(fichasBajas, fichasAltas, control); }
+    public boolean esFinal() { return getGanador() >= 0; }
+
+    public long getFichasBajas() { return fichasBajas; }
+    public long getFichasAltas() { return fichasAltas; }
+    public long getControl() { return control; }
+    public long getHashZobrist() { return hashZobrist; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof InstantaneaPartida)) return false;
+        InstantaneaPartida otra = (InstantaneaPartida) o;
+        return fichasBajas == otra.fichasBajas
+                && fichasAltas == otra.fichasAltas
+                && control == otra.control;
+    }
+
+    @Override
+    public int hashCode() {
+        long h = fichasBajas * 0x9E3779B97F4A7C15L;
+        h = (h ^ fichasAltas) * 0x9E3779B97F4A7C15L;
+        h = (h ^ control) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "Instantanea" + aEstado().toString().substring("EstadoCompacto".length());
+    }
+}
@@ -12,6 +12,7 @@ public class Jugador {
     private String nombre;
     private String avatar;
     private String color;
+    private int indiceColor;
     private List<Ficha> fichas;
     private boolean turno;
     
@@ -26,12 +27,13 @@ public class Jugador {
         this.idJugador = id;
         this.nombre = nombre;
         this.color = color;
+        this.indiceColor = TablasTablero.indiceColor(color);
         this.fichas = new ArrayList<>();
         this.turno = false;
         
         // Crear 4 fichas
         for (int i = 0; i < 4; i++) {
-            fichas.add(new Ficha(color));
+            fichas.add(new Ficha(color, id));
         }
     }
     
@@ -105,10 +107,54 @@ public class Jugador {
         return enJuego;
     }
     
+    /**
+     * Cuenta las fichas en casa sin crear listas
+     * @return Numero de fichas en casa
+     */
+    public int contarFichasEnCasa() {
+        int total = 0;
+        for (int i = 0; i < fichas.size(); i++) {
+            if (fichas.get(i).isEnCasa()) {
+                total++;
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Cuenta las fichas en el tablero sin crear listas
+     * @return Numero de fichas en juego
+     */
+    public int contarFichasEnJuego() {
+        int total = 0;
+        for (int i = 0; i < fichas.size(); i++) {
+            Ficha ficha = fichas.get(i);
+            if (!ficha.isEnCasa() && !ficha.isEnMeta()) {
+                total++;
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Cuenta las fichas que llegaron a meta
+     * @return Numero de fichas en meta
+     */
+    public int contarFichasEnMeta() {
+        int total = 0;
+        for (int i = 0; i < fichas.size(); i++) {
+            if (fichas.get(i).isEnMeta()) {
+                total++;
+            }
+        }
+        return total;
+    }
+    
     // Getters y Setters
     public int getIdJugador() { return idJugador; }
     public String getNombre() { return nombre; }
     public String getColor() { return color; }
+    public int getIndiceColor() { return indiceColor; }
     public List<Ficha> getFichas() { return fichas; }
     public boolean isTurno() { return turno; }
     public void setTurno(boolean turno) { this.turno = turno; }
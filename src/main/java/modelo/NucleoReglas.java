@@ -0,0 +1,167 @@
+/**
+ * Nucleo de reglas sin efectos secundarios
+ * Recibe un estado y un movimiento y produce el estado siguiente mas un
+ * ResultadoMovimiento (fichas comidas, barrera, meta, premio). No imprime,
+ * no registra ni envia nada por red: eso lo hacen los suscriptores de
+ * Partida a partir del resultado
+ *
+ * Lo usan la partida de objetos, MotorSimulacion, InstantaneaPartida y
+ * el servidor, asi que todas las rutas aplican exactamente las mismas reglas
+ */
+package modelo;
+
+public final class NucleoReglas {
+    public static final int PREMIO_CAPTURA = 20;
+    public static final int PREMIO_META = 10;
+    public static final int VALOR_SALIDA = 5;
+    /** Fichas de un mismo jugador en una casilla que forman barrera */
+    public static final int FICHAS_BARRERA = 2;
+
+    /** Resultados de cerrarTirada */
+    public static final int CAMBIO_TURNO = 0;
+    public static final int TURNO_EXTRA = 1;
+    public static final int PENALIZACION_TRES_SEIS = 2;
+
+    private NucleoReglas() {
+    }
+
+    /**
+     * Aplica un movimiento sin tocar el estado de origen
+     * @param origen Estado antes del movimiento (no se modifica)
+     * @param destino Estado donde se escribe el resultado
+     * @param ficha Indice global de la ficha
+     * @param pasos Valor del dado o casillas de premio
+     * @return Resultado empaquetado, o ResultadoMovimiento.NINGUNO
+     */
+    public static long jugar(EstadoCompacto origen, EstadoCompacto destino, int ficha, int pasos) {
+        destino.copiarDe(origen);
+        return mover(destino, ficha, pasos);
+    }
+
+    /**
+     * Aplica un movimiento sobre el estado en el lugar
+     * Saca la ficha con 5 o la avanza; despues come rivales fuera de
+     * casillas seguras, detecta barrera y llegada a meta
+     * @param estado Estado a modificar
+     * @param ficha Indice global de la ficha
+     * @param pasos Valor del dado o casillas de premio
+     * @return Resultado empaquetado, o ResultadoMovimiento.NINGUNO si la
+     *         ficha esta en meta o en casa sin un 5 (el estado no cambia)
+     */
+    public static long mover(EstadoCompacto estado, int ficha, int pasos) {
+        int origen = estado.getCodigo(ficha);
+        if (origen == EstadoCompacto.CODIGO_META
+                || (origen == EstadoCompacto.CODIGO_CASA && pasos != VALOR_SALIDA)) {
+            return ResultadoMovimiento.NINGUNO;
+        }
+
+        int jugador = EstadoCompacto.jugadorDeFicha(ficha);
+        long banderas = 0L;
+        if (origen == EstadoCompacto.CODIGO_CASA) {
+            estado.setPosicion(ficha, TablasTablero.salida(estado.getColor(jugador)));
+            banderas |= ResultadoMovimiento.SALIDA;
+        } else {
+            estado.setPosicion(ficha, estado.getPosicion(ficha) + pasos);
+        }
+        estado.setUltimaFicha(ficha);
+
+        int destino = estado.getCodigo(ficha);
+        if (destino == EstadoCompacto.CODIGO_META) {
+            return ResultadoMovimiento.empaquetar(ficha, origen, destino, pasos, 0, PREMIO_META,
+                                                  banderas | ResultadoMovimiento.META);
+        }
+
+        boolean segura = TablasTablero.esSegura(destino - 1);
+        int capturas = 0;
+        int propias = 0;
+        int totalFichas = estado.getNumJugadores() * EstadoCompacto.FICHAS_POR_JUGADOR;
+        for (int otra = 0; otra < totalFichas; otra++) {
+            if (estado.getCodigo(otra) != destino) {
+                continue;
+            }
+            if (EstadoCompacto.jugadorDeFicha(otra) == jugador) {
+                propias++;
+            } else if (!segura) {
+                estado.regresarACasa(otra);
+                capturas |= 1 << otra;
+            }
+        }
+
+        if (esBarrera(propias)) {
+            banderas |= ResultadoMovimiento.BARRERA;
+        }
+        int premio = capturas != 0 ? PREMIO_CAPTURA : 0;
+        return ResultadoMovimiento.empaquetar(ficha, origen, destino, pasos, capturas, premio, banderas);
+    }
+
+    /**
+     * Regla de barrera: una casilla tiene barrera si un jugador tiene ahi
+     * FICHAS_BARRERA fichas, aunque en una casilla segura haya tambien
+     * rivales. Una barrera no se puede saltar ni ocupar, tampoco al salir
+     * de casa. GeneradorMovimientos (con barreras), mover y Casilla la
+     * aplican desde aqui
+     * @param fichasDeUnJugador Fichas de un jugador en la casilla
+     */
+    public static boolean esBarrera(int fichasDeUnJugador) {
+        return fichasDeUnJugador >= FICHAS_BARRERA;
+    }
+
+    /**
+     * Casillas con barrera de un estado, como mapa de bits
+     * Bit i de la palabra baja es la casilla i; de la alta, la casilla 64 + i
+     * Con FICHAS_BARRERA = 2 la casilla tiene barrera cuando llega la
+     * segunda ficha de un mismo jugador
+     * @param altas false para las casillas 0-63, true para 64-67
+     */
+    public static long barreras(EstadoCompacto estado, boolean altas) {
+        long barreras = 0L;
+        for (int j = 0; j < estado.getNumJugadores(); j++) {
+            long palabra = (j < 2) ? estado.getFichasBajas() : estado.getFichasAltas();
+            int fichasJugador = (int) (palabra >>> ((j & 1) << 5));
+            long vistas = 0L;
+            for (int k = 0; k < EstadoCompacto.FICHAS_POR_JUGADOR; k++) {
+                int codigo = (fichasJugador >>> (k << 3)) & 0xFF;
+                if (codigo == EstadoCompacto.CODIGO_CASA || codigo == EstadoCompacto.CODIGO_META) continue;
+
+                int casilla = codigo - 1;
+                if ((casilla >= 64) != altas) continue;
+                long bit = 1L << (casilla & 63);
+                barreras |= vistas & bit;
+                vistas |= bit;
+            }
+        }
+        return barreras;
+    }
+
+    /**
+     * Cierra la tirada del jugador en turno
+     * Con 6 hay turno extra, salvo el tercero seguido: la ultima ficha
+     * movida vuelve a casa (si no esta en meta) y pasa el turno
+     * @param estado Estado a modificar
+     * @param valorDado Valor de la tirada
+     * @return CAMBIO_TURNO, TURNO_EXTRA o PENALIZACION_TRES_SEIS
+     */
+    public static int cerrarTirada(EstadoCompacto estado, int valorDado) {
+        if (valorDado != 6) {
+            pasarTurno(estado);
+            return CAMBIO_TURNO;
+        }
+
+        int contadorSeis = estado.getContadorSeis() + 1;
+        if (contadorSeis >= 3) {
+            int ultima = estado.getUltimaFicha();
+            if (ultima >= 0 && !estado.estaEnMeta(ultima)) {
+                estado.regresarACasa(ultima);
+            }
+            pasarTurno(estado);
+            return PENALIZACION_TRES_SEIS;
+        }
+        estado.setContadorSeis(contadorSeis);
+        return TURNO_EXTRA;
+    }
+
+    private static void pasarTurno(EstadoCompacto estado) {
+        estado.cambiarTurno();
+        estado.setUltimaFicha(-1);
+    }
+}
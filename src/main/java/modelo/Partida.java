@@ -6,7 +6,10 @@ package modelo;
 
 import utilidades.RegistroPartidaJSON;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Partida {
     private int idPartida;
@@ -16,20 +19,50 @@ public class Partida {
     private ReglasJuego reglas;
     private Jugador turnoActual;
     private int contadorSeis;
+    private int casillasPremio;
     private RegistroPartidaJSON registroJSON;
+    private Map<Integer, Ficha> fichasPorId;
+    private Map<Integer, Jugador> jugadoresPorId;
+    private Map<Integer, Integer> indicesPorId;
+    private int siguienteIdFicha;
+    private List<EscuchaMovimientos> suscriptores;
+    private EstadoCompacto estadoMovimiento;
     
     /**
      * Constructor de partida
+     * Los dados usan una semilla aleatoria que queda en el registro JSON
      * @param id Identificador de la partida
      */
     public Partida(int id) {
+        this(id, new FuenteDadosSemilla());
+    }
+    
+    /**
+     * Constructor con fuente de dados explicita
+     * Con una FuenteDadosSemilla y la semilla de un registro se repite la partida
+     * @param id Identificador de la partida
+     * @param fuenteDados Origen de las tiradas
+     */
+    public Partida(int id, FuenteDados fuenteDados) {
         this.idPartida = id;
         this.jugadores = new ArrayList<>();
         this.tablero = new Tablero();
-        this.dado = new Dado();
+        this.dado = new Dado(fuenteDados);
         this.reglas = new ReglasJuego();
         this.contadorSeis = 0;
+        this.casillasPremio = 0;
         this.registroJSON = new RegistroPartidaJSON();
+        this.fichasPorId = new HashMap<>();
+        this.jugadoresPorId = new HashMap<>();
+        this.indicesPorId = new HashMap<>();
+        this.siguienteIdFicha = 1;
+        this.suscriptores = new CopyOnWriteArrayList<>();
+        this.estadoMovimiento = new EstadoCompacto();
+        suscriptores.add(registroJSON);
+        
+        if (fuenteDados.esReproducible()) {
+            registroJSON.registrarSemilla(fuenteDados.getSemilla());
+        }
     }
     
     /**
@@ -125,16 +158,132 @@ public class Partida {
     /**
      * Agrega un jugador a la partida
      * Maximo 4 jugadores permitidos
+     * Las fichas sin ID reciben los siguientes IDs de esta partida, en orden
+     * de llegada; si ambos peers agregan a los jugadores en el mismo orden
+     * obtienen los mismos IDs
      * @param jugador Jugador a agregar
      */
     public void agregarJugador(Jugador jugador) {
         if (jugadores.size() < 4) {
+            int base = jugadores.size() * EstadoCompacto.FICHAS_POR_JUGADOR;
             jugadores.add(jugador);
+            jugadoresPorId.put(jugador.getIdJugador(), jugador);
+            List<Ficha> fichas = jugador.getFichas();
+            for (int k = 0; k < fichas.size(); k++) {
+                Ficha ficha = fichas.get(k);
+                if (ficha.getIdFicha() == Ficha.SIN_ID) {
+                    ficha.setIdFicha(siguienteIdFicha);
+                }
+                siguienteIdFicha = Math.max(siguienteIdFicha, ficha.getIdFicha() + 1);
+                fichasPorId.put(ficha.getIdFicha(), ficha);
+                indicesPorId.put(ficha.getIdFicha(), base + k);
+            }
             System.out.println("Jugador " + jugador.getNombre() + " agregado (ID: " + 
                              jugador.getIdJugador() + ")");
         }
     }
     
+    /**
+     * Busca un jugador por su ID en O(1)
+     * @param idJugador ID del jugador
+     * @return Jugador o null si no esta en la partida
+     */
+    public Jugador buscarJugador(int idJugador) {
+        return jugadoresPorId.get(idJugador);
+    }
+    
+    /**
+     * Busca una ficha por su ID en O(1)
+     * @param idFicha ID asignado por esta partida
+     * @return Ficha o null si no esta en la partida
+     */
+    public Ficha buscarFicha(int idFicha) {
+        return fichasPorId.get(idFicha);
+    }
+    
+    /**
+     * Agrega un suscriptor a los movimientos de la partida
+     * El registro JSON queda suscrito desde el constructor
+     * @param suscriptor Consola, red u otro oyente
+     */
+    public void suscribir(EscuchaMovimientos suscriptor) {
+        suscriptores.add(suscriptor);
+    }
+    
+    /**
+     * Quita un suscriptor de los movimientos de la partida
+     * @param suscriptor Oyente agregado con suscribir (o el registro JSON)
+     */
+    public void desuscribir(EscuchaMovimientos suscriptor) {
+        suscriptores.remove(suscriptor);
+    }
+    
+    /**
+     * Mueve una ficha con el nucleo de reglas y avisa a los suscriptores
+     * Las reglas se resuelven sobre un estado compacto reutilizado, asi son
+     * las mismas que en la simulacion; despues solo se actualizan en el
+     * tablero la ficha movida y las comidas, segun el resultado
+     * @param ficha Ficha a mover
+     * @param pasos Valor del dado o casillas de premio
+     * @return Resultado del movimiento, o ResultadoMovimiento.NINGUNO si no era valido
+     */
+    public long aplicarMovimiento(Ficha ficha, int pasos) {
+        int indice = indiceFicha(ficha);
+        if (indice < 0) {
+            return ResultadoMovimiento.NINGUNO;
+        }
+        
+        estadoMovimiento.cargar(this);
+        long resultado = NucleoReglas.mover(estadoMovimiento, indice, pasos);
+        if (resultado == ResultadoMovimiento.NINGUNO) {
+            return resultado;
+        }
+        aplicarResultado(ficha, resultado);
+        
+        Jugador jugador = jugadores.get(EstadoCompacto.jugadorDeFicha(indice));
+        for (EscuchaMovimientos suscriptor : suscriptores) {
+            suscriptor.movimientoAplicado(this, jugador, resultado);
+        }
+        return resultado;
+    }
+    
+    /**
+     * Lleva un resultado del nucleo a las fichas y casillas
+     * Con las operaciones incrementales del tablero: la ficha movida sale
+     * o avanza y cada comida vuelve a casa
+     */
+    private void aplicarResultado(Ficha ficha, long resultado) {
+        int destino = ResultadoMovimiento.destino(resultado) - 1;
+        if (ResultadoMovimiento.saleDeCasa(resultado)) {
+            tablero.sacarFicha(ficha, destino);
+        } else {
+            tablero.moverFicha(ficha, destino - ficha.getPosicion());
+        }
+        
+        int capturas = ResultadoMovimiento.capturas(resultado);
+        while (capturas != 0) {
+            tablero.enviarACasa(fichaEnIndice(Integer.numberOfTrailingZeros(capturas)));
+            capturas &= capturas - 1;
+        }
+    }
+    
+    /**
+     * Indice global de una ficha: asiento * 4 + posicion en la lista del jugador
+     * @return Indice o -1 si la ficha no es de esta partida
+     */
+    public int indiceFicha(Ficha ficha) {
+        Integer indice = indicesPorId.get(ficha.getIdFicha());
+        return (indice != null && fichaEnIndice(indice) == ficha) ? indice : -1;
+    }
+    
+    /**
+     * Ficha con un indice global, el inverso de indiceFicha
+     */
+    public Ficha fichaEnIndice(int indice) {
+        return jugadores.get(EstadoCompacto.jugadorDeFicha(indice))
+                        .getFichas().get(indice % EstadoCompacto.FICHAS_POR_JUGADOR);
+    }
+    
     /**
      * Busca un jugador por el color de su ficha
      */
@@ -147,6 +296,85 @@ public class Partida {
         return null;
     }
     
+    /**
+     * Obtiene una copia compacta del estado actual
+     * @return Estado empaquetado de fichas, turno y contador de 6
+     */
+    public EstadoCompacto capturarEstado() {
+        return EstadoCompacto.desde(this);
+    }
+    
+    /**
+     * Reconstruye fichas, casillas y turno a partir de un estado compacto
+     * Los asientos del estado corresponden al orden de la lista de jugadores
+     * @param estado Estado a cargar
+     */
+    public void restaurarEstado(EstadoCompacto estado) {
+        tablero.vaciar();
+        
+        for (int j = 0; j < jugadores.size() && j < EstadoCompacto.MAX_JUGADORES; j++) {
+            List<Ficha> fichas = jugadores.get(j).getFichas();
+            for (int k = 0; k < fichas.size() && k < EstadoCompacto.FICHAS_POR_JUGADOR; k++) {
+                Ficha ficha = fichas.get(k);
+                int indice = j * EstadoCompacto.FICHAS_POR_JUGADOR + k;
+                
+                if (estado.estaEnCasa(indice)) {
+                    ficha.regresarACasa();
+                } else if (estado.estaEnMeta(indice)) {
+                    ficha.setPosicion(Tablero.CASILLA_META);
+                    ficha.llegarMeta();
+                } else {
+                    ficha.setEnCasa(false);
+                    ficha.setEnMeta(false);
+                    ficha.setPosicion(estado.getPosicion(indice));
+                    tablero.colocarFicha(ficha);
+                }
+            }
+        }
+        
+        if (!jugadores.isEmpty()) {
+            for (Jugador j : jugadores) {
+                j.setTurno(false);
+            }
+            turnoActual = jugadores.get(estado.getTurno() % jugadores.size());
+            turnoActual.setTurno(true);
+        }
+        contadorSeis = estado.getContadorSeis();
+    }
+    
+    /**
+     * Estado para sincronizar con otro peer: el compacto mas el premio pendiente
+     * @return Estado con fichas, turno, contador de 6 y casillas de premio
+     */
+    public EstadoCompacto capturarSincronizacion() {
+        EstadoCompacto estado = capturarEstado();
+        estado.setCasillasPremio(casillasPremio);
+        return estado;
+    }
+    
+    /**
+     * Carga un estado de capturarSincronizacion, premio pendiente incluido
+     * @param estado Estado recibido de otro peer
+     */
+    public void restaurarSincronizacion(EstadoCompacto estado) {
+        restaurarEstado(estado);
+        casillasPremio = estado.getCasillasPremio();
+    }
+    
+    /**
+     * Busca un jugador por el indice de color de su ficha
+     * @param indiceColor Indice segun TablasTablero.COLORES
+     */
+    public Jugador buscarJugadorPorColor(int indiceColor) {
+        for (int i = 0; i < jugadores.size(); i++) {
+            Jugador j = jugadores.get(i);
+            if (j.getIndiceColor() == indiceColor) {
+                return j;
+            }
+        }
+        return null;
+    }
+    
     // Getters y Setters
     public int getIdPartida() { return idPartida; }
     public List<Jugador> getJugadores() { return jugadores; }
@@ -157,5 +385,7 @@ public class Partida {
     public int getContadorSeis() { return contadorSeis; }
     public void incrementarContadorSeis() { this.contadorSeis++; }
     public void reiniciarContadorSeis() { this.contadorSeis = 0; }
+    public int getCasillasPremio() { return casillasPremio; }
+    public void setCasillasPremio(int casillas) { this.casillasPremio = casillas; }
     public RegistroPartidaJSON getRegistroJSON() { return registroJSON; }
 }
\ No newline at end of file
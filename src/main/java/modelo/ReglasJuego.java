@@ -1,14 +1,10 @@
 /**
- * Define y aplica todas las reglas del Parchis Star
- * Incluye: turno extra, comer fichas, barreras, meta, penalizaciones
- * Registro apropiado de eventos
+ * Define las reglas del Parchis Star
+ * Incluye: turno extra, salida con 5, meta, penalizaciones
+ * La aplicacion de un movimiento (comer, barreras, meta) esta en NucleoReglas
  */
 package modelo;
 
-import utilidades.RegistroPartidaJSON;
-import java.util.ArrayList;
-import java.util.List;
-
 public class ReglasJuego {
     private String nombre;
     private String descripcion;
@@ -59,63 +55,4 @@ public class ReglasJuego {
     public boolean verificarMeta(Ficha ficha) {
         return ficha.getPosicion() >= 67 || ficha.isEnMeta();
     }
-    
-    /**
-     * Aplica todas las reglas del juego despues de un movimiento - CORREGIDO
-     * Verifica: comer fichas, barreras, llegada a meta
-     * @param jugador Jugador que realizo el movimiento
-     * @param ficha Ficha que se movio
-     * @param tablero Tablero del juego
-     * @param partida Partida actual para buscar jugadores
-     * @param registro Registro JSON para eventos
-     * @return Numero de casillas de premio (0, 10 o 20)
-     */
-    public int aplicar(Jugador jugador, Ficha ficha, Tablero tablero, Partida partida, RegistroPartidaJSON registro) {
-        int premioCasillas = 0;
-        int posicion = ficha.getPosicion();
-        Casilla casilla = tablero.getCasilla(posicion);
-        
-        if (casilla == null || ficha.isEnMeta()) return 0;
-        
-        if (!casilla.esSegura()) {
-            List<Ficha> fichasEnCasilla = new ArrayList<>(casilla.getFichas());
-            for (Ficha otraFicha : fichasEnCasilla) {
-                if (!otraFicha.equals(ficha) && !otraFicha.getColor().equals(ficha.getColor())) {
-                    System.out.println("\nFICHA COMIDA! " + jugador.getNombre() + 
-                                     " come ficha " + otraFicha.getColor());
-                    
-                    Jugador jugadorVictima = partida.buscarJugadorPorColor(otraFicha.getColor());
-                    String nombreVictima = (jugadorVictima != null) ? jugadorVictima.getNombre() : "Oponente";
-                    
-                    registro.registrarFichaComida(
-                        jugador.getNombre(),
-                        nombreVictima,
-                        otraFicha.getIdFicha()
-                    );
-                    
-                    otraFicha.regresarACasa();
-                    casilla.removerFicha(otraFicha);
-                    
-                    premioCasillas = 20;
-                    System.out.println("PREMIO: +20 casillas para avanzar con otra ficha");
-                }
-            }
-        }
-        
-        if (casilla.verificarBarrera()) {
-            System.out.println("BARRERA FORMADA en casilla " + posicion);
-        }
-        
-        if (verificarMeta(ficha) && !ficha.isEnMeta()) {
-            ficha.llegarMeta();
-            casilla.removerFicha(ficha);
-            
-            registro.registrarLlegadaMeta(jugador.getNombre(), ficha.getIdFicha());
-            
-            premioCasillas = 10;
-            System.out.println("FICHA EN META! +10 casillas de premio");
-        }
-        
-        return premioCasillas;
-    }
-}
\ No newline at end of file
+}
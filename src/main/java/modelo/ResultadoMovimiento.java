@@ -0,0 +1,85 @@
+/**
+ * Resultado de aplicar un movimiento, empaquetado en un long
+ * Lo devuelve NucleoReglas sin crear objetos; los suscriptores
+ * (consola, registro JSON, red) lo decodifican con estos metodos
+ *
+ * Bits: 0-4 ficha + 1, 5-11 codigo de origen, 12-18 codigo de destino,
+ * 19-23 pasos, 24-39 fichas comidas (un bit por indice global),
+ * 40-47 casillas de premio, 48 salida de casa, 49 barrera formada,
+ * 50 llegada a meta
+ */
+package modelo;
+
+public final class ResultadoMovimiento {
+    /** Movimiento que no se pudo aplicar */
+    public static final long NINGUNO = 0L;
+
+    private static final int BIT_ORIGEN = 5;
+    private static final int BIT_DESTINO = 12;
+    private static final int BIT_PASOS = 19;
+    private static final int BIT_CAPTURAS = 24;
+    private static final int BIT_PREMIO = 40;
+    static final long SALIDA = 1L << 48;
+    static final long BARRERA = 1L << 49;
+    static final long META = 1L << 50;
+
+    private ResultadoMovimiento() {
+    }
+
+    static long empaquetar(int ficha, int origen, int destino, int pasos,
+                           int capturas, int premio, long banderas) {
+        return (ficha + 1)
+             | ((long) origen << BIT_ORIGEN)
+             | ((long) destino << BIT_DESTINO)
+             | ((long) (pasos & 0x1F) << BIT_PASOS)
+             | ((long) (capturas & 0xFFFF) << BIT_CAPTURAS)
+             | ((long) (premio & 0xFF) << BIT_PREMIO)
+             | banderas;
+    }
+
+    /** Indice global de la ficha movida, o -1 si no hubo movimiento */
+    public static int ficha(long resultado) {
+        return (int) (resultado & 0x1F) - 1;
+    }
+
+    /** Codigo de posicion antes del movimiento (0 casa) */
+    public static int origen(long resultado) {
+        return (int) ((resultado >>> BIT_ORIGEN) & 0x7F);
+    }
+
+    /** Codigo de posicion despues del movimiento (68 meta) */
+    public static int destino(long resultado) {
+        return (int) ((resultado >>> BIT_DESTINO) & 0x7F);
+    }
+
+    /** Valor del dado o del premio con el que se movio */
+    public static int pasos(long resultado) {
+        return (int) ((resultado >>> BIT_PASOS) & 0x1F);
+    }
+
+    /** Mascara de fichas comidas: bit i = ficha de indice global i */
+    public static int capturas(long resultado) {
+        return (int) ((resultado >>> BIT_CAPTURAS) & 0xFFFF);
+    }
+
+    /** Casillas de premio ganadas (0, 10 o 20) */
+    public static int premio(long resultado) {
+        return (int) ((resultado >>> BIT_PREMIO) & 0xFF);
+    }
+
+    public static boolean saleDeCasa(long resultado) {
+        return (resultado & SALIDA) != 0;
+    }
+
+    public static boolean formaBarrera(long resultado) {
+        return (resultado & BARRERA) != 0;
+    }
+
+    public static boolean llegaMeta(long resultado) {
+        return (resultado & META) != 0;
+    }
+
+    public static boolean hayCaptura(long resultado) {
+        return capturas(resultado) != 0;
+    }
+}
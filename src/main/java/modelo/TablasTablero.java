@@ -0,0 +1,113 @@
+/**
+ * Tablas precalculadas del tablero
+ * Se construyen una sola vez, de modo que las reglas se resuelven con
+ * lecturas de arreglos en lugar de aritmetica o comparaciones de texto
+ *
+ * Todos los colores recorren las mismas casillas hasta la meta (67); solo
+ * cambia la casilla de salida. Por eso las tablas de recorrido son una sola,
+ * indexada con el codigo de posicion de EstadoCompacto (0 casa, 1-67
+ * casillas 0-66, 68 meta), y lo unico por color es la entrada desde casa
+ */
+package modelo;
+
+public final class TablasTablero {
+    public static final int TOTAL_CASILLAS = 68;
+    public static final int TOTAL_CODIGOS = EstadoCompacto.CODIGO_META + 1;
+    public static final int TOTAL_COLORES = 4;
+
+    /** Colores en el orden de sus indices */
+    public static final String[] COLORES = {"Amarillo", "Azul", "Rojo", "Verde"};
+
+    private static final int[] SALIDA = {5, 22, 39, 56};
+    private static final boolean[] SEGURA = new boolean[TOTAL_CASILLAS];
+    private static final int[] DISTANCIA_META = new int[TOTAL_CODIGOS];
+    private static final int[] SIGUIENTE = new int[TOTAL_CODIGOS];
+    // Entrada de casa de cada color, que depende de su salida
+    private static final int[] DISTANCIA_CASA = new int[TOTAL_COLORES];
+    private static final int[] SIGUIENTE_CASA = new int[TOTAL_COLORES];
+
+    static {
+        // Casillas seguras: las salidas y cada 17 posiciones
+        for (int i = 0; i < TOTAL_CASILLAS; i++) {
+            SEGURA[i] = (i % 17 == 0);
+        }
+        for (int salida : SALIDA) {
+            SEGURA[salida] = true;
+        }
+
+        for (int casilla = 0; casilla < Tablero.CASILLA_META; casilla++) {
+            DISTANCIA_META[casilla + 1] = Tablero.CASILLA_META - casilla;
+            SIGUIENTE[casilla + 1] = casilla + 2;
+        }
+        DISTANCIA_META[EstadoCompacto.CODIGO_META] = 0;
+        SIGUIENTE[EstadoCompacto.CODIGO_META] = EstadoCompacto.CODIGO_META;
+
+        // En casa: sale a su casilla de salida y aun le falta todo el recorrido
+        for (int color = 0; color < TOTAL_COLORES; color++) {
+            int salida = SALIDA[color] + 1;
+            DISTANCIA_CASA[color] = DISTANCIA_META[salida] + 1;
+            SIGUIENTE_CASA[color] = salida;
+        }
+    }
+
+    private TablasTablero() {
+    }
+
+    /**
+     * Obtiene el indice de un color por su nombre
+     * @param color Nombre del color (sin importar mayusculas)
+     * @return Indice 0-3, o 0 si el color no se reconoce
+     */
+    public static int indiceColor(String color) {
+        for (int i = 0; i < COLORES.length; i++) {
+            if (COLORES[i].equalsIgnoreCase(color)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param color Indice de color
+     * @return Casilla de salida de ese color
+     */
+    public static int salida(int color) {
+        return SALIDA[color];
+    }
+
+    /**
+     * @param casilla Numero de casilla (0-67)
+     * @return true si es casilla segura
+     */
+    public static boolean esSegura(int casilla) {
+        return SEGURA[casilla];
+    }
+
+    /**
+     * Mascara con los bits desde..hasta encendidos (0-63)
+     * Se usa con los mapas de barreras de 64 bits
+     */
+    static long mascaraRango(int desde, int hasta) {
+        long hastaArriba = (hasta == 63) ? -1L : (1L << (hasta + 1)) - 1;
+        return hastaArriba & (-1L << desde);
+    }
+
+    /**
+     * Casillas que le faltan a una ficha para llegar a meta
+     * @param color Indice de color
+     * @param codigo Codigo de posicion (0 casa, 68 meta)
+     */
+    public static int distanciaMeta(int color, int codigo) {
+        return codigo == EstadoCompacto.CODIGO_CASA ? DISTANCIA_CASA[color] : DISTANCIA_META[codigo];
+    }
+
+    /**
+     * Siguiente posicion en el recorrido de un color
+     * @param color Indice de color
+     * @param codigo Codigo de posicion actual
+     * @return Codigo de la siguiente posicion (desde casa, la salida)
+     */
+    public static int siguiente(int color, int codigo) {
+        return codigo == EstadoCompacto.CODIGO_CASA ? SIGUIENTE_CASA[color] : SIGUIENTE[codigo];
+    }
+}
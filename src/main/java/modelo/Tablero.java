@@ -9,8 +9,7 @@ import java.util.List;
 
 public class Tablero {
     private List<Casilla> casillas;
-    private static final int TOTAL_CASILLAS = 68;
-    private static final int CASILLA_META = 67;
+    public static final int CASILLA_META = 67;
     
     /**
      * Constructor del tablero
@@ -23,33 +22,25 @@ public class Tablero {
     
     /**
      * Inicializa el tablero con casillas normales y seguras
-     * Casillas seguras: 5, 22, 39, 56 (salidas) y cada 17 posiciones
+     * Casillas seguras segun TablasTablero: salidas y cada 17 posiciones
      */
     private void inicializarTablero() {
-        for (int i = 0; i < TOTAL_CASILLAS; i++) {
-            String tipo = "normal";
-            
-            if (i == 5 || i == 22 || i == 39 || i == 56 || i % 17 == 0) {
-                tipo = "segura";
-            }
-            
+        for (int i = 0; i < TablasTablero.TOTAL_CASILLAS; i++) {
+            String tipo = TablasTablero.esSegura(i) ? "segura" : "normal";
             casillas.add(new Casilla(i, tipo));
         }
     }
     
     /**
      * Mueve una ficha en el tablero - CORREGIDO
-     * Actualiza la posicion y maneja llegada a meta
+     * Actualiza la posicion, el indice de ocupacion y maneja llegada a meta
      * @param ficha Ficha a mover
      * @param pasos Numero de casillas a avanzar
      */
     public void moverFicha(Ficha ficha, int pasos) {
-        int posicionActual = ficha.getPosicion();
-        int nuevaPosicion = posicionActual + pasos;
+        int nuevaPosicion = ficha.getPosicion() + pasos;
         
-        if (posicionActual >= 0 && posicionActual < casillas.size()) {
-            casillas.get(posicionActual).removerFicha(ficha);
-        }
+        retirarFicha(ficha);
         
         if (nuevaPosicion >= CASILLA_META) {
             ficha.setPosicion(CASILLA_META);
@@ -58,12 +49,80 @@ public class Tablero {
         }
         
         ficha.setPosicion(nuevaPosicion);
-        
-        if (nuevaPosicion >= 0 && nuevaPosicion < casillas.size()) {
-            casillas.get(nuevaPosicion).agregarFicha(ficha);
+        colocarFicha(ficha);
+    }
+    
+    /**
+     * Saca una ficha de casa a una casilla de salida
+     * @param ficha Ficha en casa
+     * @param posicionSalida Casilla de salida de su color
+     */
+    public void sacarFicha(Ficha ficha, int posicionSalida) {
+        ficha.setEnCasa(false);
+        ficha.setPosicion(posicionSalida);
+        colocarFicha(ficha);
+    }
+    
+    /**
+     * Regresa una ficha a casa quitandola antes de su casilla
+     * Se usa al comer fichas y en la penalizacion de tres 6
+     * @param ficha Ficha a regresar
+     */
+    public void enviarACasa(Ficha ficha) {
+        retirarFicha(ficha);
+        ficha.regresarACasa();
+    }
+    
+    /**
+     * Agrega la ficha a la casilla de su posicion actual
+     * @param ficha Ficha ya posicionada en el tablero
+     */
+    public void colocarFicha(Ficha ficha) {
+        int posicion = ficha.getPosicion();
+        if (posicion >= 0 && posicion < casillas.size()) {
+            casillas.get(posicion).agregarFicha(ficha);
+        }
+    }
+    
+    /**
+     * Quita la ficha de la casilla de su posicion actual
+     * @param ficha Ficha a quitar
+     */
+    public void retirarFicha(Ficha ficha) {
+        int posicion = ficha.getPosicion();
+        if (posicion >= 0 && posicion < casillas.size()) {
+            casillas.get(posicion).removerFicha(ficha);
+        }
+    }
+    
+    /**
+     * Quita todas las fichas de las casillas
+     * Se usa antes de reconstruir el tablero desde un estado compacto
+     */
+    public void vaciar() {
+        for (Casilla casilla : casillas) {
+            casilla.vaciar();
         }
     }
     
+    /**
+     * Obtiene la casilla de salida de un color
+     * @param color Indice de color (0-3)
+     * @return Numero de casilla de salida
+     */
+    public int getCasillaSalida(int color) {
+        return TablasTablero.salida(color);
+    }
+    
+    /**
+     * Verifica si una posicion es casilla segura
+     * @param posicion Numero de casilla
+     * @return true si es segura, false si no o si no existe
+     */
+    public boolean esSegura(int posicion) {
+        return posicion >= 0 && posicion < TablasTablero.TOTAL_CASILLAS && TablasTablero.esSegura(posicion);
+    }
+    
     /**
      * Obtiene una casilla especifica del tablero
      * @param posicion Numero de casilla (0-67)
@@ -77,6 +136,6 @@ public class Tablero {
     }
     
     public List<Casilla> getCasillas() { return casillas; }
-    public int getTotalCasillas() { return TOTAL_CASILLAS; }
+    public int getTotalCasillas() { return TablasTablero.TOTAL_CASILLAS; }
     public int getCasillaMeta() { return CASILLA_META; }
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package red;
+
+import java.io.IOException;
+
+/**
+ * Bytes de varias tramas seguidas, para escribirlas con una sola escritura
+ * Lo usa un solo hilo escritor
+ */
+final class BufferSalida {
+    private final CodificadorMensajes codificador = new CodificadorMensajes();
+    private byte[] datos = new byte[256];
+    private int tamano;
+
+    /**
+     * Codifica el mensaje y agrega su trama al final
+     */
+    void agregar(MensajeJuego mensaje) throws IOException {
+        int longitud = codificador.codificar(mensaje);
+        if (tamano + longitud > datos.length) {
+            byte[] nuevo = new byte[Math.max(tamano + longitud, datos.length * 2)];
+            System.arraycopy(datos, 0, nuevo, 0, tamano);
+            datos = nuevo;
+        }
+        System.arraycopy(codificador.getBuffer(), codificador.getInicio(), datos, tamano, longitud);
+        tamano += longitud;
+    }
+
+    /**
+     * Quita del principio los bytes ya escritos
+     */
+    void quitar(int cantidad) {
+        System.arraycopy(datos, cantidad, datos, 0, tamano - cantidad);
+        tamano -= cantidad;
+    }
+
+    void vaciar() {
+        tamano = 0;
+    }
+
+    byte[] getDatos() { return datos; }
+    int getTamano() { return tamano; }
+}
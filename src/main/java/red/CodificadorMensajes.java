@@ -0,0 +1,228 @@
+package red;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escribe MensajeJuego como tramas binarias
+ *
+ * Trama: longitud del cuerpo (varint) y cuerpo
+ *   byte VERSION, byte codigo del TipoMensaje, emisor (cadena), datos
+ * Datos segun el tipo:
+ *   MOVIMIENTO    jugador, ficha, dado (varints)
+ *   CAMBIO_TURNO  jugador (varint)
+ *   TIRADA_DADO   valor (varint)
+ *   INICIO_JUEGO  nada
+ *   ESTADO_JUEGO  byte forma y segun la forma
+ *     completo    version, fichas bajas, fichas altas, control (varlongs)
+ *     delta       version base, version (varlongs), mascara de fichas
+ *                 (varint), un byte de codigo por ficha marcada, control (varlong)
+ *     solicitud   version conocida (varlong)
+ *   PING, PONG    marca del ping (varlong)
+ *   resto         contenido (cadena)
+ * Despues de los datos pueden ir campos opcionales: una mascara (varint)
+ * y los campos de cada bit encendido, en orden de bit
+ *   CAMPO_SESION  secuencia, confirmacion y, en SALUDO, token de sesion
+ *                 (varlongs); solo si el mensaje va por una SesionPeer
+ * Cadena: longitud en bytes (varint) y UTF-8
+ * Varint: 7 bits por byte, el bit alto indica que sigue otro byte
+ *
+ * Compatibilidad: el receptor ignora los bytes que sobran al final de un
+ * cuerpo y salta las tramas de tipos que no conoce. Un campo nuevo toma el
+ * siguiente bit de la mascara y se escribe despues de los anteriores: quien
+ * no conoce ese bit lee los suyos e ignora el resto. Un cambio incompatible
+ * sube VERSION y el receptor corta la conexion
+ *
+ * Un movimiento ocupa 3 bytes de datos; con un emisor de 8 caracteres la
+ * trama completa son 15 bytes. Un estado completo de dos jugadores ocupa
+ * unos 20 bytes de datos y un delta de un movimiento unos 10. Cada trama
+ * sale con una sola escritura
+ *
+ * Reutiliza su buffer: una instancia por conexion, sin uso concurrente
+ */
+public class CodificadorMensajes {
+    public static final int VERSION = 1;
+    /** Tamano maximo del cuerpo de una trama */
+    public static final int MAX_CUERPO = 64 * 1024;
+    // Espacio reservado delante del cuerpo para la longitud
+    static final int MAX_VARINT = 5;
+    static final int MAX_VARLONG = 10;
+    /** Bit de la mascara de campos opcionales: campos de SesionPeer */
+    static final int CAMPO_SESION = 1;
+
+    private byte[] buffer = new byte[256];
+    private int inicio;
+    private String ultimoEmisor;
+    private byte[] bytesEmisor;
+
+    /**
+     * Codifica y escribe un mensaje (sin flush)
+     * @throws IOException Si falla la escritura o el mensaje no cabe en una trama
+     */
+    public void escribir(MensajeJuego mensaje, OutputStream salida) throws IOException {
+        int longitud = codificar(mensaje);
+        salida.write(buffer, inicio, longitud);
+    }
+
+    /**
+     * Codifica un mensaje en el buffer interno
+     * La trama queda en getBuffer() desde getInicio()
+     * @return Longitud de la trama completa
+     * @throws IOException Si el mensaje no cabe en una trama
+     */
+    public int codificar(MensajeJuego mensaje) throws IOException {
+        MensajeJuego.TipoMensaje tipo = mensaje.getTipo();
+        int pos = MAX_VARINT;
+        asegurar(pos + 2);
+        buffer[pos++] = (byte) VERSION;
+        buffer[pos++] = (byte) tipo.getCodigo();
+        pos = escribirCadena(pos, bytesEmisor(mensaje.getEmisor()));
+
+        switch (tipo) {
+            case MOVIMIENTO:
+                asegurar(pos + 3 * MAX_VARINT);
+                pos = escribirVarint(buffer, pos, mensaje.getJugadorId());
+                pos = escribirVarint(buffer, pos, mensaje.getFichaId());
+                pos = escribirVarint(buffer, pos, mensaje.getValorDado());
+                break;
+            case CAMBIO_TURNO:
+                asegurar(pos + MAX_VARINT);
+                pos = escribirVarint(buffer, pos, mensaje.getJugadorId());
+                break;
+            case TIRADA_DADO:
+                asegurar(pos + MAX_VARINT);
+                pos = escribirVarint(buffer, pos, mensaje.getValorDado());
+                break;
+            case INICIO_JUEGO:
+                break;
+            case ESTADO_JUEGO:
+                pos = escribirEstado(pos, mensaje);
+                break;
+            case PING:
+            case PONG:
+                asegurar(pos + MAX_VARLONG);
+                pos = escribirVarlong(buffer, pos, mensaje.getMarcaLatido());
+                break;
+            default:
+                String contenido = mensaje.getContenido();
+                pos = escribirCadena(pos, contenido == null ? new byte[0]
+                    : contenido.getBytes(StandardCharsets.UTF_8));
+        }
+        if (mensaje.getSecuencia() != 0 || mensaje.getConfirmacion() != 0 || mensaje.getSesion() != 0) {
+            asegurar(pos + MAX_VARINT + 3 * MAX_VARLONG);
+            pos = escribirVarint(buffer, pos, CAMPO_SESION);
+            pos = escribirVarlong(buffer, pos, mensaje.getSecuencia());
+            pos = escribirVarlong(buffer, pos, mensaje.getConfirmacion());
+            if (tipo == MensajeJuego.TipoMensaje.SALUDO) {
+                pos = escribirVarlong(buffer, pos, mensaje.getSesion());
+            }
+        }
+
+        int cuerpo = pos - MAX_VARINT;
+        if (cuerpo > MAX_CUERPO) {
+            throw new IOException("Mensaje " + tipo + " demasiado grande: " + cuerpo + " bytes");
+        }
+        inicio = MAX_VARINT - tamanoVarint(cuerpo);
+        escribirVarint(buffer, inicio, cuerpo);
+        return pos - inicio;
+    }
+
+    private int escribirEstado(int pos, MensajeJuego mensaje) {
+        asegurar(pos + 1 + 4 * MAX_VARLONG + MAX_VARINT + 16);
+        int forma = mensaje.getFormaEstado();
+        buffer[pos++] = (byte) forma;
+        if (forma == MensajeJuego.ESTADO_SOLICITUD) {
+            return escribirVarlong(buffer, pos, mensaje.getVersion());
+        }
+        if (forma == MensajeJuego.ESTADO_COMPLETO) {
+            pos = escribirVarlong(buffer, pos, mensaje.getVersion());
+            pos = escribirVarlong(buffer, pos, mensaje.getFichasBajas());
+            pos = escribirVarlong(buffer, pos, mensaje.getFichasAltas());
+            return escribirVarlong(buffer, pos, mensaje.getControl());
+        }
+        int fichas = mensaje.getFichasCambiadas() & 0xFFFF;
+        pos = escribirVarlong(buffer, pos, mensaje.getVersionBase());
+        pos = escribirVarlong(buffer, pos, mensaje.getVersion());
+        pos = escribirVarint(buffer, pos, fichas);
+        for (int ficha = 0; fichas != 0; ficha++, fichas >>>= 1) {
+            if ((fichas & 1) != 0) {
+                long palabra = ficha < 8 ? mensaje.getFichasBajas() : mensaje.getFichasAltas();
+                buffer[pos++] = (byte) (palabra >>> ((ficha & 7) << 3));
+            }
+        }
+        return escribirVarlong(buffer, pos, mensaje.getControl());
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getInicio() {
+        return inicio;
+    }
+
+    /**
+     * El emisor casi nunca cambia en una conexion: se guardan sus bytes
+     */
+    private byte[] bytesEmisor(String emisor) {
+        if (emisor == null) {
+            emisor = "";
+        }
+        if (!emisor.equals(ultimoEmisor)) {
+            ultimoEmisor = emisor;
+            bytesEmisor = emisor.getBytes(StandardCharsets.UTF_8);
+        }
+        return bytesEmisor;
+    }
+
+    private int escribirCadena(int pos, byte[] bytes) {
+        asegurar(pos + MAX_VARINT + bytes.length);
+        pos = escribirVarint(buffer, pos, bytes.length);
+        System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+        return pos + bytes.length;
+    }
+
+    private void asegurar(int capacidad) {
+        if (capacidad > buffer.length) {
+            byte[] nuevo = new byte[Math.max(capacidad, buffer.length * 2)];
+            System.arraycopy(buffer, 0, nuevo, 0, buffer.length);
+            buffer = nuevo;
+        }
+    }
+
+    /**
+     * Escribe un entero como varint (los negativos ocupan 5 bytes)
+     * @return Posicion siguiente al ultimo byte escrito
+     */
+    static int escribirVarint(byte[] destino, int pos, int valor) {
+        while ((valor & ~0x7F) != 0) {
+            destino[pos++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        destino[pos++] = (byte) valor;
+        return pos;
+    }
+
+    /**
+     * Escribe un long como varint sin signo (hasta 10 bytes)
+     * @return Posicion siguiente al ultimo byte escrito
+     */
+    static int escribirVarlong(byte[] destino, int pos, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            destino[pos++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        destino[pos++] = (byte) valor;
+        return pos;
+    }
+
+    static int tamanoVarint(int valor) {
+        int tamano = 1;
+        while ((valor & ~0x7F) != 0) {
+            valor >>>= 7;
+            tamano++;
+        }
+        return tamano;
+    }
+}
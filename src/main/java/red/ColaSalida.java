@@ -0,0 +1,223 @@
+package red;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mensajes pendientes de enviar a un peer
+ * El que envia solo encola y sigue: un peer lento no frena al hilo del
+ * juego ni a la difusion a los demas. Un escritor (el hilo escritor de
+ * ConexionPeer o el hilo de seleccion de ConexionPeerNio) toma todo lo
+ * pendiente de una vez y lo escribe junto. Los limites los fija PoliticaSalida
+ */
+public class ColaSalida {
+    /** Resultado de ofrecer un mensaje */
+    public enum Resultado {
+        ENCOLADO,       // Quedo pendiente de escritura
+        DESCARTADO,     // Chat descartado por cola llena, o cola cerrada
+        DESCONECTAR     // El peer no da abasto: hay que cerrar la conexion
+    }
+
+    private final PoliticaSalida politica;
+    private final ArrayDeque<MensajeJuego> mensajes;
+    private final ReentrantLock lock;
+    private final Condition hayMensajes;
+    // Desde cuando esta llena (System.nanoTime), valido solo con llena
+    private boolean llena;
+    private long llenaDesde;
+    private long descartados;
+    // Chats en la cola: sin ninguno no se recorre la cola buscando cual tirar
+    private int chats;
+    private boolean cerrada;
+    private boolean cerrarAlVaciar;
+
+    public ColaSalida(PoliticaSalida politica) {
+        this.politica = politica;
+        this.mensajes = new ArrayDeque<>();
+        this.lock = new ReentrantLock();
+        this.hayMensajes = lock.newCondition();
+    }
+
+    /**
+     * Encola un mensaje aplicando la politica
+     */
+    public Resultado ofrecer(MensajeJuego mensaje) {
+        lock.lock();
+        try {
+            if (cerrada || cerrarAlVaciar) {
+                return Resultado.DESCARTADO;
+            }
+            if (mensajes.size() >= politica.getCapacidad()) {
+                // El tiempo de saturacion corre aunque se descarten chats
+                long ahora = System.nanoTime();
+                if (!llena) {
+                    llena = true;
+                    llenaDesde = ahora;
+                }
+                if (mensajes.size() >= politica.getLimiteDuro()
+                        || ahora - llenaDesde > politica.getMilisSaturacion() * 1_000_000) {
+                    return Resultado.DESCONECTAR;
+                }
+                if (politica.isDescartarChat()) {
+                    if (esChat(mensaje)) {
+                        descartados++;
+                        return Resultado.DESCARTADO;
+                    }
+                    if (chats > 0) {
+                        descartarChatMasViejo();
+                        mensajes.addLast(mensaje);
+                        return Resultado.ENCOLADO;
+                    }
+                }
+            }
+            agregar(mensaje);
+            if (mensajes.size() == 1) {
+                hayMensajes.signal();
+            }
+            return Resultado.ENCOLADO;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encola el ultimo mensaje: despues de escribirlo se cierra la conexion
+     */
+    public boolean ofrecerUltimo(MensajeJuego mensaje) {
+        lock.lock();
+        try {
+            if (cerrada || cerrarAlVaciar) {
+                return false;
+            }
+            agregar(mensaje);
+            cerrarAlVaciar = true;
+            hayMensajes.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void agregar(MensajeJuego mensaje) {
+        mensajes.addLast(mensaje);
+        if (esChat(mensaje)) {
+            chats++;
+        }
+    }
+
+    /**
+     * Solo con chats > 0: la cola llena de una partida sin chat se
+     * recorreria entera en cada mensaje, con el lock tomado
+     */
+    private void descartarChatMasViejo() {
+        Iterator<MensajeJuego> it = mensajes.iterator();
+        while (it.hasNext()) {
+            if (esChat(it.next())) {
+                it.remove();
+                chats--;
+                descartados++;
+                return;
+            }
+        }
+    }
+
+    private static boolean esChat(MensajeJuego mensaje) {
+        return mensaje.getTipo() == MensajeJuego.TipoMensaje.CHAT;
+    }
+
+    /**
+     * Pasa todo lo pendiente a la lista, sin esperar
+     * @return Cantidad de mensajes tomados
+     */
+    public int tomar(List<MensajeJuego> destino) {
+        lock.lock();
+        try {
+            int cantidad = mensajes.size();
+            destino.addAll(mensajes);
+            mensajes.clear();
+            chats = 0;
+            llena = false;
+            return cantidad;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Espera a que haya mensajes (para un hilo escritor)
+     * @return false si la cola se cerro o ya se tomo el ultimo mensaje
+     */
+    public boolean esperar() throws InterruptedException {
+        lock.lock();
+        try {
+            while (mensajes.isEmpty() && !cerrada && !cerrarAlVaciar) {
+                hayMensajes.await();
+            }
+            return !cerrada && !mensajes.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indica si ya se tomo el mensaje de ofrecerUltimo y hay que cerrar
+     */
+    public boolean debeCerrar() {
+        lock.lock();
+        try {
+            return cerrarAlVaciar && mensajes.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean estaVacia() {
+        lock.lock();
+        try {
+            return mensajes.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Descarta lo pendiente y despierta al escritor
+     */
+    public void cerrar() {
+        lock.lock();
+        try {
+            cerrada = true;
+            mensajes.clear();
+            chats = 0;
+            llena = false;
+            hayMensajes.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getPendientes() {
+        lock.lock();
+        try {
+            return mensajes.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDescartados() {
+        lock.lock();
+        try {
+            return descartados;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public PoliticaSalida getPolitica() {
+        return politica;
+    }
+}
@@ -2,55 +2,81 @@ package red;
 
 import java.io.*;
 import java.net.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Representa una conexin con otro jugador (peer)
+ * Avisa de los mensajes a un EscuchaRed: el gestor P2P o el servidor de mesas
+ * Es una tarea: P2PNetworkManager la corre en un hilo segun su ModoEjecucion
+ * y el servidor la ejecuta en su ejecutor compartido
+ * Los mensajes viajan como tramas binarias (CodificadorMensajes)
+ * Enviar solo encola en la ColaSalida del peer; un hilo escritor propio,
+ * que arranca run(), escribe juntas las tramas pendientes. Con
+ * ModoEjecucion.PLATAFORMA cada conexion ocupa dos hilos de plataforma
+ * (lector y escritor); con VIRTUAL los dos son virtuales
+ * ConexionPeerNio es la variante sin hilos propios, sobre TransporteNio
+ * Los PING se responden aqui mismo y los PONG se anotan en MetricasPeer:
+ * los latidos no llegan al gestor
  */
-public class ConexionPeer extends Thread {
+public class ConexionPeer implements Runnable {
     private Socket socket;
-    private ObjectOutputStream salida;
-    private ObjectInputStream entrada;
-    private P2PNetworkManager gestor;
-    private boolean conectado;
+    private OutputStream salida;
+    private InputStream entrada;
+    private final DecodificadorMensajes decodificador = new DecodificadorMensajes();
+    private final ColaSalida cola;
+    private EscuchaRed gestor;
+    private volatile boolean conectado;
     private String nombrePeer;
+    private volatile SesionPeer sesion;
+    private final MetricasPeer metricas = new MetricasPeer();
+    private final ModoEjecucion modo;
     
-    public ConexionPeer(Socket socket, P2PNetworkManager gestor) {
+    public ConexionPeer(Socket socket, EscuchaRed gestor) {
+        this(socket, gestor, ModoEjecucion.getPredeterminado(), PoliticaSalida.PREDETERMINADA);
+    }
+    
+    /**
+     * Constructor completo
+     * @param modo Modo del hilo escritor, que arranca run()
+     * @param politica Limites de la cola de salida
+     */
+    public ConexionPeer(Socket socket, EscuchaRed gestor, ModoEjecucion modo, PoliticaSalida politica) {
         this.socket = socket;
         this.gestor = gestor;
+        this.cola = new ColaSalida(politica);
+        this.modo = modo;
         this.conectado = true;
         this.nombrePeer = "Desconocido";
         
         try {
-            // Importante: crear ObjectOutputStream antes que ObjectInputStream
-            this.salida = new ObjectOutputStream(socket.getOutputStream());
-            this.salida.flush();
-            this.entrada = new ObjectInputStream(socket.getInputStream());
+            // El escritor junta las tramas en un buffer propio: la salida no necesita otro
+            this.salida = socket.getOutputStream();
+            this.entrada = new BufferedInputStream(socket.getInputStream());
         } catch (IOException e) {
             System.err.println("[RED] Error inicializando streams: " + e.getMessage());
             conectado = false;
         }
     }
     
+    /**
+     * Arranca el hilo escritor y lee mensajes hasta que se cierre la conexion
+     * Lo que se envio antes de run() espera en la cola
+     */
     @Override
     public void run() {
         System.out.println("[RED] Iniciando escucha de mensajes del peer...");
+        if (conectado) {
+            modo.crearHilo("red-escritor-" + getDireccion(), this::escribirPendientes).start();
+        }
         
         while (conectado) {
             try {
-                MensajeJuego mensaje = (MensajeJuego) entrada.readObject();
-                
-                // Si es saludo, guardar nombre del peer
-                if (mensaje.getTipo() == MensajeJuego.TipoMensaje.SALUDO) {
-                    nombrePeer = mensaje.getEmisor();
-                    System.out.println("[RED] Peer identificado como: " + nombrePeer);
-                }
-                
-                gestor.alRecibirMensaje(mensaje, this);
-                
+                entregar(decodificador.leer(entrada));
             } catch (EOFException e) {
                 System.out.println("[RED] Conexion cerrada por el peer");
                 break;
-            } catch (IOException | ClassNotFoundException e) {
+            } catch (IOException e) {
                 if (conectado) {
                     System.err.println("[RED] Error recibiendo mensaje: " + e.getMessage());
                 }
@@ -59,33 +85,156 @@ public class ConexionPeer extends Thread {
         }
         
         cerrar();
+        notificarDesconexion();
+    }
+    
+    /**
+     * Constructor para variantes con su propio transporte (ConexionPeerNio)
+     */
+    protected ConexionPeer(EscuchaRed gestor, PoliticaSalida politica) {
+        this.gestor = gestor;
+        this.cola = new ColaSalida(politica);
+        this.modo = null;
+        this.nombrePeer = "Desconocido";
+    }
+    
+    /**
+     * Entrega un mensaje recibido al gestor
+     * Si es saludo, guarda antes el nombre del peer
+     */
+    protected void entregar(MensajeJuego mensaje) {
+        metricas.registrarActividad();
+        switch (mensaje.getTipo()) {
+            case PING:
+                confirmarSesion(mensaje);
+                enviarMensaje(conConfirmacion(MensajeJuego.pong(mensaje.getMarcaLatido())));
+                return;
+            case PONG:
+                confirmarSesion(mensaje);
+                metricas.registrarPong(mensaje.getMarcaLatido());
+                return;
+            default:
+                break;
+        }
+        if (mensaje.getTipo() == MensajeJuego.TipoMensaje.SALUDO) {
+            nombrePeer = mensaje.getEmisor();
+            System.out.println("[RED] Peer identificado como: " + nombrePeer);
+        }
+        gestor.alRecibirMensaje(mensaje, this);
+    }
+    
+    /**
+     * Envia un PING con la marca actual (MonitorLatidos)
+     * Pasa por la cola como cualquier mensaje: si el peer no lee, la cola
+     * se llena y se aplica la politica de saturacion
+     */
+    public boolean enviarLatido() {
+        return enviarMensaje(conConfirmacion(MensajeJuego.ping(MetricasPeer.marcaActual())));
+    }
+    
+    /**
+     * Los latidos llevan la ultima secuencia recibida de la sesion: con
+     * la partida quieta el peer igual sabe que ya no tiene que repetir
+     */
+    private MensajeJuego conConfirmacion(MensajeJuego latido) {
+        SesionPeer actual = sesion;
+        if (actual != null) {
+            latido.setSesion(0, actual.getUltimaRecibida(), 0);
+        }
+        return latido;
+    }
+    
+    private void confirmarSesion(MensajeJuego latido) {
+        SesionPeer actual = sesion;
+        if (actual != null) {
+            actual.recibir(latido);
+        }
+    }
+    
+    /**
+     * Avisa al gestor que la conexion se cerro
+     */
+    protected void notificarDesconexion() {
         gestor.alDesconectarPeer(this);
     }
     
     /**
      * Envía un mensaje a este peer
+     * No espera al socket: el mensaje queda en la cola de salida
+     * @return false si se descarto o el peer se desconecto por saturado
      */
-    public synchronized boolean enviarMensaje(MensajeJuego mensaje) {
+    public boolean enviarMensaje(MensajeJuego mensaje) {
         if (!conectado || salida == null) {
             return false;
         }
-        
-        try {
-            salida.writeObject(mensaje);
-            salida.flush();
+        return aceptado(cola.ofrecer(mensaje));
+    }
+    
+    /**
+     * Envia un ultimo mensaje y cierra la conexion cuando se haya escrito
+     */
+    public boolean enviarYCerrar(MensajeJuego mensaje) {
+        if (conectado && cola.ofrecerUltimo(mensaje)) {
             return true;
+        }
+        cerrar();
+        return false;
+    }
+    
+    /**
+     * Aplica el resultado de ColaSalida.ofrecer
+     * @return true si el mensaje quedo encolado
+     */
+    protected boolean aceptado(ColaSalida.Resultado resultado) {
+        if (resultado == ColaSalida.Resultado.DESCONECTAR) {
+            System.err.println("[RED] Peer saturado, se desconecta: " + nombrePeer +
+                             " (" + cola.getPendientes() + " mensajes pendientes)");
+            cerrar();
+        }
+        return resultado == ColaSalida.Resultado.ENCOLADO;
+    }
+    
+    /**
+     * Hilo escritor: toma todo lo pendiente y lo escribe de una vez
+     * Mientras escribe, lo que se envia se acumula para la siguiente escritura
+     */
+    private void escribirPendientes() {
+        List<MensajeJuego> lote = new ArrayList<>();
+        BufferSalida buffer = new BufferSalida();
+        try {
+            while (cola.esperar()) {
+                cola.tomar(lote);
+                for (MensajeJuego mensaje : lote) {
+                    try {
+                        buffer.agregar(mensaje);
+                    } catch (IOException e) {
+                        System.err.println("[RED] Mensaje no enviado: " + e.getMessage());
+                    }
+                }
+                lote.clear();
+                salida.write(buffer.getDatos(), 0, buffer.getTamano());
+                buffer.vaciar();
+            }
+            if (cola.debeCerrar()) {
+                cerrar();
+            }
         } catch (IOException e) {
-            System.err.println("[RED] Error enviando mensaje: " + e.getMessage());
-            conectado = false;
-            return false;
+            if (conectado) {
+                System.err.println("[RED] Error enviando mensaje: " + e.getMessage());
+            }
+            cerrar();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
     
     /**
      * Cierra la conexión con este peer
+     * Lo que quedaba en la cola de salida se descarta
      */
     public void cerrar() {
         conectado = false;
+        cola.cerrar();
         
         try {
             if (entrada != null) entrada.close();
@@ -104,6 +253,36 @@ public class ConexionPeer extends Thread {
         return nombrePeer;
     }
     
+    /**
+     * Sesion que usa esta conexion, o null si no va por una sesion
+     */
+    public SesionPeer getSesion() {
+        return sesion;
+    }
+    
+    void setSesion(SesionPeer sesion) {
+        this.sesion = sesion;
+    }
+    
+    /**
+     * RTT, jitter y ultima actividad medidos con los latidos
+     */
+    public MetricasPeer getMetricas() {
+        return metricas;
+    }
+    
+    protected ColaSalida getColaSalida() {
+        return cola;
+    }
+    
+    public int getMensajesPendientes() {
+        return cola.getPendientes();
+    }
+    
+    public long getMensajesDescartados() {
+        return cola.getDescartados();
+    }
+    
     public String getDireccion() {
         return socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
     }
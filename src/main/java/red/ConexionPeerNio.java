@@ -0,0 +1,241 @@
+package red;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Conexion con un peer atendida por un hilo de seleccion de TransporteNio
+ * No tiene hilo propio: el hilo de seleccion lee lo que llega, arma las
+ * tramas completas y las entrega al gestor como ConexionPeer
+ *
+ * Los mensajes enviados esperan en la ColaSalida; el hilo de seleccion
+ * los codifica y los escribe juntos cuando el socket lo permite. Mientras
+ * queden bytes sin escribir no se toman mas mensajes, asi un peer lento
+ * llena su cola y se le aplica la PoliticaSalida
+ */
+public class ConexionPeerNio extends ConexionPeer {
+    private final SocketChannel canal;
+    private final TransporteNio.Bucle bucle;
+    private final String direccion;
+    private final AtomicBoolean cerrada;
+    private final AtomicBoolean escrituraPedida;
+    // Solo desde el hilo de seleccion
+    private SelectionKey clave;
+    private final DecodificadorMensajes decodificador;
+    private byte[] entrada;
+    private int bytesEntrada;
+    private final List<MensajeJuego> lote;
+    private final BufferSalida salida;
+
+    ConexionPeerNio(SocketChannel canal, TransporteNio.Bucle bucle, EscuchaRed gestor,
+                    PoliticaSalida politica) throws IOException {
+        super(gestor, politica);
+        this.canal = canal;
+        this.bucle = bucle;
+        InetSocketAddress remota = (InetSocketAddress) canal.getRemoteAddress();
+        this.direccion = remota.getAddress().getHostAddress() + ":" + remota.getPort();
+        this.cerrada = new AtomicBoolean(false);
+        this.escrituraPedida = new AtomicBoolean(false);
+        this.decodificador = new DecodificadorMensajes();
+        this.entrada = new byte[256];
+        this.lote = new ArrayList<>();
+        this.salida = new BufferSalida();
+    }
+
+    /**
+     * La lectura la hace el hilo de seleccion: no hay nada que correr
+     */
+    @Override
+    public void run() {
+    }
+
+    /**
+     * Deja el mensaje en la cola de salida; no espera al socket
+     */
+    @Override
+    public boolean enviarMensaje(MensajeJuego mensaje) {
+        if (cerrada.get()) {
+            return false;
+        }
+        boolean encolado = aceptado(getColaSalida().ofrecer(mensaje));
+        if (encolado) {
+            pedirEscritura();
+        }
+        return encolado;
+    }
+
+    @Override
+    public boolean enviarYCerrar(MensajeJuego mensaje) {
+        if (!cerrada.get() && getColaSalida().ofrecerUltimo(mensaje)) {
+            pedirEscritura();
+            return true;
+        }
+        cerrar();
+        return false;
+    }
+
+    private void pedirEscritura() {
+        if (escrituraPedida.compareAndSet(false, true)) {
+            bucle.pedirEscritura(this);
+        }
+    }
+
+    /**
+     * Lee lo disponible y entrega las tramas completas (hilo de seleccion)
+     * Lo que queda de una trama incompleta espera a la siguiente lectura
+     * @param lectura Buffer directo del hilo de seleccion
+     */
+    void leer(ByteBuffer lectura) throws IOException {
+        lectura.clear();
+        int leidos = canal.read(lectura);
+        if (leidos < 0) {
+            throw new EOFException();
+        }
+        if (leidos == 0) {
+            return;
+        }
+        lectura.flip();
+        if (bytesEntrada + leidos > entrada.length) {
+            byte[] nuevo = new byte[Math.max(bytesEntrada + leidos, entrada.length * 2)];
+            System.arraycopy(entrada, 0, nuevo, 0, bytesEntrada);
+            entrada = nuevo;
+        }
+        lectura.get(entrada, bytesEntrada, leidos);
+        bytesEntrada += leidos;
+
+        int pos = 0;
+        while (pos < bytesEntrada && !cerrada.get()) {
+            int longitud = 0;
+            int cuerpo = -1;
+            for (int p = pos, desplazamiento = 0; p < bytesEntrada; p++, desplazamiento += 7) {
+                if (desplazamiento >= 35) {
+                    throw new IOException("Longitud de trama mal formada");
+                }
+                int b = entrada[p] & 0xFF;
+                longitud |= (b & 0x7F) << desplazamiento;
+                if ((b & 0x80) == 0) {
+                    cuerpo = p + 1;
+                    break;
+                }
+            }
+            if (cuerpo < 0) {
+                break;
+            }
+            if (longitud < 0 || longitud > CodificadorMensajes.MAX_CUERPO) {
+                throw new IOException("Longitud de trama invalida: " + longitud);
+            }
+            if (cuerpo + longitud > bytesEntrada) {
+                break;
+            }
+            MensajeJuego mensaje = decodificador.decodificar(entrada, cuerpo, longitud);
+            pos = cuerpo + longitud;
+            if (mensaje != null) {
+                entregar(mensaje);
+            }
+        }
+        System.arraycopy(entrada, pos, entrada, 0, bytesEntrada - pos);
+        bytesEntrada -= pos;
+    }
+
+    /**
+     * Escribe lo pendiente hasta vaciarlo o llenar el socket (hilo de seleccion)
+     * Con el socket lleno se espera OP_WRITE para seguir
+     * @param escritura Buffer directo del hilo de seleccion
+     */
+    void escribir(ByteBuffer escritura) throws IOException {
+        ColaSalida cola = getColaSalida();
+        while (true) {
+            if (salida.getTamano() == 0) {
+                cola.tomar(lote);
+                for (MensajeJuego mensaje : lote) {
+                    try {
+                        salida.agregar(mensaje);
+                    } catch (IOException e) {
+                        System.err.println("[RED] Mensaje no enviado: " + e.getMessage());
+                    }
+                }
+                lote.clear();
+            }
+            if (salida.getTamano() == 0) {
+                if (cola.debeCerrar()) {
+                    cerrar();
+                    return;
+                }
+                escrituraPedida.set(false);
+                // Lo encolado antes de bajar la bandera no pidio escritura
+                if (cola.estaVacia() || !escrituraPedida.compareAndSet(false, true)) {
+                    interes(SelectionKey.OP_READ);
+                    return;
+                }
+                continue;
+            }
+
+            int cantidad = Math.min(salida.getTamano(), escritura.capacity());
+            escritura.clear();
+            escritura.put(salida.getDatos(), 0, cantidad);
+            escritura.flip();
+            int escritos = canal.write(escritura);
+            salida.quitar(escritos);
+            if (escritos < cantidad) {
+                interes(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+    }
+
+    private void interes(int operaciones) {
+        if (clave != null && clave.isValid() && clave.interestOps() != operaciones) {
+            clave.interestOps(operaciones);
+        }
+    }
+
+    void setClave(SelectionKey clave) {
+        this.clave = clave;
+    }
+
+    /**
+     * Cierra por un error de lectura o escritura (hilo de seleccion)
+     */
+    void cerrarPorError(IOException e) {
+        if (e instanceof EOFException) {
+            System.out.println("[RED] Conexion cerrada por el peer");
+        } else if (!cerrada.get()) {
+            System.err.println("[RED] Error en conexion con " + direccion + ": " + e.getMessage());
+        }
+        cerrar();
+    }
+
+    /**
+     * Cierra el canal; el gestor recibe el aviso desde el hilo de avisos del transporte
+     */
+    @Override
+    public void cerrar() {
+        if (!cerrada.compareAndSet(false, true)) {
+            return;
+        }
+        getColaSalida().cerrar();
+        try {
+            canal.close();
+        } catch (IOException e) {
+            System.err.println("[RED] Error cerrando conexion: " + e.getMessage());
+        }
+        bucle.desconectada(this);
+    }
+
+    @Override
+    public boolean estaConectado() {
+        return !cerrada.get() && canal.isOpen();
+    }
+
+    @Override
+    public String getDireccion() {
+        return direccion;
+    }
+}
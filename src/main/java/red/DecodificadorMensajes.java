@@ -0,0 +1,216 @@
+package red;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lee las tramas binarias que escribe CodificadorMensajes
+ * El cuerpo se lee en un buffer propio que se reutiliza y los campos se
+ * toman de ahi sin objetos intermedios; el emisor se compara con el de la
+ * trama anterior y, si es el mismo, se reutiliza su String. En el caso
+ * comun la unica reserva de memoria es el MensajeJuego
+ *
+ * Una instancia por conexion, sin uso concurrente
+ */
+public class DecodificadorMensajes {
+    private byte[] buffer = new byte[256];
+    // Trama que se esta decodificando
+    private byte[] datos;
+    private int pos;
+    private int fin;
+    private byte[] bytesEmisor = new byte[0];
+    private String ultimoEmisor = "";
+
+    /**
+     * Lee la siguiente trama de un tipo conocido
+     * Conviene que la entrada tenga buffer: la longitud se lee byte a byte
+     * @return Mensaje leido
+     * @throws EOFException Si la conexion se cierra entre tramas o a mitad de una
+     * @throws IOException Si la trama es invalida o de otra version
+     */
+    public MensajeJuego leer(InputStream entrada) throws IOException {
+        while (true) {
+            int longitud = leerLongitud(entrada);
+            if (longitud > buffer.length) {
+                buffer = new byte[Math.max(longitud, buffer.length * 2)];
+            }
+            if (entrada.readNBytes(buffer, 0, longitud) < longitud) {
+                throw new EOFException("Trama incompleta");
+            }
+            MensajeJuego mensaje = decodificar(buffer, 0, longitud);
+            if (mensaje != null) {
+                return mensaje;
+            }
+        }
+    }
+
+    /**
+     * Decodifica el cuerpo de una trama (sin la longitud)
+     * @return Mensaje, o null si el tipo es desconocido y hay que ignorarlo
+     * @throws IOException Si el cuerpo es invalido o de otra version
+     */
+    public MensajeJuego decodificar(byte[] datos, int desde, int longitud) throws IOException {
+        this.datos = datos;
+        pos = desde;
+        fin = desde + longitud;
+        int version = leerByte();
+        if (version != CodificadorMensajes.VERSION) {
+            throw new IOException("Version de protocolo no soportada: " + version);
+        }
+        MensajeJuego.TipoMensaje tipo = MensajeJuego.TipoMensaje.desdeCodigo(leerByte());
+        if (tipo == null) {
+            return null;
+        }
+        String emisor = leerEmisor();
+        MensajeJuego mensaje;
+        switch (tipo) {
+            case MOVIMIENTO:
+                int jugadorId = leerVarint();
+                int fichaId = leerVarint();
+                mensaje = MensajeJuego.movimiento(emisor, jugadorId, fichaId, leerVarint());
+                break;
+            case CAMBIO_TURNO:
+                mensaje = MensajeJuego.cambioTurno(emisor, leerVarint());
+                break;
+            case TIRADA_DADO:
+                mensaje = MensajeJuego.tiradaDado(emisor, leerVarint());
+                break;
+            case INICIO_JUEGO:
+                mensaje = MensajeJuego.inicioJuego(emisor);
+                break;
+            case ESTADO_JUEGO:
+                mensaje = leerEstado(emisor);
+                break;
+            case PING:
+                mensaje = MensajeJuego.ping(leerVarlong());
+                break;
+            case PONG:
+                mensaje = MensajeJuego.pong(leerVarlong());
+                break;
+            default:
+                int tamano = leerTamano();
+                String contenido = new String(datos, pos, tamano, StandardCharsets.UTF_8);
+                pos += tamano;
+                mensaje = new MensajeJuego(tipo, emisor, contenido);
+        }
+        // Campos opcionales: los bits que no se conocen son de versiones
+        // posteriores, van despues de los conocidos y se ignoran
+        if (pos < fin) {
+            int campos = leerVarint();
+            if ((campos & CodificadorMensajes.CAMPO_SESION) != 0) {
+                long secuencia = leerVarlong();
+                long confirmacion = leerVarlong();
+                long sesion = tipo == MensajeJuego.TipoMensaje.SALUDO ? leerVarlong() : 0;
+                mensaje.setSesion(secuencia, confirmacion, sesion);
+            }
+        }
+        return mensaje;
+    }
+
+    private MensajeJuego leerEstado(String emisor) throws IOException {
+        int forma = leerByte();
+        switch (forma) {
+            case MensajeJuego.ESTADO_SOLICITUD:
+                return MensajeJuego.solicitudEstado(emisor, leerVarlong());
+            case MensajeJuego.ESTADO_COMPLETO:
+                long version = leerVarlong();
+                long fichasBajas = leerVarlong();
+                long fichasAltas = leerVarlong();
+                return MensajeJuego.estadoCompleto(emisor, version, fichasBajas, fichasAltas, leerVarlong());
+            case MensajeJuego.ESTADO_DELTA:
+                long versionBase = leerVarlong();
+                long versionDelta = leerVarlong();
+                int fichas = leerVarint();
+                if ((fichas & ~0xFFFF) != 0) {
+                    throw new IOException("Mascara de fichas invalida: " + fichas);
+                }
+                // Las fichas que no cambiaron quedan en 0
+                long bajas = 0;
+                long altas = 0;
+                for (int ficha = 0, resto = fichas; resto != 0; ficha++, resto >>>= 1) {
+                    if ((resto & 1) != 0) {
+                        long codigo = (long) leerByte() << ((ficha & 7) << 3);
+                        if (ficha < 8) {
+                            bajas |= codigo;
+                        } else {
+                            altas |= codigo;
+                        }
+                    }
+                }
+                return MensajeJuego.estadoDelta(emisor, versionBase, versionDelta, fichas,
+                                                bajas, altas, leerVarlong());
+            default:
+                throw new IOException("Forma de estado desconocida: " + forma);
+        }
+    }
+
+    private int leerLongitud(InputStream entrada) throws IOException {
+        int valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 35; desplazamiento += 7) {
+            int b = entrada.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            valor |= (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                if (valor < 0 || valor > CodificadorMensajes.MAX_CUERPO) {
+                    throw new IOException("Longitud de trama invalida: " + valor);
+                }
+                return valor;
+            }
+        }
+        throw new IOException("Longitud de trama mal formada");
+    }
+
+    private String leerEmisor() throws IOException {
+        int tamano = leerTamano();
+        if (!Arrays.equals(datos, pos, pos + tamano, bytesEmisor, 0, bytesEmisor.length)) {
+            bytesEmisor = Arrays.copyOfRange(datos, pos, pos + tamano);
+            ultimoEmisor = new String(bytesEmisor, StandardCharsets.UTF_8);
+        }
+        pos += tamano;
+        return ultimoEmisor;
+    }
+
+    private int leerTamano() throws IOException {
+        int tamano = leerVarint();
+        if (tamano < 0 || tamano > fin - pos) {
+            throw new IOException("Cadena fuera de la trama: " + tamano + " bytes");
+        }
+        return tamano;
+    }
+
+    private int leerByte() throws IOException {
+        if (pos >= fin) {
+            throw new IOException("Trama truncada");
+        }
+        return datos[pos++] & 0xFF;
+    }
+
+    private int leerVarint() throws IOException {
+        int valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 35; desplazamiento += 7) {
+            int b = leerByte();
+            valor |= (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("Varint mal formado");
+    }
+
+    private long leerVarlong() throws IOException {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 70; desplazamiento += 7) {
+            int b = leerByte();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("Varlong mal formado");
+    }
+}
@@ -8,6 +8,8 @@ import java.util.concurrent.*;
 /**
  * Sistema de descubrimiento 
  * Funciona entre diferentes subredes en la misma PC
+ * En ModoEjecucion.VIRTUAL cada sondeo y cada respuesta a un ping tiene su
+ * hilo virtual, asi que todas las IPs se sondean a la vez
  */
 public class DescubrimientoRed {
     private static final int PUERTO_DESCUBRIMIENTO = 9999;
@@ -21,6 +23,7 @@ public class DescubrimientoRed {
     private boolean escuchando;
     private Thread hiloEscucha;
     private List<JugadorEncontrado> jugadoresEncontrados;
+    private final ModoEjecucion modo;
     private ExecutorService executor;
     private Set<String> misIPs;
     
@@ -31,9 +34,10 @@ public class DescubrimientoRed {
         this.jugadoresEncontrados = new CopyOnWriteArrayList<>();
         this.escuchando = false;
         
-        // Reducir threads para evitar sobrecarga
+        // Reducir threads de plataforma para evitar sobrecarga
         int maxThreads = Math.min(Runtime.getRuntime().availableProcessors() * 2, 50);
-        this.executor = Executors.newFixedThreadPool(maxThreads);
+        this.modo = ModoEjecucion.getPredeterminado();
+        this.executor = modo.crearEjecutor(maxThreads);
         this.misIPs = new HashSet<>();
     }
     
@@ -110,7 +114,7 @@ public class DescubrimientoRed {
      * Inicia modo de respuesta - servidor TCP que escucha conexiones
      */
     public void iniciarModoRespuesta() {
-        hiloEscucha = new Thread(() -> {
+        hiloEscucha = modo.crearHilo("descubrimiento", () -> {
             try {
                 serverDescubrimiento = new ServerSocket(PUERTO_DESCUBRIMIENTO);
                 serverDescubrimiento.setSoTimeout(1000);
@@ -14,4 +14,11 @@ public interface EscuchaRed {
      * Se llama cuando un peer se desconecta
      */
     void alDesconectarPeer(ConexionPeer peer);
+    
+    /**
+     * Se llama cuando un peer desconectado reanuda su sesion (SesionPeer)
+     * @param sinPerdidas false si se perdieron mensajes y hay que pedir el estado
+     */
+    default void alReanudarPeer(ConexionPeer peer, boolean sinPerdidas) {
+    }
 }
\ No newline at end of file
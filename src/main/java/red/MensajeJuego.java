@@ -1,38 +1,274 @@
 package red;
 
 import java.io.Serializable;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 /**
  * Mensaje que se intercambia entre jugadores (peers)
+ * Movimiento, cambio de turno, tirada de dado, chat, inicio y estado del
+ * juego tienen campos tipados (ver las fabricas); el resto lleva su
+ * contenido como texto.
+ * En el socket viaja como trama binaria (CodificadorMensajes)
  */
 public class MensajeJuego implements Serializable {
     private static final long serialVersionUID = 1L;
     
+    /**
+     * Tipos de mensaje con su codigo fijo en la trama binaria
+     * Los codigos no se reutilizan: un tipo nuevo toma el siguiente
+     */
     public enum TipoMensaje {
-        SALUDO,           // Presentación inicial
-        MOVIMIENTO,       // Movimiento de ficha
-        CAMBIO_TURNO,     // Cambio de turno
-        TIRADA_DADO,      // Tirada de dado
-        CAPTURA,          // Captura de ficha
-        CHAT,             // Mensaje de chat
-        JUGADOR_ENTRA,    // Jugador se une
-        JUGADOR_SALE,     // Jugador se va
-        ESTADO_JUEGO,     // Estado completo del juego
-        INICIO_JUEGO,     // Inicio de partida
-        FIN_JUEGO         // Fin de partida
+        SALUDO(1),           // Presentación inicial
+        MOVIMIENTO(2),       // Movimiento de ficha
+        CAMBIO_TURNO(3),     // Cambio de turno
+        TIRADA_DADO(4),      // Tirada de dado
+        CAPTURA(5),          // Captura de ficha
+        CHAT(6),             // Mensaje de chat
+        JUGADOR_ENTRA(7),    // Jugador se une
+        JUGADOR_SALE(8),     // Jugador se va
+        ESTADO_JUEGO(9),     // Estado completo del juego
+        INICIO_JUEGO(10),    // Inicio de partida
+        FIN_JUEGO(11),       // Fin de partida
+        PING(12),            // Latido: pide un PONG
+        PONG(13);            // Respuesta a un PING
+        
+        private static final TipoMensaje[] POR_CODIGO = new TipoMensaje[32];
+        static {
+            for (TipoMensaje tipo : values()) {
+                POR_CODIGO[tipo.codigo] = tipo;
+            }
+        }
+        
+        private final int codigo;
+        
+        TipoMensaje(int codigo) {
+            this.codigo = codigo;
+        }
+        
+        public int getCodigo() {
+            return codigo;
+        }
+        
+        /**
+         * @return Tipo con ese codigo, o null si es desconocido
+         */
+        public static TipoMensaje desdeCodigo(int codigo) {
+            return codigo >= 0 && codigo < POR_CODIGO.length ? POR_CODIGO[codigo] : null;
+        }
     }
     
     private TipoMensaje tipo;
     private String emisor;
     private String contenido;
-    private LocalDateTime marcaTiempo;
+    private int jugadorId;
+    private int fichaId;
+    private int valorDado;
+    private long marcaTiempo;
+    // ESTADO_JUEGO: forma, versiones y las palabras de EstadoCompacto
+    private int formaEstado;
+    private long version;
+    private long versionBase;
+    private int fichasCambiadas;
+    private long fichasBajas;
+    private long fichasAltas;
+    private long control;
+    // PING y PONG: marca en microsegundos del que envio el PING
+    private long marcaLatido;
+    // Sesion (ver SesionPeer); 0 si el mensaje no va por una sesion
+    private long secuencia;
+    private long confirmacion;
+    private long sesion;
     
     public MensajeJuego(TipoMensaje tipo, String emisor, String contenido) {
         this.tipo = tipo;
         this.emisor = emisor;
         this.contenido = contenido;
-        this.marcaTiempo = LocalDateTime.now();
+        this.marcaTiempo = System.currentTimeMillis();
+    }
+    
+    /**
+     * Copia de otro mensaje; los campos de sesion se fijan despues
+     */
+    private MensajeJuego(MensajeJuego otro) {
+        this.tipo = otro.tipo;
+        this.emisor = otro.emisor;
+        this.contenido = otro.contenido;
+        this.jugadorId = otro.jugadorId;
+        this.fichaId = otro.fichaId;
+        this.valorDado = otro.valorDado;
+        this.marcaTiempo = otro.marcaTiempo;
+        this.formaEstado = otro.formaEstado;
+        this.version = otro.version;
+        this.versionBase = otro.versionBase;
+        this.fichasCambiadas = otro.fichasCambiadas;
+        this.fichasBajas = otro.fichasBajas;
+        this.fichasAltas = otro.fichasAltas;
+        this.control = otro.control;
+        this.marcaLatido = otro.marcaLatido;
+    }
+    
+    /**
+     * Mensaje tipado sin contenido de texto
+     */
+    MensajeJuego(TipoMensaje tipo, String emisor, int jugadorId, int fichaId, int valorDado) {
+        this(tipo, emisor, null);
+        this.jugadorId = jugadorId;
+        this.fichaId = fichaId;
+        this.valorDado = valorDado;
+    }
+    
+    /**
+     * Movimiento de una ficha
+     * @param dado Valor del dado o casillas de premio usadas
+     */
+    public static MensajeJuego movimiento(String emisor, int jugadorId, int fichaId, int dado) {
+        return new MensajeJuego(TipoMensaje.MOVIMIENTO, emisor, jugadorId, fichaId, dado);
+    }
+    
+    /**
+     * @param jugadorId Jugador que recibe el turno
+     */
+    public static MensajeJuego cambioTurno(String emisor, int jugadorId) {
+        return new MensajeJuego(TipoMensaje.CAMBIO_TURNO, emisor, jugadorId, 0, 0);
+    }
+    
+    public static MensajeJuego tiradaDado(String emisor, int valor) {
+        return new MensajeJuego(TipoMensaje.TIRADA_DADO, emisor, 0, 0, valor);
+    }
+    
+    /**
+     * Saludo con los datos de la sesion
+     * @param sesion Token de la sesion a reanudar, o 0 para una nueva
+     * @param confirmacion Ultima secuencia recibida en esa sesion
+     */
+    public static MensajeJuego saludo(String emisor, String texto, long sesion, long confirmacion) {
+        MensajeJuego mensaje = new MensajeJuego(TipoMensaje.SALUDO, emisor, texto);
+        mensaje.sesion = sesion;
+        mensaje.confirmacion = confirmacion;
+        return mensaje;
+    }
+    
+    /**
+     * Latido; el emisor va vacio para que la trama sea minima
+     * @param marca Microsegundos en el reloj del que lo envia
+     */
+    public static MensajeJuego ping(long marca) {
+        MensajeJuego mensaje = new MensajeJuego(TipoMensaje.PING, "", 0, 0, 0);
+        mensaje.marcaLatido = marca;
+        return mensaje;
+    }
+    
+    /**
+     * Respuesta a un PING con su misma marca
+     */
+    public static MensajeJuego pong(long marca) {
+        MensajeJuego mensaje = new MensajeJuego(TipoMensaje.PONG, "", 0, 0, 0);
+        mensaje.marcaLatido = marca;
+        return mensaje;
+    }
+    
+    public static MensajeJuego chat(String emisor, String texto) {
+        return new MensajeJuego(TipoMensaje.CHAT, emisor, texto);
+    }
+    
+    public static MensajeJuego inicioJuego(String emisor) {
+        return new MensajeJuego(TipoMensaje.INICIO_JUEGO, emisor, 0, 0, 0);
+    }
+    
+    /** Forma de ESTADO_JUEGO: estado completo */
+    public static final int ESTADO_COMPLETO = 0;
+    /** Forma de ESTADO_JUEGO: solo lo que cambio desde versionBase */
+    public static final int ESTADO_DELTA = 1;
+    /** Forma de ESTADO_JUEGO: pide el estado, con la version que se conoce */
+    public static final int ESTADO_SOLICITUD = 2;
+    
+    /**
+     * Estado completo de la partida, con las tres palabras de EstadoCompacto
+     * @param version Version del estado en el emisor
+     */
+    public static MensajeJuego estadoCompleto(String emisor, long version,
+                                              long fichasBajas, long fichasAltas, long control) {
+        return estadoDelta(emisor, 0, version, 0xFFFF, fichasBajas, fichasAltas, control)
+            .conForma(ESTADO_COMPLETO);
+    }
+    
+    /**
+     * Cambios desde una version anterior
+     * Solo viajan las fichas marcadas; las palabras traen su codigo nuevo
+     * @param versionBase Version sobre la que se aplica
+     * @param fichasCambiadas Mascara de bits de las fichas (indice global) que cambiaron
+     * @param control Palabra de control completa del estado nuevo
+     */
+    public static MensajeJuego estadoDelta(String emisor, long versionBase, long version, int fichasCambiadas,
+                                           long fichasBajas, long fichasAltas, long control) {
+        MensajeJuego mensaje = new MensajeJuego(TipoMensaje.ESTADO_JUEGO, emisor, 0, 0, 0);
+        mensaje.formaEstado = ESTADO_DELTA;
+        mensaje.versionBase = versionBase;
+        mensaje.version = version;
+        mensaje.fichasCambiadas = fichasCambiadas;
+        mensaje.fichasBajas = fichasBajas;
+        mensaje.fichasAltas = fichasAltas;
+        mensaje.control = control;
+        return mensaje;
+    }
+    
+    /**
+     * Pide el estado al peer
+     * @param versionConocida Ultima version recibida de ese peer, o 0 si ninguna
+     */
+    public static MensajeJuego solicitudEstado(String emisor, long versionConocida) {
+        MensajeJuego mensaje = new MensajeJuego(TipoMensaje.ESTADO_JUEGO, emisor, 0, 0, 0);
+        mensaje.formaEstado = ESTADO_SOLICITUD;
+        mensaje.version = versionConocida;
+        return mensaje;
+    }
+    
+    /**
+     * Copia numerada para un peer: un mismo mensaje difundido lleva una
+     * secuencia distinta en cada sesion
+     * @param secuencia Numero de este mensaje en la sesion
+     * @param confirmacion Ultima secuencia recibida del peer
+     */
+    public MensajeJuego conSecuencia(long secuencia, long confirmacion) {
+        MensajeJuego copia = new MensajeJuego(this);
+        copia.secuencia = secuencia;
+        copia.confirmacion = confirmacion;
+        copia.sesion = sesion;
+        return copia;
+    }
+    
+    /**
+     * Campos de sesion leidos de la trama
+     */
+    void setSesion(long secuencia, long confirmacion, long sesion) {
+        this.secuencia = secuencia;
+        this.confirmacion = confirmacion;
+        this.sesion = sesion;
+    }
+    
+    private MensajeJuego conForma(int forma) {
+        this.formaEstado = forma;
+        return this;
+    }
+    
+    /**
+     * Indica si el tipo viaja con campos tipados en lugar de texto
+     */
+    public static boolean esTipado(TipoMensaje tipo) {
+        switch (tipo) {
+            case MOVIMIENTO:
+            case CAMBIO_TURNO:
+            case TIRADA_DADO:
+            case INICIO_JUEGO:
+            case ESTADO_JUEGO:
+            case PING:
+            case PONG:
+                return true;
+            default:
+                return false;
+        }
     }
     
     public TipoMensaje getTipo() {
@@ -43,21 +279,117 @@ public class MensajeJuego implements Serializable {
         return emisor;
     }
     
+    /**
+     * Contenido de texto; en los mensajes tipados se arma a partir de
+     * los campos (solo para registros y consola)
+     */
     public String getContenido() {
-        return contenido;
+        if (contenido != null || !esTipado(tipo)) {
+            return contenido;
+        }
+        switch (tipo) {
+            case MOVIMIENTO: return "jugador:" + jugadorId + ",ficha:" + fichaId + ",dado:" + valorDado;
+            case CAMBIO_TURNO: return String.valueOf(jugadorId);
+            case TIRADA_DADO: return String.valueOf(valorDado);
+            case ESTADO_JUEGO:
+                if (formaEstado == ESTADO_SOLICITUD) return "solicitud,conocida:" + version;
+                return (formaEstado == ESTADO_COMPLETO ? "completo" : "delta,base:" + versionBase)
+                    + ",version:" + version;
+            case PING:
+            case PONG: return "marca:" + marcaLatido;
+            default: return "";
+        }
+    }
+    
+    public int getJugadorId() {
+        return jugadorId;
+    }
+    
+    public int getFichaId() {
+        return fichaId;
+    }
+    
+    public int getValorDado() {
+        return valorDado;
+    }
+    
+    /**
+     * ESTADO_COMPLETO, ESTADO_DELTA o ESTADO_SOLICITUD
+     */
+    public int getFormaEstado() {
+        return formaEstado;
+    }
+    
+    /**
+     * Version del estado; en una solicitud, la version conocida
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public long getVersionBase() {
+        return versionBase;
+    }
+    
+    public int getFichasCambiadas() {
+        return fichasCambiadas;
+    }
+    
+    public long getFichasBajas() {
+        return fichasBajas;
+    }
+    
+    public long getFichasAltas() {
+        return fichasAltas;
+    }
+    
+    public long getControl() {
+        return control;
+    }
+    
+    /**
+     * Marca de tiempo del PING (la misma en su PONG)
+     */
+    public long getMarcaLatido() {
+        return marcaLatido;
+    }
+    
+    /**
+     * Numero del mensaje en su sesion; 0 si no va numerado
+     */
+    public long getSecuencia() {
+        return secuencia;
+    }
+    
+    /**
+     * Ultima secuencia que el emisor recibio de quien lo recibe
+     */
+    public long getConfirmacion() {
+        return confirmacion;
+    }
+    
+    /**
+     * Token de sesion (solo en SALUDO)
+     */
+    public long getSesion() {
+        return sesion;
     }
     
+    /**
+     * Momento en que se creo (o se recibio) el mensaje
+     * No viaja en la trama: el receptor marca la llegada
+     */
     public LocalDateTime getMarcaTiempo() {
-        return marcaTiempo;
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(marcaTiempo), ZoneId.systemDefault());
     }
     
     @Override
     public String toString() {
         return String.format("[%s] %s (%s): %s", 
-            marcaTiempo.toString(), 
+            getMarcaTiempo().toString(), 
             tipo, 
             emisor, 
-            contenido
+            getContenido()
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package red;
+
+/**
+ * Latencia y actividad de una conexion, medidas con PING/PONG
+ * (MonitorLatidos)
+ *
+ * El RTT se suaviza como en TCP (RFC 6298): cada muestra pesa 1/8. El
+ * jitter es la diferencia entre dos muestras seguidas, suavizada con 1/16
+ * como en RTP (RFC 3550). El RTT incluye la espera en las colas de salida
+ * de los dos lados: es la latencia que ve el juego, no la de la red sola
+ *
+ * La ultima actividad cuenta cualquier trama recibida, no solo los PONG
+ */
+public class MetricasPeer {
+    // Origen de las marcas de los PING: microsegundos desde que arranca la JVM
+    private static final long ORIGEN = System.nanoTime();
+
+    private long rttMicros;
+    private long jitterMicros;
+    private long ultimoRttMicros;
+    private long muestras;
+    // System.nanoTime: un ajuste del reloj de pared no cuenta como inactividad
+    private volatile long ultimaActividad = System.nanoTime();
+
+    /**
+     * Marca para un PING; el PONG la devuelve igual
+     */
+    static long marcaActual() {
+        return (System.nanoTime() - ORIGEN) / 1000;
+    }
+
+    /**
+     * Registra que llego una trama
+     */
+    void registrarActividad() {
+        ultimaActividad = System.nanoTime();
+    }
+
+    /**
+     * Registra el PONG de un PING enviado con la marca dada
+     */
+    synchronized void registrarPong(long marca) {
+        long rtt = Math.max(0, marcaActual() - marca);
+        if (muestras == 0) {
+            rttMicros = rtt;
+        } else {
+            rttMicros += (rtt - rttMicros) / 8;
+            jitterMicros += (Math.abs(rtt - ultimoRttMicros) - jitterMicros) / 16;
+        }
+        ultimoRttMicros = rtt;
+        muestras++;
+    }
+
+    /**
+     * RTT suavizado en microsegundos, o -1 si todavia no hubo un PONG
+     */
+    public synchronized long getRttMicros() {
+        return muestras == 0 ? -1 : rttMicros;
+    }
+
+    public synchronized long getJitterMicros() {
+        return jitterMicros;
+    }
+
+    /**
+     * RTT del ultimo PONG, sin suavizar; -1 si no hubo
+     */
+    public synchronized long getUltimoRttMicros() {
+        return muestras == 0 ? -1 : ultimoRttMicros;
+    }
+
+    public synchronized long getMuestras() {
+        return muestras;
+    }
+
+    /**
+     * Momento de la ultima trama recibida (System.currentTimeMillis),
+     * calculado desde el tiempo inactivo
+     */
+    public long getUltimaActividad() {
+        return System.currentTimeMillis() - getMilisInactivo();
+    }
+
+    /**
+     * Milisegundos desde la ultima trama recibida
+     */
+    public long getMilisInactivo() {
+        return (System.nanoTime() - ultimaActividad) / 1_000_000;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (muestras == 0) {
+            return String.format("rtt sin medir, visto hace %d ms", getMilisInactivo());
+        }
+        return String.format("rtt %.2f ms, jitter %.2f ms, visto hace %d ms",
+            rttMicros / 1000.0, jitterMicros / 1000.0, getMilisInactivo());
+    }
+}
@@ -0,0 +1,58 @@
+package red;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Con que hilos corren los lectores de peers, el sondeo de descubrimiento
+ * y las respuestas a los ping
+ *
+ * PLATAFORMA usa hilos del sistema y pools con tamano fijo. VIRTUAL usa un
+ * hilo virtual por tarea (JDK 21): miles de lecturas bloqueadas cuestan
+ * poco y no hay tamanos de pool que ajustar. Para que una lectura o
+ * escritura bloqueada no retenga su hilo portador, la E/S de sockets no se
+ * hace dentro de bloques synchronized (se usa ReentrantLock)
+ *
+ * Los componentes toman el modo predeterminado al crearse
+ */
+public enum ModoEjecucion {
+    PLATAFORMA,
+    VIRTUAL;
+
+    private static volatile ModoEjecucion predeterminado = PLATAFORMA;
+
+    public static ModoEjecucion getPredeterminado() {
+        return predeterminado;
+    }
+
+    /**
+     * Cambia el modo de los componentes que se creen despues
+     */
+    public static void setPredeterminado(ModoEjecucion modo) {
+        predeterminado = modo;
+    }
+
+    /**
+     * Ejecutor para tareas cortas o bloqueantes
+     * @param hilosPlataforma Tamano del pool en modo PLATAFORMA, o 0 para
+     *                        un pool que crece segun haga falta
+     */
+    public ExecutorService crearEjecutor(int hilosPlataforma) {
+        if (this == VIRTUAL) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return hilosPlataforma > 0
+            ? Executors.newFixedThreadPool(hilosPlataforma)
+            : Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Hilo sin arrancar para una tarea larga (un lector, un servidor)
+     */
+    public Thread crearHilo(String nombre, Runnable tarea) {
+        if (this == VIRTUAL) {
+            return Thread.ofVirtual().name(nombre).unstarted(tarea);
+        }
+        return new Thread(tarea, nombre);
+    }
+}
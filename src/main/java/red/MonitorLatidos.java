@@ -0,0 +1,82 @@
+package red;
+
+/**
+ * Latidos de un conjunto de conexiones
+ * Cada intervalo envia un PING a cada conexion y cierra las que llevan mas
+ * de limiteInactividad sin recibir nada. Asi una conexion TCP medio
+ * abierta (el peer desaparecio sin cerrarla) se detecta en segundos en
+ * lugar de esperar a que falle una escritura
+ *
+ * El PING pasa por la ColaSalida como cualquier mensaje: un peer que no
+ * lee termina desconectado por saturacion aunque el juego no envie nada.
+ * Las respuestas alimentan la MetricasPeer de cada conexion
+ */
+public class MonitorLatidos {
+    private final Iterable<? extends ConexionPeer> conexiones;
+    private final long intervalo;
+    private final long limiteInactividad;
+    private volatile boolean activo;
+
+    /**
+     * @param conexiones Conexiones a vigilar; se recorren en cada latido
+     * @param intervalo Milisegundos entre latidos
+     * @param limiteInactividad Milisegundos sin recibir nada antes de cerrar
+     */
+    public MonitorLatidos(Iterable<? extends ConexionPeer> conexiones, long intervalo, long limiteInactividad) {
+        if (intervalo < 1 || limiteInactividad <= intervalo) {
+            throw new IllegalArgumentException("Latidos cada " + intervalo +
+                " ms con limite de inactividad " + limiteInactividad + " ms");
+        }
+        this.conexiones = conexiones;
+        this.intervalo = intervalo;
+        this.limiteInactividad = limiteInactividad;
+    }
+
+    /**
+     * Arranca el hilo de latidos
+     */
+    public void iniciar(ModoEjecucion modo) {
+        activo = true;
+        modo.crearHilo("red-latidos", () -> {
+            try {
+                while (activo) {
+                    latir();
+                    Thread.sleep(intervalo);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+    }
+
+    /**
+     * Cierra las conexiones inactivas y envia un PING a las demas
+     */
+    void latir() {
+        for (ConexionPeer conexion : conexiones) {
+            if (!conexion.estaConectado()) {
+                continue;
+            }
+            long inactivo = conexion.getMetricas().getMilisInactivo();
+            if (inactivo > limiteInactividad) {
+                System.err.println("[RED] Sin respuesta de " + conexion.getNombrePeer() +
+                                 " en " + inactivo + " ms, se cierra la conexion");
+                conexion.cerrar();
+            } else {
+                conexion.enviarLatido();
+            }
+        }
+    }
+
+    public void detener() {
+        activo = false;
+    }
+
+    public long getIntervalo() {
+        return intervalo;
+    }
+
+    public long getLimiteInactividad() {
+        return limiteInactividad;
+    }
+}
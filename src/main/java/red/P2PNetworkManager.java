@@ -2,26 +2,60 @@ package red;
 
 import java.io.*;
 import java.net.*;
+import java.security.SecureRandom;
 import java.util.*;
 import java.util.concurrent.*;
 
 /**
  * Gestor de red P2P para el juego de Parchis
+ * Por defecto cada peer tiene su hilo lector (ConexionPeer); con
+ * usarTransporteNio las conexiones las atiende un TransporteNio.
+ * Los hilos lectores y el de aceptar conexiones siguen el ModoEjecucion
+ *
+ * Cada peer tiene una SesionPeer: quien conecta envia el primer SALUDO y
+ * quien acepta responde con el token de la sesion. Si se cae la conexion,
+ * quien conecto reintenta cada INTERVALO_RECONEXION con el mismo token y
+ * la sesion sigue con los mensajes que faltaron; el peer cuenta como
+ * presente mientras no pase ventanaReanudacion sin conexion
+ *
+ * Un MonitorLatidos envia PING a cada conexion y cierra las que no
+ * responden: asi tambien se detecta la caida de una conexion que TCP no
+ * llega a ver cerrada, y se mide el RTT de cada peer (MetricasPeer)
  */
-public class P2PNetworkManager {
+public class P2PNetworkManager implements EscuchaRed {
+    /** Espera entre intentos de reconexion (ms) */
+    public static final int INTERVALO_RECONEXION = 100;
+    // Tiempo maximo de cada intento de conexion al reconectar
+    private static final int TIEMPO_CONEXION = 1000;
+    /** Latidos predeterminados (ms) */
+    public static final long INTERVALO_LATIDO = 500;
+    public static final long LIMITE_INACTIVIDAD = 2000;
+    
     private String nombreJugador;
     private int puerto; 
     private ServerSocket servidorSocket;
     private List<ConexionPeer> peers;
+    private final ModoEjecucion modo;
     private ExecutorService ejecutorServicio;
     private boolean estaActivo;
+    private volatile boolean cerrado;
     private EscuchaRed escucha;
+    private int hilosNio;
+    private TransporteNio transporteNio;
+    private PoliticaSalida politicaSalida = PoliticaSalida.PREDETERMINADA;
+    private final List<SesionPeer> sesiones = new CopyOnWriteArrayList<>();
+    private final SecureRandom aleatorio = new SecureRandom();
+    private long ventanaReanudacion = 15000;
+    private long intervaloLatido = INTERVALO_LATIDO;
+    private long limiteInactividad = LIMITE_INACTIVIDAD;
+    private MonitorLatidos monitorLatidos;
     
     public P2PNetworkManager(String nombreJugador, int puerto) {
         this.nombreJugador = nombreJugador;
         this.puerto = puerto;
         this.peers = new CopyOnWriteArrayList<>();
-        this.ejecutorServicio = Executors.newCachedThreadPool();
+        this.modo = ModoEjecucion.getPredeterminado();
+        this.ejecutorServicio = modo.crearEjecutor(0);
         this.estaActivo = false;
     }
     
@@ -31,6 +65,14 @@ public class P2PNetworkManager {
     public void iniciarServidor() throws IOException {
         if (estaActivo) return;
         
+        iniciarLatidos();
+        if (hilosNio > 0) {
+            transporte().escuchar(puerto);
+            estaActivo = true;
+            System.out.println("[RED] Servidor P2P (NIO) iniciado en puerto " + puerto);
+            return;
+        }
+        
         servidorSocket = new ServerSocket();
         servidorSocket.setReuseAddress(true);
         servidorSocket.bind(new InetSocketAddress(puerto));
@@ -52,24 +94,71 @@ public class P2PNetworkManager {
         });
     }
     
+    /**
+     * Atiende las conexiones con hilos de seleccion en lugar de un hilo por peer
+     * Se llama antes de iniciarServidor y conectarAPeer
+     * @param hilos Hilos de seleccion del TransporteNio
+     */
+    public void usarTransporteNio(int hilos) {
+        this.hilosNio = hilos;
+    }
+    
+    /**
+     * Limites de la cola de salida de los peers que se conecten despues
+     */
+    public void setPoliticaSalida(PoliticaSalida politica) {
+        this.politicaSalida = politica;
+        if (transporteNio != null) {
+            transporteNio.setPoliticaSalida(politica);
+        }
+    }
+    
+    private TransporteNio transporte() throws IOException {
+        if (transporteNio == null) {
+            transporteNio = new TransporteNio(hilosNio, this, peer -> {
+                System.out.println("[RED] Nueva conexion desde: " + peer.getDireccion());
+                peers.add(peer);
+            });
+            transporteNio.setPoliticaSalida(politicaSalida);
+        }
+        return transporteNio;
+    }
+    
+    /**
+     * Tiempo que se espera la reconexion de un peer antes de darlo por ido
+     */
+    public void setVentanaReanudacion(long milis) {
+        this.ventanaReanudacion = milis;
+    }
+    
+    /**
+     * Cada cuanto se envia un PING a cada peer y cuanto tiempo sin recibir
+     * nada se tolera antes de cerrar la conexion
+     * Se llama antes de iniciarServidor y conectarAPeer
+     * @param intervalo Milisegundos entre latidos, 0 para no enviarlos
+     * @param limiteInactividad Milisegundos; mayor que el intervalo
+     */
+    public void setLatidos(long intervalo, long limiteInactividad) {
+        this.intervaloLatido = intervalo;
+        this.limiteInactividad = limiteInactividad;
+    }
+    
+    private synchronized void iniciarLatidos() {
+        if (monitorLatidos == null && intervaloLatido > 0) {
+            monitorLatidos = new MonitorLatidos(peers, intervaloLatido, limiteInactividad);
+            monitorLatidos.iniciar(modo);
+        }
+    }
+    
     /**
      * Conecta con otro jugador (peer)
      */
     public boolean conectarAPeer(String host, int puerto) {
+        iniciarLatidos();
         try {
-            Socket socket = new Socket(host, puerto);
-            ConexionPeer peer = new ConexionPeer(socket, this);
-            
-            // Enviar saludo con mi nombre
-            peer.enviarMensaje(new MensajeJuego(
-                MensajeJuego.TipoMensaje.SALUDO,
-                nombreJugador,
-                "Conexion establecida"
-            ));
-            
-            peers.add(peer);
-            peer.start();
-            
+            SesionPeer sesion = new SesionPeer(0, host, puerto);
+            sesiones.add(sesion);
+            saludar(abrir(host, puerto, 0), sesion);
             System.out.println("[RED] Conectado exitosamente a " + host + ":" + puerto);
             return true;
         } catch (IOException e) {
@@ -78,31 +167,73 @@ public class P2PNetworkManager {
         }
     }
     
+    /**
+     * Abre la conexion TCP con el transporte configurado
+     * @param milis Tiempo maximo para conectar, 0 sin limite
+     */
+    private ConexionPeer abrir(String host, int puerto, int milis) throws IOException {
+        if (hilosNio > 0) {
+            return transporte().conectar(host, puerto, milis);
+        }
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, puerto), milis);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return new ConexionPeer(socket, this, modo, politicaSalida);
+    }
+    
     /**
      * Maneja una nueva conexión entrante
+     * El peer que conecta saluda primero (recibirSaludo)
      */
     private void manejarNuevaConexion(Socket socket) {
-        ConexionPeer peer = new ConexionPeer(socket, this);
-        
-        // Enviar saludo inmediatamente
-        peer.enviarMensaje(new MensajeJuego(
-            MensajeJuego.TipoMensaje.SALUDO,
-            nombreJugador,
-            "Bienvenido"
-        ));
-        
+        ConexionPeer peer = new ConexionPeer(socket, this, modo, politicaSalida);
         peers.add(peer);
-        peer.start();
+        iniciarLector(peer);
+    }
+    
+    private void iniciarLector(ConexionPeer peer) {
+        if (hilosNio == 0) {
+            modo.crearHilo("red-peer-" + peer.getDireccion(), peer).start();
+        }
+    }
+    
+    /**
+     * Envia el saludo con mi nombre, el token y lo recibido en la sesion
+     * La sesion pasa a la conexion cuando el peer responde
+     */
+    private void saludar(ConexionPeer peer, SesionPeer sesion) {
+        peer.setSesion(sesion);
+        peers.add(peer);
+        peer.enviarMensaje(MensajeJuego.saludo(nombreJugador, "Conexion establecida",
+                                               sesion.getToken(), sesion.getUltimaRecibida()));
+        iniciarLector(peer);
     }
     
     /**
      * Difunde un mensaje a todos los peers
+     * Solo encola en cada peer: uno lento no demora a los demas
+     * Va por las sesiones: llega aunque el peer este reconectando, y no
+     * llega a una conexion que todavia no saludo
      */
     public void difundir(MensajeJuego mensaje) {
-        for (ConexionPeer peer : peers) {
-            if (peer.estaConectado()) {
-                peer.enviarMensaje(mensaje);
-            }
+        for (SesionPeer sesion : sesiones) {
+            sesion.enviar(mensaje);
+        }
+    }
+    
+    /**
+     * Envia un mensaje a un solo peer, por su sesion si la tiene
+     */
+    public void enviarA(ConexionPeer peer, MensajeJuego mensaje) {
+        SesionPeer sesion = peer.getSesion();
+        if (sesion != null && sesiones.contains(sesion)) {
+            sesion.enviar(mensaje);
+        } else {
+            peer.enviarMensaje(mensaje);
         }
     }
     
@@ -110,80 +241,211 @@ public class P2PNetworkManager {
      * Envia un movimiento de ficha
      */
     public void enviarMovimiento(int jugadorId, int fichaId, int dado) {
-        MensajeJuego mensaje = new MensajeJuego(
-            MensajeJuego.TipoMensaje.MOVIMIENTO,
-            nombreJugador,
-            String.format("jugador:%d,ficha:%d,dado:%d", jugadorId, fichaId, dado)
-        );
-        difundir(mensaje);
+        difundir(MensajeJuego.movimiento(nombreJugador, jugadorId, fichaId, dado));
     }
     
     /**
      * Envia cambio de turno
      */
     public void enviarCambioTurno(int proximoJugadorId) {
-        MensajeJuego mensaje = new MensajeJuego(
-            MensajeJuego.TipoMensaje.CAMBIO_TURNO,
-            nombreJugador,
-            String.valueOf(proximoJugadorId)
-        );
-        difundir(mensaje);
+        difundir(MensajeJuego.cambioTurno(nombreJugador, proximoJugadorId));
     }
     
     /**
      * Envia mensaje de chat
      */
     public void enviarMensajeChat(String texto) {
-        MensajeJuego mensaje = new MensajeJuego(
-            MensajeJuego.TipoMensaje.CHAT,
-            nombreJugador,
-            texto
-        );
-        difundir(mensaje);
+        difundir(MensajeJuego.chat(nombreJugador, texto));
     }
     
     /**
      * Envia tirada de dado
      */
     public void enviarTiradaDado(int valor) {
-        MensajeJuego mensaje = new MensajeJuego(
-            MensajeJuego.TipoMensaje.TIRADA_DADO,
-            nombreJugador,
-            String.valueOf(valor)
-        );
-        difundir(mensaje);
+        difundir(MensajeJuego.tiradaDado(nombreJugador, valor));
     }
     
     /**
      * Envia señal de inicio de partida 
      */
     public void enviarInicioPartida() {
-        MensajeJuego mensaje = new MensajeJuego(
-            MensajeJuego.TipoMensaje.INICIO_JUEGO,
-            nombreJugador,
-            "Iniciando partida"
-        );
-        difundir(mensaje);
+        difundir(MensajeJuego.inicioJuego(nombreJugador));
     }
     
     /**
      * Procesa mensaje recibido de un peer
+     * Los saludos abren o reanudan la sesion; los mensajes repetidos al
+     * reanudar no llegan al escucha
      */
-    void alRecibirMensaje(MensajeJuego mensaje, ConexionPeer desde) {
+    @Override
+    public void alRecibirMensaje(MensajeJuego mensaje, ConexionPeer desde) {
+        SesionPeer sesion = desde.getSesion();
+        if (mensaje.getTipo() == MensajeJuego.TipoMensaje.SALUDO) {
+            if (!recibirSaludo(mensaje, desde, sesion)) {
+                return;
+            }
+        } else if (sesion != null && !sesion.recibir(mensaje)) {
+            return;
+        } else if (mensaje.getTipo() == MensajeJuego.TipoMensaje.JUGADOR_SALE && sesion != null) {
+            // Se fue a proposito: no hay reconexion que esperar
+            sesiones.remove(sesion);
+        }
         if (escucha != null) {
             escucha.alRecibirMensaje(mensaje, desde);
         }
     }
     
+    /**
+     * Abre o reanuda la sesion de un SALUDO
+     * @return false si solo reanudo la sesion y el escucha no debe recibirlo
+     */
+    private boolean recibirSaludo(MensajeJuego saludo, ConexionPeer desde, SesionPeer sesion) {
+        if (sesion == null) {
+            return aceptarSaludo(saludo, desde);
+        }
+        if (sesion.getHost() == null) {
+            return true;
+        }
+        // Respuesta a nuestro saludo
+        long token = saludo.getSesion();
+        sesion.setNombrePeer(saludo.getEmisor());
+        if (sesion.getToken() == 0) {
+            sesion.setToken(token);
+            sesion.reanudar(desde, saludo.getConfirmacion(), null);
+            return true;
+        }
+        if (sesion.getToken() == token) {
+            boolean completa = sesion.reanudar(desde, saludo.getConfirmacion(), null);
+            reanudado(desde, completa);
+            return false;
+        }
+        // El peer ya no tenia la sesion: empieza otra y lo pendiente se pierde
+        sesion.reiniciar(token, desde);
+        reanudado(desde, false);
+        return true;
+    }
+    
+    /**
+     * Saludo de un peer que se conecto a nosotros: reanuda su sesion si
+     * trae un token vigente, si no le da uno nuevo
+     */
+    private boolean aceptarSaludo(MensajeJuego saludo, ConexionPeer desde) {
+        SesionPeer sesion = buscarSesion(saludo.getSesion());
+        if (sesion != null) {
+            ConexionPeer anterior = sesion.getConexion();
+            boolean completa = sesion.reanudar(desde, saludo.getConfirmacion(),
+                MensajeJuego.saludo(nombreJugador, "Bienvenido", sesion.getToken(), sesion.getUltimaRecibida()));
+            if (anterior != null && anterior != desde) {
+                // La conexion anterior quedo abierta de este lado sin que el peer este
+                anterior.cerrar();
+            }
+            reanudado(desde, completa);
+            return false;
+        }
+        long token;
+        do {
+            token = aleatorio.nextLong();
+        } while (token == 0);
+        sesion = new SesionPeer(token, null, 0);
+        sesion.setNombrePeer(saludo.getEmisor());
+        sesion.reanudar(desde, 0, MensajeJuego.saludo(nombreJugador, "Bienvenido", token, 0));
+        sesiones.add(sesion);
+        return true;
+    }
+    
+    private SesionPeer buscarSesion(long token) {
+        if (token == 0) {
+            return null;
+        }
+        for (SesionPeer sesion : sesiones) {
+            if (sesion.getToken() == token && sesion.estaVigente(ventanaReanudacion)) {
+                return sesion;
+            }
+        }
+        return null;
+    }
+    
+    private void reanudado(ConexionPeer peer, boolean sinPerdidas) {
+        System.out.println("[RED] Sesion reanudada con " + peer.getNombrePeer() +
+                         (sinPerdidas ? "" : " (con mensajes perdidos)"));
+        if (escucha != null) {
+            escucha.alReanudarPeer(peer, sinPerdidas);
+        }
+    }
+    
     /**
      * Notifica desconexión de un peer
+     * Si tiene una sesion se espera su reconexion; si fuimos nosotros los
+     * que conectamos, reintentamos
      */
-    void alDesconectarPeer(ConexionPeer peer) {
+    @Override
+    public void alDesconectarPeer(ConexionPeer peer) {
         peers.remove(peer);
         if (escucha != null) {
             escucha.alDesconectarPeer(peer);
         }
         System.out.println("[RED] Peer desconectado. Peers activos: " + peers.size());
+        
+        SesionPeer sesion = peer.getSesion();
+        if (!cerrado && sesion != null && sesiones.contains(sesion) && sesion.desconectada(peer)) {
+            System.out.println("[RED] Conexion perdida con " + sesion.getNombrePeer() +
+                             ", se espera la reconexion");
+            if (sesion.getHost() != null) {
+                reconectar(sesion);
+            }
+        }
+    }
+    
+    /**
+     * Reintenta la conexion de una sesion hasta reanudarla o que venza
+     * Un intento con la conexion abierta espera la respuesta al SALUDO
+     */
+    private void reconectar(SesionPeer sesion) {
+        String destino = sesion.getHost() + ":" + sesion.getPuerto();
+        modo.crearHilo("red-reconexion-" + destino, () -> {
+            ConexionPeer intento = null;
+            try {
+                while (!cerrado && sesiones.contains(sesion) && !sesion.estaConectada()) {
+                    if (!sesion.estaVigente(ventanaReanudacion)) {
+                        expirar(sesion);
+                        if (intento != null) {
+                            intento.cerrar();
+                        }
+                        return;
+                    }
+                    if (intento == null || !intento.estaConectado()) {
+                        try {
+                            intento = abrir(sesion.getHost(), sesion.getPuerto(), TIEMPO_CONEXION);
+                            saludar(intento, sesion);
+                        } catch (IOException e) {
+                            intento = null;
+                        }
+                    }
+                    Thread.sleep(INTERVALO_RECONEXION);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).start();
+    }
+    
+    private void expirar(SesionPeer sesion) {
+        if (sesiones.remove(sesion)) {
+            System.out.println("[RED] Sesion con " + sesion.getNombrePeer() + " expirada");
+        }
+    }
+    
+    /**
+     * Indica si queda algun peer: conectado o con su sesion a la espera de
+     * reconectar dentro de la ventana
+     */
+    public boolean haySesionesActivas() {
+        for (SesionPeer sesion : sesiones) {
+            if (!sesion.estaVigente(ventanaReanudacion)) {
+                expirar(sesion);
+            }
+        }
+        return !sesiones.isEmpty() || !peers.isEmpty();
     }
     
     /**
@@ -193,6 +455,23 @@ public class P2PNetworkManager {
         return new ArrayList<>(peers);
     }
     
+    /**
+     * Peer conectado con menor RTT medido
+     * @return null si ningun peer respondio todavia un PING
+     */
+    public ConexionPeer peerConMenorRtt() {
+        ConexionPeer mejor = null;
+        long mejorRtt = Long.MAX_VALUE;
+        for (ConexionPeer peer : peers) {
+            long rtt = peer.getMetricas().getRttMicros();
+            if (rtt >= 0 && rtt < mejorRtt && peer.estaConectado()) {
+                mejor = peer;
+                mejorRtt = rtt;
+            }
+        }
+        return mejor;
+    }
+    
     /**
      * Establece el escucha para eventos de red
      */
@@ -205,10 +484,15 @@ public class P2PNetworkManager {
      */
     public void cerrar() {
         estaActivo = false;
+        cerrado = true;
+        if (monitorLatidos != null) {
+            monitorLatidos.detener();
+        }
         
-        // Cerrar todas las conexiones con peers
+        // Avisar a los peers que nos vamos, asi no esperan la reconexion
+        sesiones.clear();
         for (ConexionPeer peer : peers) {
-            peer.cerrar();
+            peer.enviarYCerrar(new MensajeJuego(MensajeJuego.TipoMensaje.JUGADOR_SALE, nombreJugador, ""));
         }
         peers.clear();
         
@@ -220,6 +504,9 @@ public class P2PNetworkManager {
         } catch (IOException e) {
             System.err.println("[RED] Error cerrando servidor: " + e.getMessage());
         }
+        if (transporteNio != null) {
+            transporteNio.cerrar();
+        }
         
         ejecutorServicio.shutdown();
         System.out.println("[RED] Red P2P cerrada");
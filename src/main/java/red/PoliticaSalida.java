@@ -0,0 +1,49 @@
+package red;
+
+/**
+ * Limites de la cola de salida de cada peer (ColaSalida)
+ *
+ * Con la cola llena primero se descartan mensajes de chat, que no afectan
+ * a la partida. Los demas nunca se descartan: si no hay chat que tirar la
+ * cola pasa del limite y, si sigue llena mas de milisSaturacion o llega a
+ * MULTIPLO_MAXIMO veces la capacidad, el peer se desconecta
+ */
+public class PoliticaSalida {
+    public static final int MULTIPLO_MAXIMO = 4;
+    public static final PoliticaSalida PREDETERMINADA = new PoliticaSalida(256, true, 5000);
+
+    private final int capacidad;
+    private final boolean descartarChat;
+    private final long milisSaturacion;
+
+    /**
+     * @param capacidad Mensajes pendientes a partir de los cuales la cola esta llena
+     * @param descartarChat Si se tiran mensajes de chat con la cola llena
+     * @param milisSaturacion Tiempo maximo con la cola llena antes de desconectar
+     */
+    public PoliticaSalida(int capacidad, boolean descartarChat, long milisSaturacion) {
+        if (capacidad < 1) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva: " + capacidad);
+        }
+        this.capacidad = capacidad;
+        this.descartarChat = descartarChat;
+        this.milisSaturacion = milisSaturacion;
+    }
+
+    public int getCapacidad() { return capacidad; }
+    public boolean isDescartarChat() { return descartarChat; }
+    public long getMilisSaturacion() { return milisSaturacion; }
+
+    /**
+     * Pendientes a partir de los cuales se desconecta sin esperar
+     */
+    public int getLimiteDuro() {
+        return capacidad * MULTIPLO_MAXIMO;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("capacidad %d, %s chat, desconexion tras %d ms llena",
+            capacidad, descartarChat ? "descarta" : "no descarta", milisSaturacion);
+    }
+}
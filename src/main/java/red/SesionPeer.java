@@ -0,0 +1,243 @@
+package red;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sesion con un peer que sobrevive a la perdida de la conexion
+ * El peer que acepta la conexion da un token en su SALUDO. Cada mensaje
+ * que sale por la sesion lleva una secuencia creciente y la ultima
+ * secuencia recibida del peer (confirmacion), y queda en un anillo con
+ * los ultimos CAPACIDAD_REPETICION. Si la conexion se cae, quien conecto
+ * vuelve a conectar con el token y su confirmacion; el otro responde con
+ * la suya y cada uno repite lo que el otro no confirmo. Los mensajes que
+ * llegan repetidos se descartan por su secuencia. Mientras no tiene
+ * conexion lo que se envia solo queda en el anillo. Lo que el peer
+ * confirma (tambien con los latidos) sale del anillo
+ *
+ * Si lo que falta ya salio del anillo o no cabe en la cola de salida de la
+ * conexion nueva, la reanudacion no es completa y hay que pedir el estado
+ * de la partida (ESTADO_JUEGO)
+ *
+ * Los mensajes se encolan fuera del monitor de la sesion: el lector de la
+ * conexion (recibir, los latidos) no espera a quien difunde. El orden de
+ * las secuencias en la cola lo mantiene un lock aparte, que solo toman
+ * enviar y reanudar
+ */
+public class SesionPeer {
+    /**
+     * Mensajes que se guardan para repetir
+     * Igual a la capacidad de PoliticaSalida.PREDETERMINADA: al reanudar no
+     * se repite mas de lo que cabe en la cola de salida
+     */
+    public static final int CAPACIDAD_REPETICION = 256;
+
+    private long token;
+    // Destino para reconectar; null si el peer se conecto a nosotros
+    private final String host;
+    private final int puerto;
+    private final MensajeJuego[] enviados = new MensajeJuego[CAPACIDAD_REPETICION];
+    // Orden de encolado: se toma antes que el monitor y nunca al reves
+    private final ReentrantLock envio = new ReentrantLock();
+    private ConexionPeer conexion;
+    private String nombrePeer;
+    private long siguienteSecuencia = 1;
+    private long ultimaRecibida;
+    private long confirmadaPorPeer;
+    // System.nanoTime al perder la conexion; solo vale con conexion == null
+    private long desconectadaDesde;
+
+    /**
+     * @param token Token de la sesion, o 0 hasta que lo de el otro peer
+     * @param host Host para reconectar, o null si no reconecta este lado
+     */
+    public SesionPeer(long token, String host, int puerto) {
+        this.token = token;
+        this.host = host;
+        this.puerto = puerto;
+        this.desconectadaDesde = System.nanoTime();
+    }
+
+    /**
+     * Numera un mensaje, lo guarda para repetir y lo envia si hay conexion
+     * Sin conexion solo se guarda: se envia al reanudar
+     */
+    public void enviar(MensajeJuego mensaje) {
+        envio.lock();
+        try {
+            MensajeJuego numerado;
+            ConexionPeer destino;
+            synchronized (this) {
+                numerado = mensaje.conSecuencia(siguienteSecuencia, ultimaRecibida);
+                enviados[(int) (siguienteSecuencia % CAPACIDAD_REPETICION)] = numerado;
+                siguienteSecuencia++;
+                destino = conexion;
+            }
+            if (destino != null) {
+                destino.enviarMensaje(numerado);
+            }
+        } finally {
+            envio.unlock();
+        }
+    }
+
+    /**
+     * Registra un mensaje recibido por la sesion
+     * @return false si ya se habia recibido (repetido al reanudar)
+     */
+    public synchronized boolean recibir(MensajeJuego mensaje) {
+        confirmar(mensaje.getConfirmacion());
+        long secuencia = mensaje.getSecuencia();
+        if (secuencia == 0) {
+            return true;
+        }
+        if (secuencia <= ultimaRecibida) {
+            return false;
+        }
+        ultimaRecibida = secuencia;
+        return true;
+    }
+
+    /**
+     * Pasa la sesion a una conexion nueva
+     * Envia primero la respuesta (el SALUDO) y despues lo que el peer no
+     * confirmo, hasta la capacidad de la cola de salida de la conexion
+     * @param confirmacion Ultima secuencia que el peer recibio
+     * @param respuesta Mensaje a enviar antes de repetir, o null
+     * @return false si parte de lo no confirmado ya no estaba en el anillo
+     *         o no cabia en la cola
+     */
+    public boolean reanudar(ConexionPeer nueva, long confirmacion, MensajeJuego respuesta) {
+        int cabe = nueva.getColaSalida().getPolitica().getCapacidad() - (respuesta != null ? 1 : 0);
+        List<MensajeJuego> repetir = new ArrayList<>();
+        boolean completa;
+        envio.lock();
+        try {
+            synchronized (this) {
+                conexion = nueva;
+                nueva.setSesion(this);
+                confirmar(confirmacion);
+                long primera = Math.max(confirmadaPorPeer + 1,
+                    siguienteSecuencia - Math.min(CAPACIDAD_REPETICION, Math.max(cabe, 0)));
+                for (long s = primera; s < siguienteSecuencia; s++) {
+                    repetir.add(enviados[(int) (s % CAPACIDAD_REPETICION)].conSecuencia(s, ultimaRecibida));
+                }
+                completa = primera == confirmadaPorPeer + 1;
+            }
+            if (respuesta != null) {
+                nueva.enviarMensaje(respuesta);
+            }
+            for (MensajeJuego mensaje : repetir) {
+                nueva.enviarMensaje(mensaje);
+            }
+        } finally {
+            envio.unlock();
+        }
+        return completa;
+    }
+
+    /**
+     * Suelta del anillo lo que el peer ya confirmo
+     */
+    private void confirmar(long confirmacion) {
+        if (confirmacion <= confirmadaPorPeer) {
+            return;
+        }
+        long desde = Math.max(confirmadaPorPeer + 1, siguienteSecuencia - CAPACIDAD_REPETICION);
+        long hasta = Math.min(confirmacion, siguienteSecuencia - 1);
+        for (long s = desde; s <= hasta; s++) {
+            enviados[(int) (s % CAPACIDAD_REPETICION)] = null;
+        }
+        confirmadaPorPeer = Math.max(confirmadaPorPeer, hasta);
+    }
+
+    /**
+     * Empieza la sesion de nuevo con otro token: el peer no conocia la anterior
+     * Lo pendiente se descarta y las secuencias vuelven a empezar
+     */
+    public void reiniciar(long token, ConexionPeer nueva) {
+        envio.lock();
+        try {
+            synchronized (this) {
+                this.token = token;
+                Arrays.fill(enviados, null);
+                siguienteSecuencia = 1;
+                ultimaRecibida = 0;
+                confirmadaPorPeer = 0;
+                conexion = nueva;
+                nueva.setSesion(this);
+            }
+        } finally {
+            envio.unlock();
+        }
+    }
+
+    /**
+     * Marca la sesion sin conexion si la que se cerro era la suya
+     * @return false si la sesion ya tenia otra conexion
+     */
+    public synchronized boolean desconectada(ConexionPeer cerrada) {
+        if (cerrada != conexion) {
+            return false;
+        }
+        conexion = null;
+        desconectadaDesde = System.nanoTime();
+        return true;
+    }
+
+    public synchronized boolean estaConectada() {
+        return conexion != null;
+    }
+
+    /**
+     * Indica si sigue conectada o se puede reanudar todavia
+     * @param ventana Milisegundos que se espera una reconexion
+     */
+    public synchronized boolean estaVigente(long ventana) {
+        return conexion != null || System.nanoTime() - desconectadaDesde <= ventana * 1_000_000;
+    }
+
+    public synchronized long getToken() {
+        return token;
+    }
+
+    /**
+     * Token que dio el otro peer al responder el primer SALUDO
+     */
+    synchronized void setToken(long token) {
+        this.token = token;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPuerto() {
+        return puerto;
+    }
+
+    public synchronized ConexionPeer getConexion() {
+        return conexion;
+    }
+
+    public synchronized String getNombrePeer() {
+        return nombrePeer;
+    }
+
+    public synchronized void setNombrePeer(String nombrePeer) {
+        this.nombrePeer = nombrePeer;
+    }
+
+    public synchronized long getUltimaRecibida() {
+        return ultimaRecibida;
+    }
+
+    /**
+     * Mensajes enviados que el peer todavia no confirmo
+     */
+    public synchronized long getSinConfirmar() {
+        return siguienteSecuencia - 1 - confirmadaPorPeer;
+    }
+}
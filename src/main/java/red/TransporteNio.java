@@ -0,0 +1,344 @@
+package red;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Transporte de red sin un hilo por conexion
+ * Unos pocos hilos de seleccion atienden todas las conexiones con
+ * SocketChannel no bloqueantes. Cada hilo tiene su Selector y dos buffers
+ * directos, de lectura y de escritura, que comparten todas sus conexiones:
+ * a cada conexion solo le quedan sus buffers de tramas (unos cientos de bytes)
+ *
+ * Las conexiones son ConexionPeerNio y avisan al mismo EscuchaRed que una
+ * ConexionPeer. Los mensajes llegan desde el hilo de seleccion, asi que el
+ * escucha no debe bloquearse: mientras tanto ese hilo no atiende a las
+ * demas conexiones. Enviar desde cualquier hilo solo encola el mensaje en
+ * la ColaSalida de la conexion; el hilo de seleccion escribe en una sola
+ * escritura todo lo pendiente de cada conexion
+ *
+ * Las desconexiones se avisan desde un hilo aparte, en el orden en que se
+ * cierran. El aviso de un peer que se corta (por saturado, casi siempre el
+ * mas lento) corre codigo del escucha que no es del camino de los mensajes:
+ * en el hilo de seleccion, los peers rapidos de ese hilo dejarian de
+ * recibir mientras tanto
+ */
+public class TransporteNio {
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    private static final int COLA_CONEXIONES = 512;
+
+    private final EscuchaRed escucha;
+    private final Consumer<ConexionPeerNio> alAceptar;
+    private final Bucle[] bucles;
+    private final AtomicInteger siguienteBucle;
+    private final AtomicInteger conexiones;
+    private final ExecutorService avisos;
+    private ServerSocketChannel servidor;
+    private volatile PoliticaSalida politicaSalida;
+    private volatile boolean activo;
+
+    /**
+     * Crea el transporte y arranca sus hilos de seleccion
+     * @param hilos Numero de hilos de seleccion
+     * @param escucha Recibe los mensajes y desconexiones de todas las conexiones
+     * @param alAceptar Se llama con cada conexion entrante, desde un hilo de seleccion
+     */
+    public TransporteNio(int hilos, EscuchaRed escucha, Consumer<ConexionPeerNio> alAceptar) throws IOException {
+        this.escucha = escucha;
+        this.alAceptar = alAceptar;
+        this.bucles = new Bucle[Math.max(1, hilos)];
+        this.siguienteBucle = new AtomicInteger(0);
+        this.conexiones = new AtomicInteger(0);
+        this.avisos = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "red-nio-avisos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.politicaSalida = PoliticaSalida.PREDETERMINADA;
+        this.activo = true;
+        for (int i = 0; i < bucles.length; i++) {
+            bucles[i] = new Bucle("red-nio-" + i);
+        }
+        for (Bucle bucle : bucles) {
+            bucle.hilo.start();
+        }
+    }
+
+    /**
+     * Hilos de seleccion recomendados: la mitad de los nucleos
+     */
+    public static int hilosPorDefecto() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    /**
+     * Empieza a aceptar conexiones en el puerto
+     * @param puerto Puerto TCP (0 para uno libre)
+     * @return Puerto en el que quedo escuchando
+     */
+    public int escuchar(int puerto) throws IOException {
+        servidor = ServerSocketChannel.open();
+        servidor.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        servidor.bind(new InetSocketAddress(puerto), COLA_CONEXIONES);
+        servidor.configureBlocking(false);
+        Bucle bucle = bucles[0];
+        bucle.ejecutar(() -> servidor.register(bucle.selector, SelectionKey.OP_ACCEPT));
+        return ((InetSocketAddress) servidor.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Conecta con un peer
+     * La conexion TCP se establece en el hilo que llama; despues la
+     * conexion pasa a un hilo de seleccion
+     */
+    public ConexionPeerNio conectar(String host, int puerto) throws IOException {
+        SocketChannel canal = SocketChannel.open(new InetSocketAddress(host, puerto));
+        return registrar(canal);
+    }
+
+    /**
+     * Conecta con un peer sin esperar mas que el tiempo dado
+     * @param milis Tiempo maximo para establecer la conexion
+     */
+    public ConexionPeerNio conectar(String host, int puerto, int milis) throws IOException {
+        SocketChannel canal = SocketChannel.open();
+        try {
+            canal.socket().connect(new InetSocketAddress(host, puerto), milis);
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+        return registrar(canal);
+    }
+
+    /**
+     * Reparte las conexiones entre los hilos por turnos
+     */
+    private ConexionPeerNio registrar(SocketChannel canal) throws IOException {
+        canal.configureBlocking(false);
+        canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Bucle bucle = bucles[Math.floorMod(siguienteBucle.getAndIncrement(), bucles.length)];
+        ConexionPeerNio conexion = new ConexionPeerNio(canal, bucle, escucha, politicaSalida);
+        conexiones.incrementAndGet();
+        bucle.ejecutar(() -> conexion.setClave(canal.register(bucle.selector, SelectionKey.OP_READ, conexion)));
+        return conexion;
+    }
+
+    /**
+     * Cierra el puerto y todas las conexiones y detiene los hilos
+     * Las conexiones abiertas avisan su desconexion antes de que terminen
+     */
+    public void cerrar() {
+        activo = false;
+        try {
+            if (servidor != null) {
+                servidor.close();
+            }
+        } catch (IOException e) {
+            System.err.println("[RED] Error cerrando puerto NIO: " + e.getMessage());
+        }
+        for (Bucle bucle : bucles) {
+            bucle.selector.wakeup();
+        }
+        for (Bucle bucle : bucles) {
+            try {
+                bucle.hilo.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        avisos.shutdown();
+        try {
+            avisos.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Limites de la cola de salida de las conexiones que se creen despues
+     */
+    public void setPoliticaSalida(PoliticaSalida politica) {
+        this.politicaSalida = politica;
+    }
+
+    public int contarConexiones() {
+        return conexiones.get();
+    }
+
+    public int getHilos() {
+        return bucles.length;
+    }
+
+    /**
+     * Tarea que corre en el hilo de seleccion
+     */
+    interface TareaRed {
+        void ejecutar() throws IOException;
+    }
+
+    /**
+     * Un hilo de seleccion con su Selector y sus buffers directos
+     */
+    final class Bucle implements Runnable {
+        final Selector selector;
+        final Thread hilo;
+        private final ByteBuffer lectura = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        private final ByteBuffer escritura = ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        private final Queue<TareaRed> tareas = new ConcurrentLinkedQueue<>();
+        private final Queue<ConexionPeerNio> pendientes = new ConcurrentLinkedQueue<>();
+
+        Bucle(String nombre) throws IOException {
+            this.selector = Selector.open();
+            this.hilo = new Thread(this, nombre);
+            this.hilo.setDaemon(true);
+        }
+
+        /**
+         * Pide correr una tarea en este hilo
+         */
+        void ejecutar(TareaRed tarea) {
+            tareas.add(tarea);
+            despertar();
+        }
+
+        /**
+         * Pide escribir lo pendiente de una conexion
+         */
+        void pedirEscritura(ConexionPeerNio conexion) {
+            pendientes.add(conexion);
+            despertar();
+        }
+
+        /**
+         * Una conexion cerrada se descuenta y avisa al escucha
+         * El aviso pasa al hilo de avisos; si ya se detuvo (cierre que
+         * vencio su espera), se avisa aqui mismo
+         */
+        void desconectada(ConexionPeerNio conexion) {
+            ejecutar(() -> {
+                conexiones.decrementAndGet();
+                try {
+                    avisos.execute(conexion::notificarDesconexion);
+                } catch (RejectedExecutionException e) {
+                    conexion.notificarDesconexion();
+                }
+            });
+        }
+
+        private void despertar() {
+            // Desde el propio hilo no hace falta: revisa las colas antes de esperar
+            if (Thread.currentThread() != hilo) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (activo) {
+                try {
+                    ejecutarTareas();
+                    escribirPendientes();
+                    if (tareas.isEmpty() && pendientes.isEmpty()) {
+                        selector.select(this::atender);
+                    } else {
+                        selector.selectNow(this::atender);
+                    }
+                } catch (IOException e) {
+                    System.err.println("[RED] Error en " + hilo.getName() + ": " + e.getMessage());
+                }
+            }
+
+            // Registros pendientes (una conexion recien aceptada) y lo ultimo
+            // que se encolo (el aviso de salida) antes de cerrar
+            ejecutarTareas();
+            escribirPendientes();
+            for (SelectionKey clave : selector.keys()) {
+                if (clave.attachment() instanceof ConexionPeerNio) {
+                    ((ConexionPeerNio) clave.attachment()).cerrar();
+                }
+            }
+            ejecutarTareas();
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("[RED] Error cerrando selector: " + e.getMessage());
+            }
+        }
+
+        private void ejecutarTareas() {
+            TareaRed tarea;
+            while ((tarea = tareas.poll()) != null) {
+                try {
+                    tarea.ejecutar();
+                } catch (IOException e) {
+                    // Canal cerrado antes de registrarse: su desconexion ya esta en cola
+                }
+            }
+        }
+
+        private void escribirPendientes() {
+            ConexionPeerNio conexion;
+            while ((conexion = pendientes.poll()) != null) {
+                try {
+                    conexion.escribir(escritura);
+                } catch (IOException e) {
+                    conexion.cerrarPorError(e);
+                } catch (CancelledKeyException e) {
+                    // Cerrada desde otro hilo mientras esperaba
+                }
+            }
+        }
+
+        private void atender(SelectionKey clave) {
+            if (!clave.isValid()) {
+                return;
+            }
+            if (clave.isAcceptable()) {
+                aceptar();
+                return;
+            }
+            ConexionPeerNio conexion = (ConexionPeerNio) clave.attachment();
+            try {
+                if (clave.isReadable()) {
+                    conexion.leer(lectura);
+                }
+                if (clave.isValid() && clave.isWritable()) {
+                    conexion.escribir(escritura);
+                }
+            } catch (IOException e) {
+                conexion.cerrarPorError(e);
+            } catch (CancelledKeyException e) {
+                // Otro hilo cerro la conexion (latidos, reanudacion): su desconexion ya esta en cola
+            }
+        }
+
+        private void aceptar() {
+            try {
+                SocketChannel canal;
+                while ((canal = servidor.accept()) != null) {
+                    alAceptar.accept(registrar(canal));
+                }
+            } catch (IOException e) {
+                if (activo) {
+                    System.err.println("[RED] Error aceptando conexion: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package servidor;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import red.CodificadorMensajes;
+import red.MensajeJuego;
+
+/**
+ * Mide el costo por mesa del servidor de partidas
+ * Levanta un servidor en un puerto libre, conecta dos clientes por mesa
+ * desde el mismo proceso y reporta heap e hilos de plataforma por mesa
+ *
+ * El heap medido incluye los sockets y streams de los clientes de prueba,
+ * asi que es una cota superior del costo real en el servidor
+ */
+public final class MedidorCarga {
+    private static final long ESPERA_MAXIMA_MS = 60_000;
+
+    private MedidorCarga() {
+    }
+
+    /**
+     * Ejecuta la medicion e imprime el resultado
+     * @param mesas Numero de mesas a llenar
+     * @param hilosNio Hilos de seleccion del servidor, o 0 para hilos virtuales
+     */
+    public static void medir(int mesas, int hilosNio) throws IOException, InterruptedException {
+        ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+        ServidorPartidas servidor = new ServidorPartidas(0, hilosNio);
+        servidor.iniciar();
+
+        long heapAntes = heapUsado();
+        int hilosAntes = hilos.getThreadCount();
+
+        List<Socket> sockets = new ArrayList<>();
+        CodificadorMensajes codificador = new CodificadorMensajes();
+        long inicio = System.nanoTime();
+
+        for (int i = 0; i < mesas * MesaPartida.JUGADORES_POR_MESA; i++) {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), servidor.getPuerto());
+            codificador.escribir(new MensajeJuego(MensajeJuego.TipoMensaje.SALUDO, "Carga" + i, ""),
+                socket.getOutputStream());
+            sockets.add(socket);
+        }
+
+        long limite = System.currentTimeMillis() + ESPERA_MAXIMA_MS;
+        while (servidor.contarMesasIniciadas() < mesas && System.currentTimeMillis() < limite) {
+            Thread.sleep(50);
+        }
+        long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+
+        long heapDespues = heapUsado();
+        int hilosDespues = hilos.getThreadCount();
+        int iniciadas = servidor.contarMesasIniciadas();
+
+        System.out.println("\n=== CARGA DEL SERVIDOR ===");
+        System.out.println("Mesas iniciadas: " + iniciadas + " de " + mesas + " en " + milisegundos + " ms");
+        System.out.println("Conexiones activas: " + servidor.getConexionesActivas());
+        System.out.println("Hilos de plataforma: " + hilosAntes + " -> " + hilosDespues);
+        System.out.println(String.format("Heap: %d KB -> %d KB", heapAntes / 1024, heapDespues / 1024));
+        if (iniciadas > 0) {
+            System.out.println(String.format("Por mesa: %.1f KB de heap, %.3f hilos de plataforma",
+                (heapDespues - heapAntes) / 1024.0 / iniciadas,
+                (double) (hilosDespues - hilosAntes) / iniciadas));
+        }
+        System.out.println(servidor.resumen());
+
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        servidor.cerrar();
+    }
+
+    private static long heapUsado() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,251 @@
+package servidor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import modelo.EstadoCompacto;
+import modelo.Ficha;
+import modelo.GeneradorMovimientos;
+import modelo.Jugador;
+import modelo.Partida;
+import modelo.ResultadoMovimiento;
+import modelo.TablasTablero;
+import red.ConexionPeer;
+import red.MensajeJuego;
+import utilidades.RegistroPartidaJSON;
+
+/**
+ * Mesa de juego dentro del servidor de partidas
+ * Cada mesa tiene su propia Partida (tablero, reglas y registro JSON)
+ * y su propio conjunto de peers
+ *
+ * Los mensajes de una mesa se procesan bajo su propio lock, de modo que
+ * las mesas no se bloquean entre si. Se usa ReentrantLock y no synchronized
+ * para no fijar el hilo portador cuando se atiende con hilos virtuales
+ */
+public class MesaPartida {
+    public static final int JUGADORES_POR_MESA = 2;
+
+    private final int idMesa;
+    private final Partida partida;
+    private final List<ConexionPeer> peers;
+    private final Map<ConexionPeer, Jugador> asientos;
+    private final ReentrantLock lock;
+    // Validacion de movimientos: se reutilizan bajo el lock de la mesa
+    private final GeneradorMovimientos generador;
+    private final EstadoCompacto estado;
+    private final int[] movimientos;
+    private boolean iniciada;
+    private boolean terminada;
+
+    /**
+     * Constructor de mesa vacia
+     * @param idMesa Identificador de la mesa, tambien usado como id de la Partida
+     */
+    public MesaPartida(int idMesa) {
+        this.idMesa = idMesa;
+        this.partida = new Partida(idMesa);
+        this.peers = new CopyOnWriteArrayList<>();
+        this.asientos = new HashMap<>();
+        this.lock = new ReentrantLock();
+        this.generador = new GeneradorMovimientos(partida.getTablero());
+        this.estado = new EstadoCompacto();
+        this.movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        this.iniciada = false;
+        this.terminada = false;
+
+        RegistroPartidaJSON registro = partida.getRegistroJSON();
+        registro.setNombreArchivoSalida(registro.getNombreArchivoSalida()
+            .replace("registro_partida_", "registro_partida_mesa" + idMesa + "_"));
+    }
+
+    /**
+     * Sienta a un peer en el siguiente asiento libre
+     * El asiento define el id de jugador (1, 2, ...) y el color
+     * Al completarse la mesa se inicia la partida
+     * @param peer Conexion del jugador
+     * @param nombre Nombre recibido en el SALUDO
+     * @return false si la mesa ya esta llena o iniciada
+     */
+    public boolean sentar(ConexionPeer peer, String nombre) {
+        lock.lock();
+        try {
+            if (iniciada || asientos.size() >= JUGADORES_POR_MESA) {
+                return false;
+            }
+
+            int asiento = asientos.size();
+            Jugador jugador = new Jugador(asiento + 1, nombre, TablasTablero.COLORES[asiento]);
+            partida.agregarJugador(jugador);
+            asientos.put(peer, jugador);
+            peers.add(peer);
+
+            peer.enviarMensaje(new MensajeJuego(
+                MensajeJuego.TipoMensaje.SALUDO,
+                ServidorPartidas.NOMBRE_SERVIDOR,
+                "mesa:" + idMesa + ",jugador:" + jugador.getIdJugador()
+            ));
+            difundirExcepto(peer, new MensajeJuego(
+                MensajeJuego.TipoMensaje.JUGADOR_ENTRA,
+                nombre,
+                "jugador:" + jugador.getIdJugador()
+            ));
+
+            if (asientos.size() == JUGADORES_POR_MESA) {
+                partida.iniciarPartida();
+                iniciada = true;
+                difundirExcepto(null, MensajeJuego.inicioJuego(ServidorPartidas.NOMBRE_SERVIDOR));
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Procesa un mensaje de un jugador sentado en esta mesa
+     * Los movimientos se validan y aplican sobre la Partida de la mesa
+     * antes de reenviarse. Solo mueve y pasa el turno el jugador en turno,
+     * y solo al siguiente de la rotacion; el resto de mensajes se reenvia tal cual
+     * @param mensaje Mensaje recibido
+     * @param desde Peer que lo envio
+     */
+    public void recibir(MensajeJuego mensaje, ConexionPeer desde) {
+        lock.lock();
+        try {
+            Jugador jugador = asientos.get(desde);
+            if (jugador == null || terminada) {
+                return;
+            }
+
+            switch (mensaje.getTipo()) {
+                case SALUDO:
+                    return;
+                case MOVIMIENTO:
+                    if (!aplicarMovimiento(jugador, mensaje)) {
+                        System.err.println("[MESA " + idMesa + "] Movimiento invalido de " +
+                                         jugador.getNombre() + ": " + mensaje.getContenido());
+                        return;
+                    }
+                    break;
+                case CAMBIO_TURNO:
+                    if (!aplicarCambioTurno(jugador, mensaje)) {
+                        System.err.println("[MESA " + idMesa + "] Cambio de turno invalido de " +
+                                         jugador.getNombre() + ": " + mensaje.getContenido());
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            difundirExcepto(desde, mensaje);
+
+            if (jugador.contarFichasEnMeta() == 4 || mensaje.getTipo() == MensajeJuego.TipoMensaje.FIN_JUEGO) {
+                terminar(jugador);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aplica un mensaje MOVIMIENTO sobre la partida
+     * Es legal si la ficha esta entre los movimientos que GeneradorMovimientos
+     * da al jugador en turno (barreras incluidas), como las opciones de
+     * ControladorPartida; 10 y 20 pasos son el uso de un premio
+     * @return false si el movimiento no es legal para este jugador
+     */
+    private boolean aplicarMovimiento(Jugador jugador, MensajeJuego movimiento) {
+        int jugadorId = movimiento.getJugadorId();
+        int fichaId = movimiento.getFichaId();
+        int pasos = movimiento.getValorDado();
+
+        Ficha ficha = partida.buscarFicha(fichaId);
+        if (partida.getTurnoActual() != jugador || jugadorId != jugador.getIdJugador() || ficha == null
+                || ficha.getJugadorId() != jugadorId) {
+            return false;
+        }
+        estado.cargar(partida);
+        if (!generador.esLegal(estado, partida.indiceFicha(ficha), pasos, movimientos)) {
+            return false;
+        }
+
+        // El registro JSON de la partida recibe el resultado como suscriptor
+        return partida.aplicarMovimiento(ficha, pasos) != ResultadoMovimiento.NINGUNO;
+    }
+
+    /**
+     * Aplica un mensaje CAMBIO_TURNO sobre la partida
+     * @return false si quien lo envia no esta en turno o no nombra al
+     *         siguiente jugador de la rotacion
+     */
+    private boolean aplicarCambioTurno(Jugador jugador, MensajeJuego cambio) {
+        if (partida.getTurnoActual() != jugador) {
+            return false;
+        }
+        List<Jugador> jugadores = partida.getJugadores();
+        Jugador siguiente = jugadores.get((jugadores.indexOf(jugador) + 1) % jugadores.size());
+        if (cambio.getJugadorId() != siguiente.getIdJugador()) {
+            return false;
+        }
+        partida.cambiarTurno();
+        return true;
+    }
+
+    /**
+     * Quita a un peer de la mesa y avisa al resto
+     * @param peer Peer desconectado
+     */
+    public void salir(ConexionPeer peer) {
+        lock.lock();
+        try {
+            Jugador jugador = asientos.remove(peer);
+            peers.remove(peer);
+            if (jugador != null) {
+                difundirExcepto(peer, new MensajeJuego(
+                    MensajeJuego.TipoMensaje.JUGADOR_SALE,
+                    jugador.getNombre(),
+                    "jugador:" + jugador.getIdJugador()
+                ));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cierra la partida de la mesa y guarda su registro
+     */
+    private void terminar(Jugador ultimoEnMover) {
+        terminada = true;
+        String ganador = ultimoEnMover.contarFichasEnMeta() == 4 ? ultimoEnMover.getNombre() : "Sin ganador";
+        partida.getRegistroJSON().registrarFinPartida(ganador);
+        partida.getRegistroJSON().guardarRegistro();
+        System.out.println("[MESA " + idMesa + "] Partida terminada: " + ganador);
+    }
+
+    private void difundirExcepto(ConexionPeer excluido, MensajeJuego mensaje) {
+        for (ConexionPeer peer : peers) {
+            if (peer != excluido && peer.estaConectado()) {
+                peer.enviarMensaje(mensaje);
+            }
+        }
+    }
+
+    public int getIdMesa() { return idMesa; }
+    public Partida getPartida() { return partida; }
+    public int contarPeers() { return peers.size(); }
+    public boolean estaVacia() { return peers.isEmpty(); }
+
+    public boolean estaIniciada() {
+        lock.lock();
+        try {
+            return iniciada;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package servidor;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import red.ConexionPeer;
+import red.EscuchaRed;
+import red.MensajeJuego;
+import red.ModoEjecucion;
+import red.PoliticaSalida;
+import red.TransporteNio;
+
+/**
+ * Servidor sin consola que aloja muchas mesas a la vez
+ * Un solo puerto TCP recibe a todos los jugadores; cada conexion se atiende
+ * como tarea de un ejecutor compartido de hilos virtuales, en lugar de un
+ * hilo de plataforma por ConexionPeer. Con hilos NIO las conexiones las
+ * atiende un TransporteNio: unos pocos hilos de seleccion para todas
+ *
+ * Protocolo: el primer mensaje de un jugador es un SALUDO con su nombre.
+ * Si el contenido es "mesa:N" se sienta en esa mesa; si no, en la mesa
+ * abierta que se este llenando. El servidor responde con un SALUDO
+ * "mesa:N,jugador:J" y envia INICIO_JUEGO cuando la mesa se completa.
+ * Los mensajes van en tramas binarias (CodificadorMensajes) y se reenvian
+ * ya decodificados a los demas jugadores de la mesa
+ */
+public class ServidorPartidas implements EscuchaRed {
+    public static final String NOMBRE_SERVIDOR = "Servidor";
+
+    private final int puerto;
+    private final int hilosNio;
+    private ServerSocket servidorSocket;
+    private TransporteNio transporteNio;
+    private int puertoNio;
+    private final ExecutorService ejecutor;
+    private final Map<Integer, MesaPartida> mesas;
+    private final Map<ConexionPeer, MesaPartida> mesaDePeer;
+    private final AtomicInteger siguienteMesa;
+    private final AtomicInteger conexionesActivas;
+    private final ReentrantLock lockAsignacion;
+    private MesaPartida mesaAbierta;
+    private volatile boolean activo;
+
+    /**
+     * Constructor del servidor
+     * @param puerto Puerto TCP (0 para uno libre)
+     */
+    public ServidorPartidas(int puerto) {
+        this(puerto, 0);
+    }
+
+    /**
+     * Constructor del servidor
+     * @param puerto Puerto TCP (0 para uno libre)
+     * @param hilosNio Hilos de seleccion del TransporteNio, o 0 para un
+     *                 hilo virtual por conexion
+     */
+    public ServidorPartidas(int puerto, int hilosNio) {
+        this.puerto = puerto;
+        this.hilosNio = hilosNio;
+        this.ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.mesas = new ConcurrentHashMap<>();
+        this.mesaDePeer = new ConcurrentHashMap<>();
+        this.siguienteMesa = new AtomicInteger(1);
+        this.conexionesActivas = new AtomicInteger(0);
+        this.lockAsignacion = new ReentrantLock();
+        this.activo = false;
+    }
+
+    /**
+     * Abre el puerto y empieza a aceptar conexiones
+     */
+    public void iniciar() throws IOException {
+        if (activo) return;
+
+        if (hilosNio > 0) {
+            transporteNio = new TransporteNio(hilosNio, this, peer -> conexionesActivas.incrementAndGet());
+            puertoNio = transporteNio.escuchar(puerto);
+            activo = true;
+            System.out.println("[SERVIDOR] Escuchando en puerto " + getPuerto() + " con " + hilosNio + " hilos NIO");
+            return;
+        }
+
+        servidorSocket = new ServerSocket();
+        servidorSocket.setReuseAddress(true);
+        servidorSocket.bind(new InetSocketAddress(puerto), 512);
+        activo = true;
+
+        ejecutor.execute(this::aceptarConexiones);
+        System.out.println("[SERVIDOR] Escuchando en puerto " + getPuerto());
+    }
+
+    private void aceptarConexiones() {
+        while (activo) {
+            try {
+                Socket socket = servidorSocket.accept();
+                socket.setTcpNoDelay(true);
+                ejecutor.execute(() -> atender(socket));
+            } catch (IOException e) {
+                if (activo) {
+                    System.err.println("[SERVIDOR] Error aceptando conexion: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Atiende una conexion hasta que se cierre
+     * Los streams se crean aqui y no en el hilo que acepta,
+     * para que un cliente lento no frene a los demas
+     */
+    private void atender(Socket socket) {
+        conexionesActivas.incrementAndGet();
+        ConexionPeer peer = new ConexionPeer(socket, this, ModoEjecucion.VIRTUAL, PoliticaSalida.PREDETERMINADA);
+        peer.run();
+    }
+
+    @Override
+    public void alRecibirMensaje(MensajeJuego mensaje, ConexionPeer desde) {
+        MesaPartida mesa = mesaDePeer.get(desde);
+        if (mesa != null) {
+            mesa.recibir(mensaje, desde);
+        } else if (mensaje.getTipo() == MensajeJuego.TipoMensaje.SALUDO) {
+            asignarMesa(desde, mensaje);
+        }
+    }
+
+    @Override
+    public void alDesconectarPeer(ConexionPeer peer) {
+        conexionesActivas.decrementAndGet();
+        MesaPartida mesa = mesaDePeer.remove(peer);
+        if (mesa != null) {
+            mesa.salir(peer);
+            // Bajo el lock de asignacion para no sentar a nadie en una mesa que se cierra
+            lockAsignacion.lock();
+            try {
+                if (mesa.estaVacia() && mesas.remove(mesa.getIdMesa(), mesa)) {
+                    System.out.println("[SERVIDOR] Mesa " + mesa.getIdMesa() + " cerrada");
+                }
+            } finally {
+                lockAsignacion.unlock();
+            }
+        }
+    }
+
+    /**
+     * Sienta a un jugador nuevo en la mesa pedida o en la mesa abierta
+     */
+    private void asignarMesa(ConexionPeer peer, MensajeJuego saludo) {
+        String nombre = saludo.getEmisor();
+        String contenido = saludo.getContenido();
+        MesaPartida mesa;
+
+        lockAsignacion.lock();
+        try {
+            if (contenido != null && contenido.startsWith("mesa:")) {
+                int idMesa = Integer.parseInt(contenido.substring(5).trim());
+                mesa = mesas.computeIfAbsent(idMesa, MesaPartida::new);
+                if (!mesa.sentar(peer, nombre)) {
+                    peer.enviarYCerrar(new MensajeJuego(
+                        MensajeJuego.TipoMensaje.CHAT, NOMBRE_SERVIDOR, "Mesa " + idMesa + " llena"));
+                    return;
+                }
+            } else {
+                if (mesaAbierta == null || mesas.get(mesaAbierta.getIdMesa()) != mesaAbierta
+                        || !mesaAbierta.sentar(peer, nombre)) {
+                    mesaAbierta = crearMesa();
+                    mesaAbierta.sentar(peer, nombre);
+                }
+                mesa = mesaAbierta;
+            }
+            mesaDePeer.put(peer, mesa);
+        } catch (NumberFormatException e) {
+            System.err.println("[SERVIDOR] Mesa invalida en saludo: " + contenido);
+            peer.cerrar();
+        } finally {
+            lockAsignacion.unlock();
+        }
+    }
+
+    private MesaPartida crearMesa() {
+        int idMesa;
+        do {
+            idMesa = siguienteMesa.getAndIncrement();
+        } while (mesas.containsKey(idMesa));
+        MesaPartida mesa = new MesaPartida(idMesa);
+        mesas.put(idMesa, mesa);
+        return mesa;
+    }
+
+    /**
+     * Cierra el puerto, todas las conexiones y el ejecutor
+     */
+    public void cerrar() {
+        activo = false;
+        try {
+            if (servidorSocket != null && !servidorSocket.isClosed()) {
+                servidorSocket.close();
+            }
+        } catch (IOException e) {
+            System.err.println("[SERVIDOR] Error cerrando puerto: " + e.getMessage());
+        }
+
+        for (ConexionPeer peer : mesaDePeer.keySet()) {
+            peer.cerrar();
+        }
+        if (transporteNio != null) {
+            transporteNio.cerrar();
+        }
+        ejecutor.shutdown();
+        try {
+            ejecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("[SERVIDOR] Servidor cerrado");
+    }
+
+    /**
+     * Linea de estado con mesas, conexiones, hilos de plataforma y heap
+     */
+    public String resumen() {
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsado = runtime.totalMemory() - runtime.freeMemory();
+        return String.format("[SERVIDOR] Mesas: %d (%d iniciadas), conexiones: %d, hilos de plataforma: %d, heap: %d KB",
+            mesas.size(), contarMesasIniciadas(), conexionesActivas.get(),
+            ManagementFactory.getThreadMXBean().getThreadCount(), heapUsado / 1024);
+    }
+
+    public int contarMesasIniciadas() {
+        int total = 0;
+        for (MesaPartida mesa : mesas.values()) {
+            if (mesa.estaIniciada()) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    public int getPuerto() {
+        if (transporteNio != null) {
+            return puertoNio;
+        }
+        return servidorSocket != null ? servidorSocket.getLocalPort() : puerto;
+    }
+
+    public int getMesasActivas() { return mesas.size(); }
+    public int getConexionesActivas() { return conexionesActivas.get(); }
+    public boolean estaActivo() { return activo; }
+}
@@ -0,0 +1,20 @@
+package simulacion;
+
+import java.util.random.RandomGenerator;
+import modelo.EstadoCompacto;
+
+/**
+ * Elector que escoge un movimiento legal al azar
+ */
+public class ElectorAleatorio implements ElectorMovimiento {
+    private final RandomGenerator random;
+    
+    public ElectorAleatorio(RandomGenerator random) {
+        this.random = random;
+    }
+    
+    @Override
+    public int elegir(EstadoCompacto estado, int[] movimientos, int cantidad, int pasos) {
+        return cantidad == 1 ? 0 : random.nextInt(cantidad);
+    }
+}
@@ -0,0 +1,30 @@
+package simulacion;
+
+import modelo.EstadoCompacto;
+import modelo.GeneradorMovimientos;
+
+/**
+ * Elector voraz: prefiere sacar fichas de casa y despues
+ * avanzar la ficha que este mas cerca de la meta
+ */
+public class ElectorAvanzado implements ElectorMovimiento {
+    
+    @Override
+    public int elegir(EstadoCompacto estado, int[] movimientos, int cantidad, int pasos) {
+        int mejor = 0;
+        int mejorPosicion = Integer.MIN_VALUE;
+        
+        for (int i = 0; i < cantidad; i++) {
+            int ficha = GeneradorMovimientos.ficha(movimientos[i]);
+            if (estado.estaEnCasa(ficha)) {
+                return i;
+            }
+            int posicion = estado.getPosicion(ficha);
+            if (posicion > mejorPosicion) {
+                mejorPosicion = posicion;
+                mejor = i;
+            }
+        }
+        return mejor;
+    }
+}
@@ -0,0 +1,20 @@
+package simulacion;
+
+import modelo.EstadoCompacto;
+
+/**
+ * Estrategia que decide que movimiento hacer en una partida sin consola
+ * Cada asiento del motor de simulacion tiene su propio elector
+ */
+public interface ElectorMovimiento {
+    
+    /**
+     * Elige un movimiento entre los legales
+     * @param estado Estado actual (no debe modificarse)
+     * @param movimientos Movimientos legales, codificados por GeneradorMovimientos
+     * @param cantidad Numero de movimientos validos en el arreglo
+     * @param pasos Casillas a avanzar (valor del dado o premio)
+     * @return Posicion dentro del arreglo de movimientos (0 a cantidad-1)
+     */
+    int elegir(EstadoCompacto estado, int[] movimientos, int cantidad, int pasos);
+}
@@ -0,0 +1,107 @@
+package simulacion;
+
+import modelo.EstadoCompacto;
+
+/**
+ * Acumula resultados de un lote de partidas simuladas
+ * Cada hilo llena su propia instancia y al final se combinan
+ */
+public class EstadisticasSimulacion {
+    private long partidas;
+    private long partidasSinGanador;
+    private long[] victorias;
+    private long turnos;
+    private long tiradas;
+    private long capturas;
+    private long llegadasMeta;
+    private long penalizacionesTresSeis;
+    private long nanosegundos;
+    
+    public EstadisticasSimulacion() {
+        this.victorias = new long[EstadoCompacto.MAX_JUGADORES];
+    }
+    
+    /**
+     * Registra el final de una partida
+     * @param ganador Asiento ganador o -1 si se alcanzo el limite de turnos
+     * @param turnosPartida Turnos jugados en la partida
+     */
+    public void registrarPartida(int ganador, int turnosPartida) {
+        partidas++;
+        turnos += turnosPartida;
+        if (ganador >= 0) {
+            victorias[ganador]++;
+        } else {
+            partidasSinGanador++;
+        }
+    }
+    
+    public void registrarTirada() { tiradas++; }
+    public void registrarCaptura() { capturas++; }
+    public void registrarLlegadaMeta() { llegadasMeta++; }
+    public void registrarPenalizacionTresSeis() { penalizacionesTresSeis++; }
+    public void agregarTiempo(long nanos) { nanosegundos += nanos; }
+    
+    /**
+     * Suma los resultados de otro lote a este
+     * El tiempo se toma como el mayor de ambos, porque los lotes corren en paralelo
+     * @param otro Estadisticas de otro lote
+     * @return Esta misma instancia
+     */
+    public EstadisticasSimulacion combinar(EstadisticasSimulacion otro) {
+        partidas += otro.partidas;
+        partidasSinGanador += otro.partidasSinGanador;
+        for (int i = 0; i < victorias.length; i++) {
+            victorias[i] += otro.victorias[i];
+        }
+        turnos += otro.turnos;
+        tiradas += otro.tiradas;
+        capturas += otro.capturas;
+        llegadasMeta += otro.llegadasMeta;
+        penalizacionesTresSeis += otro.penalizacionesTresSeis;
+        nanosegundos = Math.max(nanosegundos, otro.nanosegundos);
+        return this;
+    }
+    
+    /**
+     * Partidas completadas por segundo de tiempo medido
+     */
+    public double partidasPorSegundo() {
+        return nanosegundos == 0 ? 0.0 : partidas * 1_000_000_000.0 / nanosegundos;
+    }
+    
+    public double turnosPromedio() {
+        return partidas == 0 ? 0.0 : (double) turnos / partidas;
+    }
+    
+    // Getters
+    public long getPartidas() { return partidas; }
+    public long getPartidasSinGanador() { return partidasSinGanador; }
+    public long getVictorias(int jugador) { return victorias[jugador]; }
+    public long getTurnos() { return turnos; }
+    public long getTiradas() { return tiradas; }
+    public long getCapturas() { return capturas; }
+    public long getLlegadasMeta() { return llegadasMeta; }
+    public long getPenalizacionesTresSeis() { return penalizacionesTresSeis; }
+    public long getNanosegundos() { return nanosegundos; }
+    public void setNanosegundos(long nanos) { this.nanosegundos = nanos; }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Partidas: ").append(partidas)
+          .append(" (sin ganador: ").append(partidasSinGanador).append(")\n");
+        for (int i = 0; i < victorias.length; i++) {
+            if (victorias[i] > 0) {
+                sb.append("  Victorias jugador ").append(i + 1).append(": ")
+                  .append(victorias[i]).append("\n");
+            }
+        }
+        sb.append("Turnos promedio: ").append(String.format("%.1f", turnosPromedio())).append("\n");
+        sb.append("Capturas: ").append(capturas)
+          .append("  Llegadas a meta: ").append(llegadasMeta)
+          .append("  Penalizaciones 3x6: ").append(penalizacionesTresSeis).append("\n");
+        sb.append("Partidas por segundo: ").append(String.format("%.0f", partidasPorSegundo()));
+        return sb.toString();
+    }
+}
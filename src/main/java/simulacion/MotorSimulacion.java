@@ -0,0 +1,162 @@
+package simulacion;
+
+import modelo.EstadoCompacto;
+import modelo.FuenteDados;
+import modelo.GeneradorMovimientos;
+import modelo.NucleoReglas;
+import modelo.ResultadoMovimiento;
+import modelo.Tablero;
+
+/**
+ * Motor de partidas sin consola
+ * Juega partidas completas sobre EstadoCompacto con el mismo NucleoReglas
+ * que ControladorPartida: salida con 5, capturas, meta, premios de 10 y 20
+ * casillas y penalizacion por tres 6 seguidos. Ningun movimiento imprime,
+ * registra ni crea objetos
+ * Los movimientos legales salen de GeneradorMovimientos, que ademas respeta barreras
+ *
+ * Diferencia con el controlador interactivo: el premio lo usa en el acto
+ * el jugador que lo gano, en lugar de quedar para el siguiente turno
+ */
+public class MotorSimulacion {
+    /** Limite de turnos para cortar partidas que no terminan */
+    public static final int MAX_TURNOS = 10_000;
+
+    private final ElectorMovimiento[] electores;
+    private final GeneradorMovimientos generador;
+    private final EstadoCompacto estadoInicial;
+    private final int[] movimientos;
+    private final EstadoCompacto estado;
+
+    /**
+     * Constructor del motor
+     * El jugador i juega con el color de indice i (Amarillo, Azul, ...)
+     * @param electores Un elector por asiento (2 a 4)
+     */
+    public MotorSimulacion(ElectorMovimiento... electores) {
+        if (electores.length < 2 || electores.length > EstadoCompacto.MAX_JUGADORES) {
+            throw new IllegalArgumentException("Se necesitan entre 2 y 4 electores");
+        }
+        this.electores = electores.clone();
+        int[] colores = new int[electores.length];
+        for (int i = 0; i < colores.length; i++) {
+            colores[i] = i;
+        }
+        this.estadoInicial = EstadoCompacto.inicial(colores);
+        this.generador = new GeneradorMovimientos(new Tablero());
+        this.movimientos = new int[GeneradorMovimientos.MAX_MOVIMIENTOS];
+        this.estado = new EstadoCompacto();
+    }
+
+    /**
+     * Simula un lote de partidas desde la posicion inicial
+     * @param partidas Numero de partidas a jugar
+     * @param dados Fuente de las tiradas
+     * @return Estadisticas del lote, incluyendo partidas por segundo
+     */
+    public EstadisticasSimulacion simular(int partidas, FuenteDados dados) {
+        EstadisticasSimulacion estadisticas = new EstadisticasSimulacion();
+        long inicio = System.nanoTime();
+
+        for (int i = 0; i < partidas; i++) {
+            estado.copiarDe(estadoInicial);
+            jugarPartida(estado, dados, estadisticas);
+        }
+
+        estadisticas.agregarTiempo(System.nanoTime() - inicio);
+        return estadisticas;
+    }
+
+    /**
+     * Juega una partida hasta que alguien gane o se alcance MAX_TURNOS
+     * @param estado Estado de partida, se modifica en el lugar
+     * @param dados Fuente de las tiradas
+     * @param estadisticas Acumulador de resultados (puede ser null)
+     * @return Asiento ganador o -1 si no hubo ganador
+     */
+    public int jugarPartida(EstadoCompacto estado, FuenteDados dados, EstadisticasSimulacion estadisticas) {
+        int turnos = 0;
+        int ganador = estado.getGanador();
+
+        while (ganador < 0 && turnos < MAX_TURNOS) {
+            int valorDado = dados.lanzar();
+            ganador = jugarTirada(estado, valorDado, estadisticas);
+            turnos++;
+        }
+
+        if (estadisticas != null) {
+            estadisticas.registrarPartida(ganador, turnos);
+        }
+        return ganador;
+    }
+
+    /**
+     * Resuelve una tirada completa del jugador en turno
+     * Mueve, aplica reglas, usa el premio y decide turno extra o cambio de turno
+     * @param estado Estado a modificar
+     * @param valorDado Valor obtenido (1-6)
+     * @param estadisticas Acumulador de resultados (puede ser null)
+     * @return Asiento ganador o -1 si la partida sigue
+     */
+    public int jugarTirada(EstadoCompacto estado, int valorDado, EstadisticasSimulacion estadisticas) {
+        int jugador = estado.getTurno();
+        ElectorMovimiento elector = electores[jugador];
+
+        if (estadisticas != null) {
+            estadisticas.registrarTirada();
+        }
+
+        int cantidad = generador.generar(estado, valorDado, movimientos);
+        if (cantidad > 0) {
+            int movimiento = movimientos[elector.elegir(estado, movimientos, cantidad, valorDado)];
+            long resultado = NucleoReglas.mover(estado, GeneradorMovimientos.ficha(movimiento), valorDado);
+            registrarResultado(resultado, estadisticas);
+
+            int premio = ResultadoMovimiento.premio(resultado);
+            if (premio > 0) {
+                usarPremio(estado, jugador, premio, estadisticas);
+            }
+
+            if (estado.contarEnMeta(jugador) == EstadoCompacto.FICHAS_POR_JUGADOR) {
+                return jugador;
+            }
+        }
+
+        int cierre = NucleoReglas.cerrarTirada(estado, valorDado);
+        if (cierre == NucleoReglas.PENALIZACION_TRES_SEIS && estadisticas != null) {
+            estadisticas.registrarPenalizacionTresSeis();
+        }
+        return -1;
+    }
+
+    /**
+     * Usa las casillas de premio con una ficha en juego del mismo jugador
+     * Como en ControladorPartida, el premio que genere este movimiento se pierde
+     */
+    private void usarPremio(EstadoCompacto estado, int jugador, int premio, EstadisticasSimulacion estadisticas) {
+        estado.setCasillasPremio(premio);
+        int cantidad = generador.generarPremio(estado, premio, movimientos);
+
+        if (cantidad > 0) {
+            int movimiento = movimientos[electores[jugador].elegir(estado, movimientos, cantidad, premio)];
+            long resultado = NucleoReglas.mover(estado, GeneradorMovimientos.ficha(movimiento), premio);
+            registrarResultado(resultado, estadisticas);
+        }
+        estado.setCasillasPremio(0);
+    }
+
+    private static void registrarResultado(long resultado, EstadisticasSimulacion estadisticas) {
+        if (estadisticas == null) {
+            return;
+        }
+        if (ResultadoMovimiento.hayCaptura(resultado)) {
+            estadisticas.registrarCaptura();
+        } else if (ResultadoMovimiento.llegaMeta(resultado)) {
+            estadisticas.registrarLlegadaMeta();
+        }
+    }
+
+    public int getNumJugadores() {
+        return electores.length;
+    }
+}
@@ -0,0 +1,116 @@
+package simulacion;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import modelo.FuenteDadosBloque;
+
+/**
+ * Simulador de lotes grandes de partidas en paralelo
+ * Divide las partidas en tareas de un ForkJoinPool (robo de trabajo)
+ *
+ * Cada tarea recibe su propio flujo SplittableRandom derivado de la semilla
+ * maestra con split(), asi que no hay generador compartido entre hilos.
+ * Los dados de cada tarea salen de una FuenteDadosBloque sembrada con ese flujo.
+ * La forma del arbol de tareas solo depende del numero de partidas,
+ * por lo que la misma semilla reproduce el mismo resultado con cualquier
+ * numero de nucleos. Los resultados se combinan al hacer join, sin locks.
+ */
+public class SimuladorMonteCarlo {
+    /** Partidas que juega una tarea hoja sin seguir dividiendo */
+    public static final int PARTIDAS_POR_TAREA = 1024;
+
+    private final ForkJoinPool pool;
+    private final Function<SplittableRandom, MotorSimulacion> fabricaMotor;
+
+    /**
+     * Constructor con todos los nucleos disponibles
+     * @param fabricaMotor Crea el motor de una tarea a partir de su flujo aleatorio
+     */
+    public SimuladorMonteCarlo(Function<SplittableRandom, MotorSimulacion> fabricaMotor) {
+        this(Runtime.getRuntime().availableProcessors(), fabricaMotor);
+    }
+
+    /**
+     * Constructor con paralelismo explicito
+     * @param hilos Numero de hilos trabajadores
+     * @param fabricaMotor Crea el motor de una tarea a partir de su flujo aleatorio
+     */
+    public SimuladorMonteCarlo(int hilos, Function<SplittableRandom, MotorSimulacion> fabricaMotor) {
+        this.pool = new ForkJoinPool(hilos);
+        this.fabricaMotor = fabricaMotor;
+    }
+
+    /**
+     * Motor con electores aleatorios para el numero de jugadores indicado
+     * Los electores usan flujos separados de los dados
+     */
+    public static Function<SplittableRandom, MotorSimulacion> electoresAleatorios(int jugadores) {
+        return random -> {
+            ElectorMovimiento[] electores = new ElectorMovimiento[jugadores];
+            for (int i = 0; i < jugadores; i++) {
+                electores[i] = new ElectorAleatorio(random.split());
+            }
+            return new MotorSimulacion(electores);
+        };
+    }
+
+    /**
+     * Simula un lote de partidas repartido entre todos los hilos
+     * @param partidas Numero total de partidas
+     * @param semillaMaestra Semilla que determina todo el lote
+     * @return Estadisticas combinadas, con el tiempo de reloj del lote
+     */
+    public EstadisticasSimulacion simular(long partidas, long semillaMaestra) {
+        long inicio = System.nanoTime();
+        EstadisticasSimulacion total = pool.invoke(
+            new TareaSimulacion(partidas, new SplittableRandom(semillaMaestra), fabricaMotor));
+        total.setNanosegundos(System.nanoTime() - inicio);
+        return total;
+    }
+
+    /**
+     * Detiene los hilos del pool
+     */
+    public void cerrar() {
+        pool.shutdown();
+    }
+
+    public int getParalelismo() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Tarea recursiva: divide a la mitad hasta PARTIDAS_POR_TAREA
+     */
+    // RecursiveTask es Serializable, pero la tarea nunca sale del pool
+    @SuppressWarnings("serial")
+    private static class TareaSimulacion extends RecursiveTask<EstadisticasSimulacion> {
+        private final long partidas;
+        private final SplittableRandom random;
+        private final Function<SplittableRandom, MotorSimulacion> fabricaMotor;
+
+        TareaSimulacion(long partidas, SplittableRandom random,
+                        Function<SplittableRandom, MotorSimulacion> fabricaMotor) {
+            this.partidas = partidas;
+            this.random = random;
+            this.fabricaMotor = fabricaMotor;
+        }
+
+        @Override
+        protected EstadisticasSimulacion compute() {
+            if (partidas <= PARTIDAS_POR_TAREA) {
+                MotorSimulacion motor = fabricaMotor.apply(random.split());
+                return motor.simular((int) partidas, new FuenteDadosBloque(random.nextLong()));
+            }
+
+            long mitad = partidas / 2;
+            TareaSimulacion izquierda = new TareaSimulacion(mitad, random.split(), fabricaMotor);
+            TareaSimulacion derecha = new TareaSimulacion(partidas - mitad, random, fabricaMotor);
+            izquierda.fork();
+            EstadisticasSimulacion resultado = derecha.compute();
+            return resultado.combinar(izquierda.join());
+        }
+    }
+}
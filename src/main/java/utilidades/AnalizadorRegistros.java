@@ -0,0 +1,220 @@
+package utilidades;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Analiza en paralelo un directorio de registros registro_partida_*.json
+ *
+ * Cada archivo se lee en streaming con JsonReader: se procesa evento por
+ * evento sin construir el arbol ni la lista de eventos, asi que la memoria
+ * no depende del tamano de los archivos. Los archivos se reparten entre
+ * los hilos de un ForkJoinPool y cada uno produce su EstadisticasRegistros,
+ * que se combinan al final
+ */
+public class AnalizadorRegistros {
+    public static final String PATRON_ARCHIVOS = "registro_partida_*.json";
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor con todos los nucleos disponibles
+     */
+    public AnalizadorRegistros() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor con paralelismo explicito
+     * @param hilos Numero de hilos trabajadores
+     */
+    public AnalizadorRegistros(int hilos) {
+        this.pool = new ForkJoinPool(hilos);
+    }
+
+    /**
+     * Analiza todos los registros de un directorio
+     * @param directorio Directorio con los archivos registro_partida
+     * @return Estadisticas combinadas, con el tiempo de reloj del lote
+     * @throws IOException Si no se puede listar el directorio
+     */
+    public EstadisticasRegistros analizar(Path directorio) throws IOException {
+        long inicio = System.nanoTime();
+        List<Path> archivos = new ArrayList<>();
+        try (DirectoryStream<Path> listado = Files.newDirectoryStream(directorio, PATRON_ARCHIVOS)) {
+            for (Path archivo : listado) {
+                archivos.add(archivo);
+            }
+        }
+
+        EstadisticasRegistros total;
+        try {
+            total = pool.submit(() -> archivos.parallelStream()
+                    .map(AnalizadorRegistros::analizarArchivo)
+                    .reduce(EstadisticasRegistros::combinar)
+                    .orElseGet(EstadisticasRegistros::new))
+                .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Analisis interrumpido", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error en el analisis", e.getCause());
+        }
+        total.setNanosegundos(System.nanoTime() - inicio);
+        return total;
+    }
+
+    /**
+     * Lee un archivo en streaming
+     * Un archivo danado o incompleto cuenta como error y no detiene el lote
+     * @param archivo Ruta del registro
+     * @return Estadisticas de ese archivo
+     */
+    public static EstadisticasRegistros analizarArchivo(Path archivo) {
+        EstadisticasRegistros estadisticas = new EstadisticasRegistros();
+        try (Reader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8);
+             JsonReader json = new JsonReader(lector)) {
+            long cambiosTurno = leerRegistro(json, estadisticas);
+            estadisticas.registrarArchivo(Files.size(archivo), cambiosTurno);
+            return estadisticas;
+        } catch (IOException | JsonParseException | IllegalStateException e) {
+            // Lo leido hasta el error se descarta para no contar partidas a medias
+            System.err.println("[ANALISIS] Archivo ignorado " + archivo.getFileName() + ": " + e.getMessage());
+            EstadisticasRegistros error = new EstadisticasRegistros();
+            error.registrarError();
+            return error;
+        }
+    }
+
+    /**
+     * Recorre el objeto raiz y entra solo en la lista de eventos
+     * @return Numero de cambios de turno
+     */
+    private static long leerRegistro(JsonReader json, EstadisticasRegistros estadisticas) throws IOException {
+        long cambiosTurno = 0;
+        json.beginObject();
+        while (json.hasNext()) {
+            if (!json.nextName().equals("eventos")) {
+                json.skipValue();
+                continue;
+            }
+            Participantes participantes = new Participantes();
+            json.beginArray();
+            while (json.hasNext()) {
+                if (leerEvento(json, estadisticas, participantes)) {
+                    cambiosTurno++;
+                }
+            }
+            json.endArray();
+        }
+        json.endObject();
+        return cambiosTurno;
+    }
+
+    /**
+     * Lee un evento y lo suma a las estadisticas
+     * Los campos pueden venir en cualquier orden: se guardan los que
+     * interesan y se procesa el evento al cerrar el objeto
+     * @return true si el evento fue un cambio de turno
+     */
+    private static boolean leerEvento(JsonReader json, EstadisticasRegistros estadisticas,
+                                      Participantes participantes) throws IOException {
+        String tipo = null;
+        String jugador = null;
+        String jugador1 = null;
+        String jugador2 = null;
+        int valorDado = 0;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String campo = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (campo) {
+                case "tipo": tipo = json.nextString(); break;
+                case "jugador": jugador = json.nextString(); break;
+                case "jugador1": jugador1 = json.nextString(); break;
+                case "jugador2": jugador2 = json.nextString(); break;
+                case "valorDado": valorDado = json.nextInt(); break;
+                default: json.skipValue();
+            }
+        }
+        json.endObject();
+
+        estadisticas.registrarEvento();
+        if (tipo == null) {
+            return false;
+        }
+        switch (tipo) {
+            case "INICIO_PARTIDA":
+                participantes.jugador1 = jugador1;
+                participantes.jugador2 = jugador2;
+                if (jugador1 != null) estadisticas.registrarParticipante(jugador1);
+                if (jugador2 != null) estadisticas.registrarParticipante(jugador2);
+                break;
+            case "TIRADA_DADO":
+                estadisticas.registrarTirada(valorDado);
+                break;
+            case "FICHA_COMIDA":
+                estadisticas.registrarCaptura();
+                break;
+            case "LLEGADA_META":
+                estadisticas.registrarLlegadaMeta();
+                break;
+            case "TURNO_EXTRA":
+                estadisticas.registrarTurnoExtra();
+                break;
+            case "PENALIZACION_TRES_SEIS":
+                estadisticas.registrarPenalizacionTresSeis();
+                break;
+            case "FIN_PARTIDA":
+                if (jugador != null) {
+                    estadisticas.registrarVictoria(jugador, participantes.asiento(jugador));
+                }
+                break;
+            case "CAMBIO_TURNO":
+                return true;
+            default:
+                break;
+        }
+        return false;
+    }
+
+    /**
+     * Detiene los hilos del pool
+     */
+    public void cerrar() {
+        pool.shutdown();
+    }
+
+    public int getParalelismo() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Nombres de los asientos, tomados del evento INICIO_PARTIDA
+     */
+    private static class Participantes {
+        String jugador1;
+        String jugador2;
+
+        int asiento(String jugador) {
+            if (jugador.equals(jugador1)) return 0;
+            if (jugador.equals(jugador2)) return 1;
+            return -1;
+        }
+    }
+}
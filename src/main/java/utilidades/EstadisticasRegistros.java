@@ -0,0 +1,188 @@
+package utilidades;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Acumula las estadisticas de un lote de archivos registro_partida
+ * Cada archivo llena su propia instancia y al final se combinan, como
+ * EstadisticasSimulacion: no hay contadores compartidos entre hilos
+ */
+public class EstadisticasRegistros {
+    private long archivos;
+    private long archivosConError;
+    private long bytes;
+    private long partidasTerminadas;
+    private long eventos;
+    private long[] dados;
+    private long tiradas;
+    private long turnos;
+    private long turnosExtra;
+    private long capturas;
+    private long llegadasMeta;
+    private long penalizacionesTresSeis;
+    private long[] victoriasAsiento;
+    // Nombre -> {partidas jugadas, partidas ganadas}
+    private Map<String, long[]> porJugador;
+    private long nanosegundos;
+
+    public EstadisticasRegistros() {
+        this.dados = new long[7];
+        this.victoriasAsiento = new long[2];
+        this.porJugador = new TreeMap<>();
+    }
+
+    /**
+     * Registra un archivo leido completo
+     * @param tamano Bytes del archivo
+     * @param cambiosTurno Eventos CAMBIO_TURNO del archivo
+     */
+    public void registrarArchivo(long tamano, long cambiosTurno) {
+        archivos++;
+        bytes += tamano;
+        turnos += cambiosTurno + 1;
+    }
+
+    public void registrarError() { archivosConError++; }
+    public void registrarEvento() { eventos++; }
+    public void registrarTurnoExtra() { turnosExtra++; }
+    public void registrarCaptura() { capturas++; }
+    public void registrarLlegadaMeta() { llegadasMeta++; }
+    public void registrarPenalizacionTresSeis() { penalizacionesTresSeis++; }
+    public void agregarTiempo(long nanos) { nanosegundos += nanos; }
+    public void setNanosegundos(long nanos) { this.nanosegundos = nanos; }
+
+    /**
+     * Registra una tirada de dado
+     * @param valor Valor obtenido; los valores fuera de 1-6 se ignoran
+     */
+    public void registrarTirada(int valor) {
+        if (valor >= 1 && valor <= 6) {
+            dados[valor]++;
+            tiradas++;
+        }
+    }
+
+    /**
+     * Registra a un jugador que participa en una partida
+     */
+    public void registrarParticipante(String jugador) {
+        porJugador.computeIfAbsent(jugador, j -> new long[2])[0]++;
+    }
+
+    /**
+     * Registra el final de una partida
+     * @param ganador Nombre del ganador
+     * @param asiento Asiento del ganador (0 o 1), o -1 si no se conoce
+     */
+    public void registrarVictoria(String ganador, int asiento) {
+        partidasTerminadas++;
+        porJugador.computeIfAbsent(ganador, j -> new long[2])[1]++;
+        if (asiento >= 0 && asiento < victoriasAsiento.length) {
+            victoriasAsiento[asiento]++;
+        }
+    }
+
+    /**
+     * Suma los resultados de otro lote a este
+     * El tiempo se toma como el mayor de ambos, porque los lotes corren en paralelo
+     * @param otro Estadisticas de otro lote
+     * @return Esta misma instancia
+     */
+    public EstadisticasRegistros combinar(EstadisticasRegistros otro) {
+        archivos += otro.archivos;
+        archivosConError += otro.archivosConError;
+        bytes += otro.bytes;
+        partidasTerminadas += otro.partidasTerminadas;
+        eventos += otro.eventos;
+        for (int i = 0; i < dados.length; i++) {
+            dados[i] += otro.dados[i];
+        }
+        tiradas += otro.tiradas;
+        turnos += otro.turnos;
+        turnosExtra += otro.turnosExtra;
+        capturas += otro.capturas;
+        llegadasMeta += otro.llegadasMeta;
+        penalizacionesTresSeis += otro.penalizacionesTresSeis;
+        for (int i = 0; i < victoriasAsiento.length; i++) {
+            victoriasAsiento[i] += otro.victoriasAsiento[i];
+        }
+        for (Map.Entry<String, long[]> entrada : otro.porJugador.entrySet()) {
+            long[] propio = porJugador.computeIfAbsent(entrada.getKey(), j -> new long[2]);
+            propio[0] += entrada.getValue()[0];
+            propio[1] += entrada.getValue()[1];
+        }
+        nanosegundos = Math.max(nanosegundos, otro.nanosegundos);
+        return this;
+    }
+
+    public double turnosPromedio() {
+        return archivos == 0 ? 0.0 : (double) turnos / archivos;
+    }
+
+    public double capturasPorPartida() {
+        return archivos == 0 ? 0.0 : (double) capturas / archivos;
+    }
+
+    /**
+     * Fraccion de tiradas con cada valor del dado
+     * @param valor Valor del dado (1-6)
+     */
+    public double frecuenciaDado(int valor) {
+        return tiradas == 0 ? 0.0 : (double) dados[valor] / tiradas;
+    }
+
+    public double archivosPorSegundo() {
+        return nanosegundos == 0 ? 0.0 : archivos * 1_000_000_000.0 / nanosegundos;
+    }
+
+    // Getters
+    public long getArchivos() { return archivos; }
+    public long getArchivosConError() { return archivosConError; }
+    public long getBytes() { return bytes; }
+    public long getPartidasTerminadas() { return partidasTerminadas; }
+    public long getEventos() { return eventos; }
+    public long getDados(int valor) { return dados[valor]; }
+    public long getTiradas() { return tiradas; }
+    public long getTurnos() { return turnos; }
+    public long getTurnosExtra() { return turnosExtra; }
+    public long getCapturas() { return capturas; }
+    public long getLlegadasMeta() { return llegadasMeta; }
+    public long getPenalizacionesTresSeis() { return penalizacionesTresSeis; }
+    public long getVictoriasAsiento(int asiento) { return victoriasAsiento[asiento]; }
+    public long getNanosegundos() { return nanosegundos; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Archivos: ").append(archivos)
+          .append(" (con error: ").append(archivosConError).append(")")
+          .append("  Partidas terminadas: ").append(partidasTerminadas)
+          .append("  Eventos: ").append(eventos).append("\n");
+        sb.append("Turnos promedio: ").append(String.format("%.1f", turnosPromedio()))
+          .append("  Turnos extra: ").append(turnosExtra).append("\n");
+        sb.append("Tiradas: ").append(tiradas).append("\n");
+        for (int valor = 1; valor <= 6; valor++) {
+            sb.append(String.format("  Dado %d: %d (%.1f%%)%n", valor, dados[valor], frecuenciaDado(valor) * 100));
+        }
+        sb.append("Capturas: ").append(capturas)
+          .append(String.format(" (%.2f por partida)", capturasPorPartida()))
+          .append("  Llegadas a meta: ").append(llegadasMeta).append("\n");
+        sb.append("Penalizaciones 3x6: ").append(penalizacionesTresSeis)
+          .append(String.format(" (%.2f por cada 1000 tiradas)",
+              tiradas == 0 ? 0.0 : penalizacionesTresSeis * 1000.0 / tiradas)).append("\n");
+        for (int i = 0; i < victoriasAsiento.length; i++) {
+            sb.append("  Victorias jugador ").append(i + 1).append(": ")
+              .append(victoriasAsiento[i]).append("\n");
+        }
+        for (Map.Entry<String, long[]> entrada : porJugador.entrySet()) {
+            long jugadas = entrada.getValue()[0];
+            long ganadas = entrada.getValue()[1];
+            sb.append(String.format("  %s: %d de %d (%.1f%%)%n", entrada.getKey(), ganadas, jugadas,
+                jugadas == 0 ? 0.0 : ganadas * 100.0 / jugadas));
+        }
+        sb.append(String.format("Archivos por segundo: %.0f  MB leidos: %.1f",
+            archivosPorSegundo(), bytes / (1024.0 * 1024.0)));
+        return sb.toString();
+    }
+}
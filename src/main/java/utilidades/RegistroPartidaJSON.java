@@ -8,15 +8,22 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import modelo.EscuchaMovimientos;
+import modelo.EstadoCompacto;
+import modelo.Ficha;
+import modelo.Jugador;
+import modelo.Partida;
+import modelo.ResultadoMovimiento;
 
 /**
  * Registra todos los eventos de la partida en formato JSON
  * Genera un archivo al finalizar con el historial completo
  */
-public class RegistroPartidaJSON {
+public class RegistroPartidaJSON implements EscuchaMovimientos {
     private List<EventoPartida> eventos;
     private String nombreArchivoSalida;
     private LocalDateTime inicioPartida;
+    private Long semillaDados;
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     
     public RegistroPartidaJSON() {
@@ -43,6 +50,43 @@ public class RegistroPartidaJSON {
         System.out.println("[JSON] Registro iniciado: " + nombreArchivoSalida);
     }
     
+    /**
+     * Registra la semilla de los dados
+     * Con ella se pueden repetir exactamente todas las tiradas
+     */
+    public void registrarSemilla(long semilla) {
+        this.semillaDados = semilla;
+    }
+    
+    /**
+     * Registra un movimiento a partir del resultado del nucleo de reglas
+     * Salida de casa o avance, fichas comidas y llegada a meta
+     */
+    @Override
+    public void movimientoAplicado(Partida partida, Jugador jugador, long resultado) {
+        Ficha ficha = partida.fichaEnIndice(ResultadoMovimiento.ficha(resultado));
+        if (ResultadoMovimiento.saleDeCasa(resultado)) {
+            registrarSalidaCasa(jugador.getNombre(), ficha.getIdFicha());
+        } else {
+            registrarMovimiento(jugador.getNombre(), ficha.getIdFicha(),
+                                ResultadoMovimiento.origen(resultado) - 1,
+                                ResultadoMovimiento.destino(resultado) - 1);
+        }
+        
+        int capturas = ResultadoMovimiento.capturas(resultado);
+        while (capturas != 0) {
+            int indice = Integer.numberOfTrailingZeros(capturas);
+            capturas &= capturas - 1;
+            Jugador victima = partida.getJugadores().get(EstadoCompacto.jugadorDeFicha(indice));
+            registrarFichaComida(jugador.getNombre(), victima.getNombre(),
+                                 partida.fichaEnIndice(indice).getIdFicha());
+        }
+        
+        if (ResultadoMovimiento.llegaMeta(resultado)) {
+            registrarLlegadaMeta(jugador.getNombre(), ficha.getIdFicha());
+        }
+    }
+    
     /**
      * Registra tirada de dado
      */
@@ -171,6 +215,7 @@ public class RegistroPartidaJSON {
             RegistroCompleto registro = new RegistroCompleto();
             registro.inicioPartida = inicioPartida.toString();
             registro.finPartida = LocalDateTime.now().toString();
+            registro.semillaDados = semillaDados;
             registro.totalEventos = eventos.size();
             registro.eventos = eventos;
             
@@ -194,6 +239,22 @@ public class RegistroPartidaJSON {
         }
     }
     
+    public Long getSemillaDados() {
+        return semillaDados;
+    }
+    
+    public String getNombreArchivoSalida() {
+        return nombreArchivoSalida;
+    }
+    
+    /**
+     * Cambia el archivo de salida
+     * El servidor lo usa para que varias mesas no choquen en el mismo segundo
+     */
+    public void setNombreArchivoSalida(String nombreArchivoSalida) {
+        this.nombreArchivoSalida = nombreArchivoSalida;
+    }
+    
     /**
      * Muestra el contenido del registro en consola (opcional)
      */
@@ -229,6 +290,7 @@ public class RegistroPartidaJSON {
     private static class RegistroCompleto {
         String inicioPartida;
         String finPartida;
+        Long semillaDados;
         int totalEventos;
         List<EventoPartida> eventos;
     }
@@ -5,12 +5,13 @@
  */
 package vista;
 
-import java.util.List;
+import modelo.EscuchaMovimientos;
 import modelo.Ficha;
 import modelo.Jugador;
 import modelo.Partida;
+import modelo.ResultadoMovimiento;
 
-public class PantallaPartida {
+public class PantallaPartida implements EscuchaMovimientos {
     
     /**
      * Limpia la pantalla (simula limpieza en consola)
@@ -90,18 +91,19 @@ public class PantallaPartida {
         System.out.println("  Color: " + jugador.getColor());
         System.out.println("==========================================");
         
-        List<Ficha> fichasCasa = jugador.getFichasEnCasa();
-        List<Ficha> fichasJuego = jugador.getFichasEnJuego();
+        int fichasEnJuego = jugador.contarFichasEnJuego();
         
         System.out.println("\nEstado actual:");
-        System.out.println("  - Fichas en casa: " + fichasCasa.size());
-        System.out.println("  - Fichas jugando: " + fichasJuego.size());
+        System.out.println("  - Fichas en casa: " + jugador.contarFichasEnCasa());
+        System.out.println("  - Fichas jugando: " + fichasEnJuego);
         
-        if (!fichasJuego.isEmpty()) {
+        if (fichasEnJuego > 0) {
             System.out.println("\nTus fichas en el tablero:");
-            for (Ficha ficha : fichasJuego) {
-                System.out.println("  * Ficha " + ficha.getIdFicha() + 
-                                 " -> Casilla " + ficha.getPosicion());
+            for (Ficha ficha : jugador.getFichas()) {
+                if (!ficha.isEnCasa() && !ficha.isEnMeta()) {
+                    System.out.println("  * Ficha " + ficha.getIdFicha() + 
+                                     " -> Casilla " + ficha.getPosicion());
+                }
             }
         }
         System.out.println();
@@ -119,6 +121,69 @@ public class PantallaPartida {
                          " (" + ficha.getColor() + "): " + estado);
     }
     
+    /**
+     * Muestra en consola lo que paso en un movimiento
+     * Suscrita a la partida: las reglas ya no imprimen nada
+     */
+    @Override
+    public void movimientoAplicado(Partida partida, Jugador jugador, long resultado) {
+        Ficha ficha = partida.fichaEnIndice(ResultadoMovimiento.ficha(resultado));
+        if (ResultadoMovimiento.saleDeCasa(resultado)) {
+            mostrarMensaje("Ficha sacada de casa a la posicion " + ficha.getPosicion());
+        } else {
+            actualizarFicha(ficha);
+        }
+        
+        int capturas = ResultadoMovimiento.capturas(resultado);
+        while (capturas != 0) {
+            Ficha comida = partida.fichaEnIndice(Integer.numberOfTrailingZeros(capturas));
+            capturas &= capturas - 1;
+            System.out.println("\nFICHA COMIDA! " + jugador.getNombre() + 
+                             " come ficha " + comida.getColor());
+        }
+        if (ResultadoMovimiento.hayCaptura(resultado)) {
+            System.out.println("PREMIO: +20 casillas para avanzar con otra ficha");
+        }
+        
+        if (ResultadoMovimiento.formaBarrera(resultado)) {
+            System.out.println("BARRERA FORMADA en casilla " + ficha.getPosicion());
+        }
+        
+        if (ResultadoMovimiento.llegaMeta(resultado)) {
+            System.out.println("FICHA EN META! +10 casillas de premio");
+        }
+    }
+    
+    /**
+     * Muestra la pista del asistente: confianza de cada opcion
+     * @param confianza Fraccion de confianza por opcion, en el orden de la lista
+     * @param detalle Resumen de la busqueda que produjo la pista
+     */
+    public void mostrarPista(double[] confianza, String detalle) {
+        int mejor = 0;
+        for (int i = 1; i < confianza.length; i++) {
+            if (confianza[i] > confianza[mejor]) mejor = i;
+        }
+
+        System.out.println("\n  PISTA (" + detalle + "):");
+        for (int i = 0; i < confianza.length; i++) {
+            String barra = "#".repeat((int) Math.round(confianza[i] * 20));
+            System.out.println(String.format("  %s %d. %5.1f%% %s",
+                i == mejor ? ">" : " ", i + 1, confianza[i] * 100, barra));
+        }
+    }
+
+    /**
+     * Muestra la probabilidad exacta de ganar en un final
+     * @param jugador Jugador en turno
+     * @param probabilidad Probabilidad de victoria entre 0 y 1
+     */
+    public void mostrarProbabilidadVictoria(Jugador jugador, double probabilidad) {
+        String barra = "#".repeat((int) Math.round(probabilidad * 20));
+        System.out.println(String.format("  FINAL: %s gana con %.1f%% %s",
+            jugador.getNombre(), probabilidad * 100, barra));
+    }
+    
     /**
      * Muestra un mensaje general al usuario
      * @param mensaje Texto a mostrar
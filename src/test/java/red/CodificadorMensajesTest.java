@@ -0,0 +1,230 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Ida y vuelta de las tramas de CodificadorMensajes por DecodificadorMensajes
+ * y los casos de trama invalida o desconocida
+ */
+class CodificadorMensajesTest {
+    private final CodificadorMensajes codificador = new CodificadorMensajes();
+    private final DecodificadorMensajes decodificador = new DecodificadorMensajes();
+
+    /**
+     * Un mensaje de cada tipo, con las tres formas de ESTADO_JUEGO
+     */
+    private static List<MensajeJuego> mensajesDePrueba() {
+        List<MensajeJuego> mensajes = new ArrayList<>();
+        mensajes.add(MensajeJuego.saludo("Jugador1", "hola", 0, 0));
+        mensajes.add(MensajeJuego.movimiento("Jugador1", 1, 3, 6));
+        mensajes.add(MensajeJuego.movimiento("Jugador1", 2, 7, 20));
+        mensajes.add(MensajeJuego.cambioTurno("Jugador1", 2));
+        mensajes.add(MensajeJuego.tiradaDado("Jugador1", 5));
+        mensajes.add(new MensajeJuego(MensajeJuego.TipoMensaje.CAPTURA, "Jugador1", "ficha:5"));
+        mensajes.add(MensajeJuego.chat("Jugador1", "buena jugada, ñandú"));
+        mensajes.add(new MensajeJuego(MensajeJuego.TipoMensaje.JUGADOR_ENTRA, "Jugador2", "jugador:2"));
+        mensajes.add(new MensajeJuego(MensajeJuego.TipoMensaje.JUGADOR_SALE, "Jugador2", "jugador:2"));
+        mensajes.add(MensajeJuego.estadoCompleto("Jugador1", 42,
+            0x0102030405060708L, 0x1112131415161718L, 0x7FFF_FFFF_FFFF_FFFFL));
+        // El delta solo trae el codigo de las fichas marcadas: el resto va en 0
+        mensajes.add(MensajeJuego.estadoDelta("Jugador1", 41, 42, (1 << 2) | (1 << 9),
+            0x0000_0000_0033_0000L, 0x0000_0000_0000_4400L, 0x1234_5678L));
+        mensajes.add(MensajeJuego.solicitudEstado("Jugador2", 300));
+        mensajes.add(MensajeJuego.inicioJuego("Servidor"));
+        mensajes.add(new MensajeJuego(MensajeJuego.TipoMensaje.FIN_JUEGO, "Jugador1", "ganador:Jugador1"));
+        mensajes.add(MensajeJuego.ping(1_234_567_890_123L));
+        mensajes.add(MensajeJuego.pong(1_234_567_890_123L));
+        return mensajes;
+    }
+
+    @Test
+    void idaYVueltaDeCadaTipo() throws IOException {
+        Set<MensajeJuego.TipoMensaje> cubiertos = EnumSet.noneOf(MensajeJuego.TipoMensaje.class);
+        for (MensajeJuego mensaje : mensajesDePrueba()) {
+            assertMismo(mensaje, idaYVuelta(mensaje));
+            cubiertos.add(mensaje.getTipo());
+        }
+        assertEquals(EnumSet.allOf(MensajeJuego.TipoMensaje.class), cubiertos);
+    }
+
+    @Test
+    void idaYVueltaDeLasFormasDeEstado() throws IOException {
+        Set<Integer> formas = new HashSet<>();
+        for (MensajeJuego mensaje : mensajesDePrueba()) {
+            if (mensaje.getTipo() == MensajeJuego.TipoMensaje.ESTADO_JUEGO) {
+                MensajeJuego leido = idaYVuelta(mensaje);
+                assertEquals(mensaje.getFormaEstado(), leido.getFormaEstado());
+                formas.add(leido.getFormaEstado());
+            }
+        }
+        assertEquals(Set.of(MensajeJuego.ESTADO_COMPLETO, MensajeJuego.ESTADO_DELTA,
+                            MensajeJuego.ESTADO_SOLICITUD), formas);
+    }
+
+    @Test
+    void idaYVueltaConCamposDeSesion() throws IOException {
+        for (MensajeJuego mensaje : mensajesDePrueba()) {
+            MensajeJuego numerado = mensaje.conSecuencia(300, 1L << 40);
+            MensajeJuego leido = idaYVuelta(numerado);
+            assertMismo(numerado, leido);
+            assertEquals(300, leido.getSecuencia());
+            assertEquals(1L << 40, leido.getConfirmacion());
+        }
+
+        // El token de sesion solo viaja en el SALUDO
+        MensajeJuego saludo = MensajeJuego.saludo("Jugador1", "hola", 0x5EED_5EED_5EEDL, 17);
+        MensajeJuego leido = idaYVuelta(saludo);
+        assertEquals(0x5EED_5EED_5EEDL, leido.getSesion());
+        assertEquals(17, leido.getConfirmacion());
+        assertEquals(0, leido.getSecuencia());
+
+        // Un latido solo con la confirmacion
+        MensajeJuego ping = MensajeJuego.ping(99);
+        ping.setSesion(0, 12, 0);
+        leido = idaYVuelta(ping);
+        assertEquals(0, leido.getSecuencia());
+        assertEquals(12, leido.getConfirmacion());
+    }
+
+    @Test
+    void movimientoOcupaQuinceBytes() throws IOException {
+        // Longitud, version, tipo, emisor (1 + 8) y tres varints de un byte
+        assertEquals(15, codificador.codificar(MensajeJuego.movimiento("Jugador1", 1, 3, 6)));
+    }
+
+    @Test
+    void variasTramasSeguidasEnUnFlujo() throws IOException {
+        List<MensajeJuego> mensajes = mensajesDePrueba();
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        for (MensajeJuego mensaje : mensajes) {
+            codificador.escribir(mensaje, salida);
+        }
+        ByteArrayInputStream entrada = new ByteArrayInputStream(salida.toByteArray());
+        for (MensajeJuego mensaje : mensajes) {
+            assertMismo(mensaje, decodificador.leer(entrada));
+        }
+        assertThrows(EOFException.class, () -> decodificador.leer(entrada));
+    }
+
+    @Test
+    void tramaTruncadaEsFinDeFlujo() throws IOException {
+        byte[] trama = trama(MensajeJuego.movimiento("Jugador1", 1, 3, 6));
+        for (int corte = 1; corte < trama.length; corte++) {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(Arrays.copyOf(trama, corte));
+            assertThrows(EOFException.class, () -> decodificador.leer(entrada), "corte en " + corte);
+        }
+    }
+
+    @Test
+    void cuerpoTruncadoEsInvalido() throws IOException {
+        byte[] trama = trama(MensajeJuego.movimiento("Jugador1", 1, 3, 6));
+        // Sin el ultimo varint: el cuerpo declarado es mas corto que los datos
+        assertThrows(IOException.class, () -> decodificador.decodificar(trama, 1, trama.length - 2));
+    }
+
+    @Test
+    void mensajeMayorQueMaxCuerpoNoSeCodifica() {
+        String grande = "x".repeat(CodificadorMensajes.MAX_CUERPO);
+        MensajeJuego chat = MensajeJuego.chat("Jugador1", grande);
+        assertThrows(IOException.class, () -> codificador.codificar(chat));
+    }
+
+    @Test
+    void longitudMayorQueMaxCuerpoSeRechaza() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        escribirVarint(salida, CodificadorMensajes.MAX_CUERPO + 1);
+        ByteArrayInputStream entrada = new ByteArrayInputStream(salida.toByteArray());
+        IOException error = assertThrows(IOException.class, () -> decodificador.leer(entrada));
+        assertTrue(!(error instanceof EOFException), error.toString());
+    }
+
+    @Test
+    void tipoDesconocidoSeSalta() throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        // Trama de un tipo que este receptor no conoce, con datos cualquiera
+        byte[] cuerpo = {(byte) CodificadorMensajes.VERSION, 31, 3, 'N', 'u', 'e', 1, 2, 3, 4};
+        escribirVarint(salida, cuerpo.length);
+        salida.write(cuerpo, 0, cuerpo.length);
+        MensajeJuego siguiente = MensajeJuego.tiradaDado("Jugador1", 4);
+        codificador.escribir(siguiente, salida);
+
+        assertNull(MensajeJuego.TipoMensaje.desdeCodigo(31));
+        assertNull(decodificador.decodificar(cuerpo, 0, cuerpo.length));
+        assertMismo(siguiente, decodificador.leer(new ByteArrayInputStream(salida.toByteArray())));
+    }
+
+    @Test
+    void camposOpcionalesDesconocidosSeIgnoran() throws IOException {
+        MensajeJuego movimiento = MensajeJuego.movimiento("Jugador1", 1, 3, 6);
+        byte[] trama = trama(movimiento);
+        // Un campo de una version posterior: bit 2 de la mascara y un varlong
+        byte[] extendida = Arrays.copyOf(trama, trama.length + 3);
+        extendida[trama.length] = 2;
+        extendida[trama.length + 1] = (byte) 0x81;
+        extendida[trama.length + 2] = 0x01;
+        MensajeJuego leido = decodificador.decodificar(extendida, 1, extendida.length - 1);
+        assertMismo(movimiento, leido);
+        assertEquals(0, leido.getSecuencia());
+    }
+
+    @Test
+    void versionDistintaSeRechaza() throws IOException {
+        byte[] trama = trama(MensajeJuego.tiradaDado("Jugador1", 4));
+        trama[1] = (byte) (CodificadorMensajes.VERSION + 1);
+        assertThrows(IOException.class, () -> decodificador.decodificar(trama, 1, trama.length - 1));
+    }
+
+    private MensajeJuego idaYVuelta(MensajeJuego mensaje) throws IOException {
+        return decodificador.leer(new ByteArrayInputStream(trama(mensaje)));
+    }
+
+    private byte[] trama(MensajeJuego mensaje) throws IOException {
+        int longitud = codificador.codificar(mensaje);
+        int inicio = codificador.getInicio();
+        return Arrays.copyOfRange(codificador.getBuffer(), inicio, inicio + longitud);
+    }
+
+    private static void escribirVarint(ByteArrayOutputStream salida, int valor) {
+        while ((valor & ~0x7F) != 0) {
+            salida.write((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        salida.write(valor);
+    }
+
+    private static void assertMismo(MensajeJuego esperado, MensajeJuego leido) {
+        String tipo = esperado.getTipo().toString();
+        assertEquals(esperado.getTipo(), leido.getTipo());
+        assertEquals(esperado.getEmisor(), leido.getEmisor(), tipo);
+        assertEquals(esperado.getContenido(), leido.getContenido(), tipo);
+        assertEquals(esperado.getJugadorId(), leido.getJugadorId(), tipo);
+        assertEquals(esperado.getFichaId(), leido.getFichaId(), tipo);
+        assertEquals(esperado.getValorDado(), leido.getValorDado(), tipo);
+        assertEquals(esperado.getFormaEstado(), leido.getFormaEstado(), tipo);
+        assertEquals(esperado.getVersion(), leido.getVersion(), tipo);
+        assertEquals(esperado.getVersionBase(), leido.getVersionBase(), tipo);
+        assertEquals(esperado.getFichasCambiadas(), leido.getFichasCambiadas(), tipo);
+        assertEquals(esperado.getFichasBajas(), leido.getFichasBajas(), tipo);
+        assertEquals(esperado.getFichasAltas(), leido.getFichasAltas(), tipo);
+        assertEquals(esperado.getControl(), leido.getControl(), tipo);
+        assertEquals(esperado.getMarcaLatido(), leido.getMarcaLatido(), tipo);
+        assertEquals(esperado.getSecuencia(), leido.getSecuencia(), tipo);
+        assertEquals(esperado.getConfirmacion(), leido.getConfirmacion(), tipo);
+        assertEquals(esperado.getSesion(), leido.getSesion(), tipo);
+    }
+}
@@ -0,0 +1,231 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Dos SesionPeer conectadas por conexiones de prueba: envio, caida,
+ * reanudacion y desborde del anillo de repeticion
+ */
+class SesionPeerTest {
+    private static final long TOKEN = 0x5EED_5EED_5EEDL;
+    private static final PoliticaSalida POLITICA = new PoliticaSalida(256, true, 60_000);
+
+    private final SesionPeer origen = new SesionPeer(TOKEN, null, 0);
+    private final SesionPeer destino = new SesionPeer(TOKEN, "localhost", 7331);
+    // Contenido de lo que el destino acepto, en orden de llegada
+    private final List<String> recibidos = new ArrayList<>();
+    private int movimientosRecibidos;
+    // Conexion del destino hacia el origen
+    private ConexionPrueba vuelta;
+
+    @Test
+    void reanudarRepiteLoQueNoLlegoUnaSolaVez() {
+        ConexionPrueba primera = conectar();
+        for (int i = 1; i <= 10; i++) {
+            origen.enviar(chat(i));
+        }
+        // La conexion se cae con la mitad en vuelo
+        List<MensajeJuego> enVuelo = primera.tomar();
+        entregar(enVuelo.subList(0, 5));
+        caer(primera);
+
+        // Sin conexion solo quedan en el anillo
+        for (int i = 11; i <= 15; i++) {
+            origen.enviar(chat(i));
+        }
+
+        ConexionPrueba segunda = new ConexionPrueba(POLITICA);
+        assertTrue(origen.reanudar(segunda, destino.getUltimaRecibida(), null));
+        entregar(segunda.tomar());
+        // Llegan tarde los que estaban en vuelo: ya se recibieron
+        entregar(enVuelo);
+
+        assertEquals(rango(1, 15), recibidos);
+        assertEquals(15, destino.getUltimaRecibida());
+    }
+
+    @Test
+    void laRespuestaSaleAntesDeLoRepetido() {
+        ConexionPrueba primera = conectar();
+        origen.enviar(chat(1));
+        primera.tomar();
+        caer(primera);
+
+        ConexionPrueba segunda = new ConexionPrueba(POLITICA);
+        MensajeJuego saludo = MensajeJuego.saludo("Origen", "Bienvenido", TOKEN, 0);
+        assertTrue(origen.reanudar(segunda, 0, saludo));
+        List<MensajeJuego> salida = segunda.tomar();
+        assertEquals(MensajeJuego.TipoMensaje.SALUDO, salida.get(0).getTipo());
+        assertEquals(1, salida.get(1).getSecuencia());
+    }
+
+    @Test
+    void desbordeSinConexionPierdeLoMasViejo() {
+        caer(conectar());
+        int enviados = 600;
+        for (int i = 1; i <= enviados; i++) {
+            origen.enviar(chat(i));
+        }
+
+        ConexionPrueba nueva = new ConexionPrueba(POLITICA);
+        assertFalse(origen.reanudar(nueva, destino.getUltimaRecibida(), null));
+        assertTrue(nueva.estaConectado());
+        entregar(nueva.tomar());
+
+        // Se repite lo mas nuevo, en orden y hasta el ultimo
+        int repetidos = recibidos.size();
+        assertTrue(repetidos > 0 && repetidos <= SesionPeer.CAPACIDAD_REPETICION, "repetidos " + repetidos);
+        assertEquals(rango(enviados - repetidos + 1, enviados), recibidos);
+        assertEquals(enviados, destino.getUltimaRecibida());
+    }
+
+    @Test
+    void repetirNoPasaDeLaCapacidadDeLaCola() {
+        PoliticaSalida chica = new PoliticaSalida(64, true, 60_000);
+        caer(conectar());
+        for (int i = 1; i <= 100; i++) {
+            origen.enviar(MensajeJuego.movimiento("Origen", 1, i & 3, 5));
+        }
+
+        ConexionPrueba nueva = new ConexionPrueba(chica);
+        MensajeJuego saludo = MensajeJuego.saludo("Origen", "Bienvenido", TOKEN, 0);
+        assertFalse(origen.reanudar(nueva, 0, saludo));
+        // Lo repetido cabe entero: sin descartes ni desconexion
+        assertTrue(nueva.estaConectado());
+        assertEquals(chica.getCapacidad(), nueva.getMensajesPendientes());
+        assertEquals(0, nueva.getMensajesDescartados());
+        List<MensajeJuego> salida = nueva.tomar();
+        assertEquals(100, salida.get(salida.size() - 1).getSecuencia());
+    }
+
+    @Test
+    void confirmarSueltaDelAnillo() {
+        ConexionPrueba conexion = conectar();
+        for (int i = 1; i <= 10; i++) {
+            origen.enviar(chat(i));
+        }
+        entregar(conexion.tomar());
+        assertEquals(10, origen.getSinConfirmar());
+
+        // Cualquier mensaje del destino lleva su confirmacion
+        destino.enviar(MensajeJuego.chat("Destino", "hola"));
+        for (MensajeJuego mensaje : vuelta.tomar()) {
+            assertTrue(origen.recibir(mensaje));
+        }
+        assertEquals(0, origen.getSinConfirmar());
+    }
+
+    @Test
+    void unPeerSaturadoNoAfectaALosDemas() {
+        // Un peer que nunca lee y otro que lee todo, con la misma difusion
+        SesionPeer lenta = new SesionPeer(TOKEN + 1, null, 0);
+        ConexionPrueba conexionLenta = new ConexionPrueba(POLITICA);
+        lenta.reanudar(conexionLenta, 0, null);
+        ConexionPrueba rapida = conectar();
+
+        int movimientos = 0;
+        String texto = "x".repeat(8000);
+        for (int i = 0; i < 20_000; i++) {
+            MensajeJuego mensaje = i % 2 == 0
+                ? MensajeJuego.movimiento("Origen", 1, i & 15, 5)
+                : MensajeJuego.chat("Origen", texto);
+            lenta.enviar(mensaje);
+            origen.enviar(mensaje);
+            if (mensaje.getTipo() == MensajeJuego.TipoMensaje.MOVIMIENTO) {
+                movimientos++;
+            }
+            if (i % 100 == 99) {
+                entregar(rapida.tomar());
+            }
+        }
+        entregar(rapida.tomar());
+
+        assertFalse(conexionLenta.estaConectado());
+        assertTrue(rapida.estaConectado());
+        assertEquals(0, rapida.getMensajesDescartados());
+        assertEquals(20_000, recibidos.size());
+        assertEquals(movimientos, movimientosRecibidos);
+
+        // Reanudar al lento con todo lo pendiente tampoco lo desconecta
+        ConexionPrueba nueva = new ConexionPrueba(POLITICA);
+        assertFalse(lenta.reanudar(nueva, 0, null));
+        assertTrue(nueva.estaConectado());
+        assertTrue(nueva.getMensajesPendientes() <= POLITICA.getCapacidad());
+    }
+
+    private ConexionPrueba conectar() {
+        ConexionPrueba conexion = new ConexionPrueba(POLITICA);
+        origen.reanudar(conexion, 0, null);
+        vuelta = new ConexionPrueba(POLITICA);
+        destino.reanudar(vuelta, 0, null);
+        return conexion;
+    }
+
+    private void caer(ConexionPrueba conexion) {
+        conexion.cerrar();
+        assertTrue(origen.desconectada(conexion));
+        assertFalse(origen.estaConectada());
+    }
+
+    private void entregar(List<MensajeJuego> mensajes) {
+        for (MensajeJuego mensaje : mensajes) {
+            if (destino.recibir(mensaje)) {
+                recibidos.add(mensaje.getContenido());
+                if (mensaje.getTipo() == MensajeJuego.TipoMensaje.MOVIMIENTO) {
+                    movimientosRecibidos++;
+                }
+            }
+        }
+    }
+
+    private static MensajeJuego chat(int numero) {
+        return MensajeJuego.chat("Origen", "m" + numero);
+    }
+
+    private static List<String> rango(int desde, int hasta) {
+        List<String> contenidos = new ArrayList<>();
+        for (int i = desde; i <= hasta; i++) {
+            contenidos.add("m" + i);
+        }
+        return contenidos;
+    }
+
+    /**
+     * Conexion sin socket: lo enviado queda en la cola hasta tomar()
+     */
+    private static final class ConexionPrueba extends ConexionPeer {
+        private boolean abierta = true;
+
+        ConexionPrueba(PoliticaSalida politica) {
+            super(null, politica);
+        }
+
+        @Override
+        public boolean enviarMensaje(MensajeJuego mensaje) {
+            return abierta && aceptado(getColaSalida().ofrecer(mensaje));
+        }
+
+        @Override
+        public void cerrar() {
+            abierta = false;
+            getColaSalida().cerrar();
+        }
+
+        @Override
+        public boolean estaConectado() {
+            return abierta;
+        }
+
+        List<MensajeJuego> tomar() {
+            List<MensajeJuego> salida = new ArrayList<>();
+            getColaSalida().tomar(salida);
+            return salida;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package red;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Conexiones de un mismo hilo de seleccion que no se esperan entre si
+ */
+class TransporteNioTest {
+
+    @Test
+    void avisoDeDesconexionNoDetieneALasDemas() throws Exception {
+        CountDownLatch avisado = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        EscuchaRed escucha = new EscuchaRed() {
+            @Override
+            public void alRecibirMensaje(MensajeJuego mensaje, ConexionPeer desde) {
+            }
+
+            @Override
+            public void alDesconectarPeer(ConexionPeer peer) {
+                // Un escucha lento con la conexion que se fue
+                avisado.countDown();
+                try {
+                    soltar.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        BlockingQueue<ConexionPeerNio> aceptadas = new LinkedBlockingQueue<>();
+        TransporteNio transporte = new TransporteNio(1, escucha, aceptadas::add);
+        try (Socket lento = new Socket("localhost", transporte.escuchar(0));
+             Socket rapido = new Socket("localhost", lento.getPort())) {
+            ConexionPeerNio conexionLento = aceptadas.poll(5, TimeUnit.SECONDS);
+            ConexionPeerNio conexionRapido = aceptadas.poll(5, TimeUnit.SECONDS);
+
+            conexionLento.cerrar();
+            assertTrue(avisado.await(5, TimeUnit.SECONDS));
+
+            // Con el escucha todavia ocupado, al otro peer le sigue llegando lo enviado
+            MensajeJuego dado = MensajeJuego.tiradaDado("Host", 4);
+            assertTrue(conexionRapido.enviarMensaje(dado));
+            rapido.setSoTimeout(2000);
+            MensajeJuego leido = new DecodificadorMensajes().leer(new BufferedInputStream(rapido.getInputStream()));
+            assertEquals(MensajeJuego.TipoMensaje.TIRADA_DADO, leido.getTipo());
+            assertEquals(4, leido.getValorDado());
+        } finally {
+            soltar.countDown();
+            transporte.cerrar();
+        }
+    }
+
+    @Test
+    void cerrarEsperaLosAvisosPendientes() throws IOException, InterruptedException {
+        CountDownLatch desconectadas = new CountDownLatch(2);
+        EscuchaRed escucha = new EscuchaRed() {
+            @Override
+            public void alRecibirMensaje(MensajeJuego mensaje, ConexionPeer desde) {
+            }
+
+            @Override
+            public void alDesconectarPeer(ConexionPeer peer) {
+                desconectadas.countDown();
+            }
+        };
+        BlockingQueue<ConexionPeerNio> aceptadas = new LinkedBlockingQueue<>();
+        TransporteNio transporte = new TransporteNio(1, escucha, aceptadas::add);
+        try (Socket primero = new Socket("localhost", transporte.escuchar(0));
+             Socket segundo = new Socket("localhost", primero.getPort())) {
+            aceptadas.poll(5, TimeUnit.SECONDS);
+            aceptadas.poll(5, TimeUnit.SECONDS);
+            transporte.cerrar();
+            // Las dos aceptadas avisaron antes de que cerrar() volviera
+            assertEquals(0, desconectadas.getCount());
+            assertEquals(0, transporte.contarConexiones());
+        }
+    }
+}